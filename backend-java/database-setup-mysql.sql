@@ -19,6 +19,70 @@ USE smart_traffic_db;
 -- But you can verify table creation with:
 -- SHOW TABLES;
 
+-- Schema additions for databases created by an earlier version of the application.
+-- ddl-auto: update does not always add these to existing tables. Each change is skipped if
+-- it is already there, or if its table does not exist yet (Hibernate then creates the table
+-- complete on first start), so this script can be run any number of times.
+DELIMITER //
+
+DROP PROCEDURE IF EXISTS smart_traffic_add_column //
+CREATE PROCEDURE smart_traffic_add_column(IN tbl VARCHAR(64), IN col VARCHAR(64), IN definition VARCHAR(255))
+BEGIN
+  IF EXISTS (SELECT 1 FROM information_schema.tables
+             WHERE table_schema = DATABASE() AND table_name = tbl)
+     AND NOT EXISTS (SELECT 1 FROM information_schema.columns
+                     WHERE table_schema = DATABASE() AND table_name = tbl AND column_name = col) THEN
+    SET @ddl = CONCAT('ALTER TABLE `', tbl, '` ADD COLUMN `', col, '` ', definition);
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+  END IF;
+END //
+
+DROP PROCEDURE IF EXISTS smart_traffic_add_index //
+CREATE PROCEDURE smart_traffic_add_index(IN tbl VARCHAR(64), IN idx VARCHAR(64), IN cols VARCHAR(255))
+BEGIN
+  IF EXISTS (SELECT 1 FROM information_schema.tables
+             WHERE table_schema = DATABASE() AND table_name = tbl)
+     AND NOT EXISTS (SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = tbl AND index_name = idx) THEN
+    SET @ddl = CONCAT('CREATE INDEX `', idx, '` ON `', tbl, '` (', cols, ')');
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+  END IF;
+END //
+
+DELIMITER ;
+
+-- Condition a pending recommendation was issued for, so a persisting condition updates it
+CALL smart_traffic_add_column('optimization_recommendations', 'condition_type', 'VARCHAR(30) NULL');
+CALL smart_traffic_add_index('optimization_recommendations', 'idx_recommendation_condition',
+  'simulation_id, road_name, condition_type, status');
+
+-- Keyset indexes for the retention purge, which deletes old rows in (timestamp, id) order
+CALL smart_traffic_add_index('road_performance', 'idx_road_performance_timestamp_id', '`timestamp`, id');
+CALL smart_traffic_add_index('traffic_events', 'idx_traffic_events_timestamp_id', '`timestamp`, id');
+
+DROP PROCEDURE smart_traffic_add_column;
+DROP PROCEDURE smart_traffic_add_index;
+
+-- Hourly road performance rollups (kept after raw snapshots expire)
+CREATE TABLE IF NOT EXISTS road_performance_rollups (
+  id VARCHAR(36) NOT NULL PRIMARY KEY,
+  simulation_id VARCHAR(36) NOT NULL,
+  road_name VARCHAR(50) NOT NULL,
+  bucket_start DATETIME(6) NOT NULL,
+  samples BIGINT NOT NULL,
+  avg_vehicles DOUBLE,
+  avg_wait_time DOUBLE,
+  avg_queue_length DOUBLE,
+  max_queue_length INT,
+  avg_efficiency DOUBLE,
+  UNIQUE INDEX idx_rollups_sim_road_bucket (simulation_id, road_name, bucket_start),
+  INDEX idx_rollups_bucket_start (bucket_start)
+);
+
 -- Verify database configuration
 SELECT 
   @@character_set_database as charset, 
@@ -30,7 +94,7 @@ SHOW GRANTS FOR CURRENT_USER();
 SHOW DATABASES;
 
 -- Notes:
--- 1. Tables (simulation_runs, road_performance, traffic_events, optimization_recommendations) 
+-- 1. Tables (simulation_runs, road_performance, traffic_events, optimization_recommendations, road_performance_rollups) 
 --    will be automatically created by Spring Boot JPA with ddl-auto: update
 -- 2. Make sure to update application.yml with your MySQL credentials
 -- 3. The application will handle all schema migrations automatically
@@ -65,6 +65,7 @@ CREATE TABLE IF NOT EXISTS optimization_recommendations (
     simulation_id VARCHAR(255) NOT NULL,
     road_name VARCHAR(100) NOT NULL,
     category VARCHAR(100) NOT NULL,
+    condition_type VARCHAR(30),
     priority VARCHAR(50) NOT NULL CHECK (priority IN ('low', 'medium', 'high', 'critical')),
     recommendation TEXT NOT NULL,
     expected_improvement DOUBLE PRECISION,
@@ -73,22 +74,47 @@ CREATE TABLE IF NOT EXISTS optimization_recommendations (
     FOREIGN KEY (simulation_id) REFERENCES simulation_runs(id) ON DELETE CASCADE
 );
 
+-- Hourly road performance rollups (kept after raw snapshots expire)
+CREATE TABLE IF NOT EXISTS road_performance_rollups (
+    id VARCHAR(36) PRIMARY KEY,
+    simulation_id VARCHAR(36) NOT NULL,
+    road_name VARCHAR(50) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    samples BIGINT NOT NULL,
+    avg_vehicles DOUBLE PRECISION,
+    avg_wait_time DOUBLE PRECISION,
+    avg_queue_length DOUBLE PRECISION,
+    max_queue_length INTEGER,
+    avg_efficiency DOUBLE PRECISION
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_rollups_sim_road_bucket ON road_performance_rollups(simulation_id, road_name, bucket_start);
+CREATE INDEX IF NOT EXISTS idx_rollups_bucket_start ON road_performance_rollups(bucket_start);
+
 -- Create indexes for better query performance
 CREATE INDEX IF NOT EXISTS idx_simulation_runs_user_id ON simulation_runs(user_id);
 CREATE INDEX IF NOT EXISTS idx_simulation_runs_status ON simulation_runs(status);
 CREATE INDEX IF NOT EXISTS idx_simulation_runs_start_time ON simulation_runs(start_time);
+CREATE INDEX IF NOT EXISTS idx_simulation_runs_user_start ON simulation_runs(user_id, start_time);
+CREATE INDEX IF NOT EXISTS idx_simulation_runs_status_start ON simulation_runs(status, start_time);
+CREATE INDEX IF NOT EXISTS idx_simulation_runs_efficiency ON simulation_runs(efficiency);
 
 CREATE INDEX IF NOT EXISTS idx_road_performance_simulation_id ON road_performance(simulation_id);
 CREATE INDEX IF NOT EXISTS idx_road_performance_road_name ON road_performance(road_name);
 CREATE INDEX IF NOT EXISTS idx_road_performance_timestamp ON road_performance(timestamp);
+CREATE INDEX IF NOT EXISTS idx_road_performance_timestamp_id ON road_performance(timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_road_performance_sim_timestamp ON road_performance(simulation_id, timestamp);
 
 CREATE INDEX IF NOT EXISTS idx_traffic_events_simulation_id ON traffic_events(simulation_id);
 CREATE INDEX IF NOT EXISTS idx_traffic_events_event_type ON traffic_events(event_type);
 CREATE INDEX IF NOT EXISTS idx_traffic_events_timestamp ON traffic_events(timestamp);
+CREATE INDEX IF NOT EXISTS idx_traffic_events_timestamp_id ON traffic_events(timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_traffic_events_sim_type_timestamp ON traffic_events(simulation_id, event_type, timestamp);
 
 CREATE INDEX IF NOT EXISTS idx_optimization_recommendations_simulation_id ON optimization_recommendations(simulation_id);
 CREATE INDEX IF NOT EXISTS idx_optimization_recommendations_priority ON optimization_recommendations(priority);
 CREATE INDEX IF NOT EXISTS idx_optimization_recommendations_status ON optimization_recommendations(status);
+CREATE INDEX IF NOT EXISTS idx_optimization_recommendations_condition ON optimization_recommendations(simulation_id, road_name, condition_type, status);
 
 -- Create a function to automatically update the updated_at timestamp
 CREATE OR REPLACE FUNCTION update_updated_at_column()
@@ -0,0 +1,24 @@
+package com.smarttraffic.config;
+
+import com.smarttraffic.service.Bulkheads;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Streamed response bodies (all of them are exports) run on the export bulkhead's
+ * threads instead of Spring's default unbounded async executor
+ */
+@Configuration
+@RequiredArgsConstructor
+public class AsyncConfig implements WebMvcConfigurer {
+    
+    private final Bulkheads bulkheads;
+    
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(bulkheads.export().executor()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.smarttraffic.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Dedicated scheduler for @Scheduled background jobs (retention, cache purges, ...)
+ * so they never run on the WebSocket broker's scheduler thread
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+    
+    @Value("${traffic.scheduling.pool-size:4}")
+    private int poolSize;
+    
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("background-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        registrar.setTaskScheduler(scheduler);
+    }
+}
@@ -0,0 +1,138 @@
+package com.smarttraffic.controller;
+
+import com.smarttraffic.dto.AnalyticsRecordingDTO;
+import com.smarttraffic.dto.AnalyticsReplayDTO;
+import com.smarttraffic.dto.DetectionWindowDTO;
+import com.smarttraffic.dto.VideoAnalyticsDTO;
+import com.smarttraffic.service.AnalyticsRecordingService;
+import com.smarttraffic.service.TrafficSimulationService;
+import com.smarttraffic.service.VehicleDetectionService;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * REST controller for recording video analytics streams and replaying them as detection load
+ */
+@RestController
+@RequestMapping("/detection")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DetectionController {
+    
+    private final AnalyticsRecordingService recordingService;
+    private final VehicleDetectionService detectionService;
+    private final TrafficSimulationService simulationService;
+    private final SimpMessagingTemplate messagingTemplate;
+    
+    /**
+     * Start recording the analytics detected on a road (returns the running recording if there is one)
+     * POST /api/detection/recordings/{roadName}
+     */
+    @PostMapping("/recordings/{roadName}")
+    public ResponseEntity<AnalyticsRecordingDTO> startRecording(@PathVariable String roadName) throws IOException {
+        return ResponseEntity.ok(recordingService.start(roadName));
+    }
+    
+    /**
+     * Stop recording a road (404 if it is not being recorded)
+     * DELETE /api/detection/recordings/{roadName}
+     */
+    @DeleteMapping("/recordings/{roadName}")
+    public ResponseEntity<AnalyticsRecordingDTO> stopRecording(@PathVariable String roadName) {
+        return ResponseEntity.of(recordingService.stop(roadName));
+    }
+    
+    /**
+     * Recordings available for replay, newest first
+     * GET /api/detection/recordings
+     */
+    @GetMapping("/recordings")
+    public ResponseEntity<List<AnalyticsRecordingDTO>> getRecordings() throws IOException {
+        return ResponseEntity.ok(recordingService.list());
+    }
+    
+    /**
+     * Replay a recording on a road instead of live detection: frames go to the road's
+     * analytics topic and, with a simulation id, into that simulation
+     * (400 for missing or unknown recordings or speeds, 404 if the simulation is not active)
+     * POST /api/detection/replays/{roadName}
+     */
+    @PostMapping("/replays/{roadName}")
+    public ResponseEntity<AnalyticsReplayDTO> startReplay(
+        @PathVariable String roadName,
+        @RequestBody ReplayRequest request
+    ) throws IOException {
+        if (request.getRecording() == null || request.getRecording().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        double speed;
+        try {
+            speed = request.getSpeed() == null ? 1.0
+                : "max".equalsIgnoreCase(request.getSpeed()) ? Double.POSITIVE_INFINITY
+                : Double.parseDouble(request.getSpeed());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String simulationId = request.getSimulationId();
+        if (simulationId != null && !simulationService.isActive(simulationId)) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        try {
+            return ResponseEntity.ok(detectionService.startReplay(roadName, request.getRecording(), speed, simulationId,
+                new VehicleDetectionService.DetectionCallback() {
+                    @Override
+                    public void onAnalytics(VideoAnalyticsDTO analytics) {
+                        messagingTemplate.convertAndSend("/topic/video-analytics/" + roadName, analytics);
+                    }
+                    
+                    @Override
+                    public void onReplayed(VideoAnalyticsDTO analytics, long recordedAt) {
+                        onAnalytics(analytics);
+                        if (simulationId != null) {
+                            simulationService.updateRoadFromVideo(simulationId, roadName, analytics, recordedAt);
+                        }
+                    }
+                    
+                    @Override
+                    public void onWindow(DetectionWindowDTO window) {
+                        messagingTemplate.convertAndSend("/topic/video-windows/" + roadName + "/" + window.getWindow(), window);
+                    }
+                }));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Progress of the latest replay on a road
+     * GET /api/detection/replays/{roadName}
+     */
+    @GetMapping("/replays/{roadName}")
+    public ResponseEntity<AnalyticsReplayDTO> getReplay(@PathVariable String roadName) {
+        return ResponseEntity.of(detectionService.getReplay(roadName));
+    }
+    
+    /**
+     * Stop detection or replay on a road
+     * DELETE /api/detection/replays/{roadName}
+     */
+    @DeleteMapping("/replays/{roadName}")
+    public ResponseEntity<AnalyticsReplayDTO> stopReplay(@PathVariable String roadName) {
+        detectionService.stopDetection(roadName);
+        return ResponseEntity.of(detectionService.getReplay(roadName));
+    }
+    
+    @Data
+    public static class ReplayRequest {
+        private String recording; // name from GET /detection/recordings
+        private String speed; // multiple of the recorded pace (default 1), or "max"
+        private String simulationId;
+    }
+}
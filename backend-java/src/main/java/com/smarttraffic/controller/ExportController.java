@@ -1,17 +1,30 @@
 package com.smarttraffic.controller;
 
+import com.smarttraffic.dto.ExportJobDTO;
+import com.smarttraffic.export.ColumnarFormat;
+import com.smarttraffic.service.Bulkheads;
+import com.smarttraffic.service.ExportJobService;
 import com.smarttraffic.service.ExportService;
+import com.smarttraffic.service.ReportAssemblyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * REST controller for report exports (PDF, Excel, CSV)
+ * REST controller for report exports (PDF, Excel, CSV, columnar)
  */
 @RestController
 @RequestMapping("/export")
@@ -20,53 +33,219 @@ import java.time.format.DateTimeFormatter;
 public class ExportController {
     
     private final ExportService exportService;
+    private final ExportJobService exportJobService;
+    private final ReportAssemblyService reportAssemblyService;
+    private final Bulkheads bulkheads;
     private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final MediaType CSV_UTF8 = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final MediaType XLSX = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
     
     /**
-     * Export analytics as PDF
+     * Export analytics as PDF (streamed)
      * POST /api/export/pdf
      */
     @PostMapping("/pdf")
-    public ResponseEntity<byte[]> exportPdf(@RequestBody ExportService.AnalyticsData data) {
-        byte[] pdfBytes = exportService.generatePdfReport(data);
-        
+    public ResponseEntity<StreamingResponseBody> exportPdf(@RequestBody ExportService.AnalyticsData data) {
         String filename = "traffic-report-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + ".pdf";
         
         return ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
             .contentType(MediaType.APPLICATION_PDF)
-            .body(pdfBytes);
+            .body(bulkheads.export().admit(out -> exportService.writePdfReport(data, out)));
     }
     
     /**
-     * Export analytics as Excel
+     * Export analytics as Excel (streamed)
      * POST /api/export/excel
      */
     @PostMapping("/excel")
-    public ResponseEntity<byte[]> exportExcel(@RequestBody ExportService.AnalyticsData data) {
-        byte[] excelBytes = exportService.generateExcelReport(data);
-        
+    public ResponseEntity<StreamingResponseBody> exportExcel(@RequestBody ExportService.AnalyticsData data) {
         String filename = "traffic-report-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + ".xlsx";
         
         return ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-            .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-            .body(excelBytes);
+            .contentType(XLSX)
+            .body(bulkheads.export().admit(out -> exportService.writeExcelReport(data, out)));
     }
     
     /**
-     * Export analytics as CSV
+     * Export analytics as CSV (streamed, UTF-8)
      * POST /api/export/csv
      */
     @PostMapping("/csv")
-    public ResponseEntity<byte[]> exportCsv(@RequestBody ExportService.AnalyticsData data) {
-        byte[] csvBytes = exportService.generateCsvReport(data);
-        
+    public ResponseEntity<StreamingResponseBody> exportCsv(@RequestBody ExportService.AnalyticsData data) {
         String filename = "traffic-data-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + ".csv";
         
         return ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-            .contentType(MediaType.parseMediaType("text/csv"))
-            .body(csvBytes);
+            .contentType(CSV_UTF8)
+            .body(bulkheads.export().admit(out -> exportService.writeCsvReport(data, out)));
+    }
+    
+    /**
+     * Export the raw road performance history of a run as CSV, streamed from a database cursor
+     * GET /api/export/simulation/{id}/road-history/csv
+     */
+    @GetMapping("/simulation/{id}/road-history/csv")
+    public ResponseEntity<StreamingResponseBody> exportRoadHistoryCsv(@PathVariable String id) {
+        String filename = "road-history-" + id + "-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + ".csv";
+        
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .contentType(CSV_UTF8)
+            .body(bulkheads.export().admit(out -> exportService.writeRoadHistoryCsv(id, out)));
+    }
+    
+    /**
+     * Export the raw road performance history of a run in the compressed columnar format
+     * GET /api/export/simulation/{id}/road-history/columnar
+     */
+    @GetMapping("/simulation/{id}/road-history/columnar")
+    public ResponseEntity<StreamingResponseBody> exportRoadHistoryColumnar(@PathVariable String id) {
+        String filename = "road-history-" + id + "-" + LocalDateTime.now().format(FILE_DATE_FORMAT)
+            + "." + ColumnarFormat.FILE_EXTENSION;
+        
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(bulkheads.export().admit(out -> exportService.writeRoadHistoryColumnar(id, out)));
+    }
+    
+    /**
+     * Export the raw road performance history of a run as a paginated PDF table
+     * GET /api/export/simulation/{id}/road-history/pdf
+     */
+    @GetMapping("/simulation/{id}/road-history/pdf")
+    public ResponseEntity<StreamingResponseBody> exportRoadHistoryPdf(@PathVariable String id) {
+        String filename = "road-history-" + id + "-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + ".pdf";
+        
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .contentType(MediaType.APPLICATION_PDF)
+            .body(bulkheads.export().admit(out -> exportService.writeRoadHistoryPdf(id, out)));
+    }
+    
+    /**
+     * Export the raw road performance history of a run as Excel, streamed from a database cursor
+     * GET /api/export/simulation/{id}/road-history/excel
+     */
+    @GetMapping("/simulation/{id}/road-history/excel")
+    public ResponseEntity<StreamingResponseBody> exportRoadHistoryExcel(@PathVariable String id) {
+        String filename = "road-history-" + id + "-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + ".xlsx";
+        
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .contentType(XLSX)
+            .body(bulkheads.export().admit(out -> exportService.writeRoadHistoryExcel(id, out)));
+    }
+    
+    /**
+     * Queue an export in the background; identical requests reuse the same job/result.
+     * Returns 429 when the export job bulkhead is full.
+     * POST /api/export/jobs?format=pdf|excel|csv
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ExportJobDTO> submitExportJob(
+        @RequestParam String format,
+        @RequestBody ExportService.AnalyticsData data
+    ) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(exportJobService.submit(data, format));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Export job status and progress
+     * GET /api/export/jobs/{jobId}
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ExportJobDTO> getExportJob(@PathVariable String jobId) {
+        return ResponseEntity.of(exportJobService.getJob(jobId));
+    }
+    
+    /**
+     * Download the result of a completed export job (404 until it is ready)
+     * GET /api/export/jobs/{jobId}/download
+     */
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadExportJob(@PathVariable String jobId) {
+        Optional<ExportJobDTO> job = exportJobService.getJob(jobId);
+        Optional<Path> result = exportJobService.getResult(jobId);
+        if (job.isEmpty() || result.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        String format = job.get().getFormat();
+        String filename = "traffic-report-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + "." + extension(format);
+        
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .contentType(contentType(format))
+            .body(new FileSystemResource(result.get()));
+    }
+    
+    /**
+     * Report data of a run assembled on the server, optionally for a time range
+     * GET /api/export/simulation/{id}/analytics?from=...&to=...
+     */
+    @GetMapping("/simulation/{id}/analytics")
+    public CompletableFuture<ResponseEntity<ExportService.AnalyticsData>> getSimulationAnalytics(
+        @PathVariable String id,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        return bulkheads.history().submit(() -> ResponseEntity.of(reportAssemblyService.assemble(id, from, to)));
+    }
+    
+    /**
+     * Export a report of a run assembled on the server (streamed)
+     * GET /api/export/simulation/{id}/pdf|excel|csv?from=...&to=...
+     */
+    @GetMapping("/simulation/{id}/{format:pdf|excel|csv}")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> exportSimulationReport(
+        @PathVariable String id,
+        @PathVariable String format,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        String filename = "traffic-report-" + id + "-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + "." + extension(format);
+        
+        // Assembly is a history query; the download itself is admitted to the export bulkhead
+        return bulkheads.history().submit(() -> reportAssemblyService.assemble(id, from, to)
+            .map(data -> ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(contentType(format))
+                .body(bulkheads.export().admit(out -> exportService.writeReport(data, format, out, rows -> { }))))
+            .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+    
+    /**
+     * Queue a background export of a run assembled on the server
+     * POST /api/export/jobs/simulation/{id}?format=pdf|excel|csv&from=...&to=...
+     */
+    @PostMapping("/jobs/simulation/{id}")
+    public CompletableFuture<ResponseEntity<ExportJobDTO>> submitSimulationExportJob(
+        @PathVariable String id,
+        @RequestParam String format,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        return bulkheads.history().submit(() -> reportAssemblyService.assemble(id, from, to)
+            .map(data -> submitExportJob(format, data))
+            .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+    
+    private static String extension(String format) {
+        return format.equals("excel") ? "xlsx" : format;
+    }
+    
+    private static MediaType contentType(String format) {
+        return switch (format) {
+            case "pdf" -> MediaType.APPLICATION_PDF;
+            case "excel" -> XLSX;
+            default -> CSV_UTF8;
+        };
     }
 }
@@ -0,0 +1,68 @@
+package com.smarttraffic.controller;
+
+import com.smarttraffic.dto.RunPageDTO;
+import com.smarttraffic.dto.SimulationSummaryDTO;
+import com.smarttraffic.service.Bulkheads;
+import com.smarttraffic.service.SimulationHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * REST controller for paginated simulation run listings
+ */
+@RestController
+@RequestMapping("/history")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class HistoryController {
+    
+    private final SimulationHistoryService historyService;
+    private final Bulkheads bulkheads;
+    
+    /**
+     * List run summaries by user, status or start-time range
+     * GET /api/history/runs?userId=...&status=...&from=...&to=...&page=0&size=50&sort=startTime,desc
+     */
+    @GetMapping("/runs")
+    public CompletableFuture<ResponseEntity<RunPageDTO>> listRuns(
+        @RequestParam(required = false) String userId,
+        @RequestParam(required = false) String status,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "50") int size,
+        @RequestParam(required = false) String sort
+    ) {
+        if (userId != null) {
+            return bulkheads.history().submit(() ->
+                ResponseEntity.ok(historyService.listRunsByUser(userId, status, page, size, sort)));
+        }
+        if (status != null) {
+            return bulkheads.history().submit(() ->
+                ResponseEntity.ok(historyService.listRunsByStatus(status, page, size, sort)));
+        }
+        if (from != null && to != null) {
+            return bulkheads.history().submit(() ->
+                ResponseEntity.ok(historyService.listRunsByDateRange(from, to, page, size, sort)));
+        }
+        return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+    }
+    
+    /**
+     * Best runs by efficiency
+     * GET /api/history/runs/top?minEfficiency=80&limit=10
+     */
+    @GetMapping("/runs/top")
+    public CompletableFuture<ResponseEntity<List<SimulationSummaryDTO>>> listTopPerforming(
+        @RequestParam(defaultValue = "0") Double minEfficiency,
+        @RequestParam(defaultValue = "10") int limit
+    ) {
+        return bulkheads.history().submit(() -> ResponseEntity.ok(historyService.listTopPerforming(minEfficiency, limit)));
+    }
+}
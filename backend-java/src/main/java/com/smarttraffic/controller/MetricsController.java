@@ -0,0 +1,103 @@
+package com.smarttraffic.controller;
+
+import com.smarttraffic.dto.BulkheadStatsDTO;
+import com.smarttraffic.dto.CacheStatsDTO;
+import com.smarttraffic.dto.DetectionSamplingStatsDTO;
+import com.smarttraffic.dto.EmergencyLatencyDTO;
+import com.smarttraffic.dto.JournalStatsDTO;
+import com.smarttraffic.dto.RetentionReportDTO;
+import com.smarttraffic.dto.VideoIngestStatsDTO;
+import com.smarttraffic.service.Bulkheads;
+import com.smarttraffic.service.DetectionSamplingService;
+import com.smarttraffic.service.EmergencyLatencyMonitor;
+import com.smarttraffic.service.SimulationHistoryService;
+import com.smarttraffic.service.TelemetryRetentionService;
+import com.smarttraffic.service.TrafficEventJournal;
+import com.smarttraffic.service.VideoIngestService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller exposing internal runtime metrics
+ */
+@RestController
+@RequestMapping("/metrics")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class MetricsController {
+    
+    private final SimulationHistoryService historyService;
+    private final TelemetryRetentionService retentionService;
+    private final TrafficEventJournal eventJournal;
+    private final Bulkheads bulkheads;
+    private final EmergencyLatencyMonitor emergencyLatencyMonitor;
+    private final VideoIngestService ingestService;
+    private final DetectionSamplingService samplingService;
+    
+    /**
+     * Completed-run cache hit/miss/eviction counters
+     * GET /api/metrics/cache
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+        return ResponseEntity.ok(historyService.getCacheStats());
+    }
+    
+    /**
+     * Result of the last telemetry retention pass (rows purged, time spent)
+     * GET /api/metrics/retention
+     */
+    @GetMapping("/retention")
+    public ResponseEntity<RetentionReportDTO> getRetentionReport() {
+        return ResponseEntity.of(retentionService.getLastReport());
+    }
+    
+    /**
+     * Event journal backlog and batch persistence metrics
+     * GET /api/metrics/journal
+     */
+    @GetMapping("/journal")
+    public ResponseEntity<JournalStatsDTO> getJournalStats() {
+        return ResponseEntity.ok(eventJournal.getStats());
+    }
+    
+    /**
+     * Per-workload bulkhead saturation (active, queued, rejected, queue wait)
+     * GET /api/metrics/bulkheads
+     */
+    @GetMapping("/bulkheads")
+    public ResponseEntity<List<BulkheadStatsDTO>> getBulkheadStats() {
+        return ResponseEntity.ok(bulkheads.stats());
+    }
+    
+    /**
+     * Emergency override request-to-green latency histogram and SLO state
+     * GET /api/metrics/emergency
+     */
+    @GetMapping("/emergency")
+    public ResponseEntity<EmergencyLatencyDTO> getEmergencyLatency() {
+        return ResponseEntity.ok(emergencyLatencyMonitor.getStats());
+    }
+    
+    /**
+     * Bulk video analytics ingest: lines accepted/rejected by reason, batch and request latency
+     * GET /api/metrics/ingest
+     */
+    @GetMapping("/ingest")
+    public ResponseEntity<VideoIngestStatsDTO> getIngestStats() {
+        return ResponseEntity.ok(ingestService.getStats());
+    }
+    
+    /**
+     * Live detection feeds: target and effective frame rate, cost per frame, CPU used and saved
+     * against the fixed rate
+     * GET /api/metrics/detection
+     */
+    @GetMapping("/detection")
+    public ResponseEntity<DetectionSamplingStatsDTO> getDetectionSampling() {
+        return ResponseEntity.ok(samplingService.getStats());
+    }
+}
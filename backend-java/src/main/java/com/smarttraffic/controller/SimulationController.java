@@ -1,14 +1,28 @@
 package com.smarttraffic.controller;
 
 import com.smarttraffic.dto.*;
-import com.smarttraffic.model.SimulationRun;
+import com.smarttraffic.model.OptimizationRecommendation;
+import com.smarttraffic.service.Bulkheads;
+import com.smarttraffic.service.NetworkTopologyService;
+import com.smarttraffic.service.SignalTimingOptimizer;
+import com.smarttraffic.service.SimulationHistoryService;
+import com.smarttraffic.service.TrafficEventJournal;
 import com.smarttraffic.service.TrafficSimulationService;
+import com.smarttraffic.service.VideoIngestService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * REST controller for traffic simulation operations
@@ -20,18 +34,28 @@ import java.util.List;
 public class SimulationController {
     
     private final TrafficSimulationService simulationService;
+    private final SimulationHistoryService historyService;
+    private final TrafficEventJournal eventJournal;
+    private final Bulkheads bulkheads;
+    private final NetworkTopologyService topologyService;
+    private final SignalTimingOptimizer timingOptimizer;
+    private final VideoIngestService ingestService;
     
     /**
-     * Create a new simulation
+     * Create a new simulation (mode "tick" by default, "event", "micro", or "network" with a topology)
      * POST /api/simulation/create
      */
     @PostMapping("/create")
-    public ResponseEntity<SimulationRun> createSimulation(@RequestBody CreateSimulationRequest request) {
-        SimulationRun simulation = simulationService.createSimulation(
+    public CompletableFuture<ResponseEntity<SimulationSummaryDTO>> createSimulation(@RequestBody CreateSimulationRequest request) {
+        if (!TrafficSimulationService.isSupportedMode(request.getMode()) || !isValidTopology(request)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return bulkheads.simulation().submit(() -> ResponseEntity.ok(SimulationSummaryDTO.from(simulationService.createSimulation(
             request.getUserId(), 
-            request.getSpeed()
-        );
-        return ResponseEntity.ok(simulation);
+            request.getSpeed(),
+            request.getMode(),
+            request.getTopology()
+        ))));
     }
     
     /**
@@ -39,12 +63,14 @@ public class SimulationController {
      * POST /api/simulation/{id}/tick
      */
     @PostMapping("/{id}/tick")
-    public ResponseEntity<Void> tick(
+    public CompletableFuture<ResponseEntity<Void>> tick(
         @PathVariable String id,
         @RequestParam(defaultValue = "1.0") Double deltaTime
     ) {
-        simulationService.tick(id, deltaTime);
-        return ResponseEntity.ok().build();
+        return bulkheads.simulation().submit(() -> {
+            simulationService.tick(id, deltaTime);
+            return ResponseEntity.ok().build();
+        });
     }
     
     /**
@@ -68,7 +94,119 @@ public class SimulationController {
     }
     
     /**
-     * Set emergency override
+     * Measured per-vehicle wait distribution per road (404 unless the run is active in micro mode)
+     * GET /api/simulation/{id}/waits
+     */
+    @GetMapping("/{id}/waits")
+    public ResponseEntity<List<RoadWaitDistributionDTO>> getWaitDistribution(@PathVariable String id) {
+        return ResponseEntity.of(simulationService.getWaitDistribution(id));
+    }
+    
+    /**
+     * Open detection windows of each road, fed by its video analytics; the control window drives
+     * adaptive timing (404 if the simulation is not active)
+     * GET /api/simulation/{id}/windows
+     */
+    @GetMapping("/{id}/windows")
+    public ResponseEntity<List<DetectionWindowDTO>> getDetectionWindows(@PathVariable String id) {
+        return ResponseEntity.of(simulationService.getDetectionWindows(id));
+    }
+    
+    /**
+     * Recorded range and memory of the in-memory timeline (404 if the simulation is not active)
+     * GET /api/simulation/{id}/timeline
+     */
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<TimelineInfoDTO> getTimelineInfo(@PathVariable String id) {
+        return ResponseEntity.of(simulationService.getTimelineInfo(id));
+    }
+    
+    /**
+     * Recorded road state between two simulated times for replay, thinned to at most {@code limit}
+     * frames (404 if the simulation is not active, 400 for unknown roads)
+     * GET /api/simulation/{id}/timeline/frames?from=120&to=600&roads=Road A,Road B&limit=600
+     */
+    @GetMapping("/{id}/timeline/frames")
+    public ResponseEntity<List<TimelineFrameDTO>> getTimelineFrames(
+        @PathVariable String id,
+        @RequestParam(required = false) Double from,
+        @RequestParam(required = false) Double to,
+        @RequestParam(required = false) List<String> roads,
+        @RequestParam(defaultValue = "600") int limit
+    ) {
+        if (limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.of(simulationService.getTimelineFrames(id, from, to, roads, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * What-if fork: fast-forward copies of the live run without and with changed signal timing
+     * (404 if the simulation is not active, 400 for unknown roads or invalid timing)
+     * POST /api/simulation/{id}/fork
+     */
+    @PostMapping("/{id}/fork")
+    public CompletableFuture<ResponseEntity<SimulationForkDTO>> fork(
+        @PathVariable String id,
+        @RequestBody ForkRequest request
+    ) {
+        double horizon = request.getHorizon() != null ? request.getHorizon() : 900.0;
+        long seed = request.getSeed() != null ? request.getSeed() : ThreadLocalRandom.current().nextLong();
+        return bulkheads.forks().submit(() -> {
+            try {
+                return ResponseEntity.of(simulationService.fork(
+                    id, horizon, request.getCycleLength(), request.getGreenExtensions(), seed));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+    
+    /**
+     * Search cycle length and green splits for the lowest simulated p95 wait and save the best
+     * plan as a recommendation (404 if the simulation is not active, 400 for network runs)
+     * POST /api/simulation/{id}/optimize-timing?budgetMillis=5000&horizon=3600
+     */
+    @PostMapping("/{id}/optimize-timing")
+    public CompletableFuture<ResponseEntity<TimingOptimizationDTO>> optimizeTiming(
+        @PathVariable String id,
+        @RequestParam(defaultValue = "5000") long budgetMillis,
+        @RequestParam(defaultValue = "3600") double horizon
+    ) {
+        return bulkheads.forks().submit(() -> {
+            try {
+                return ResponseEntity.of(timingOptimizer.optimize(id, budgetMillis, horizon));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+    
+    /**
+     * Get run summary (served from cache once the run is completed)
+     * GET /api/simulation/{id}/summary
+     */
+    @GetMapping("/{id}/summary")
+    public CompletableFuture<ResponseEntity<SimulationSummaryDTO>> getSummary(@PathVariable String id) {
+        return bulkheads.history().submit(() -> ResponseEntity.of(historyService.getSummary(id)));
+    }
+    
+    /**
+     * Get aggregate road statistics of a run
+     * GET /api/simulation/{id}/aggregates
+     */
+    @GetMapping("/{id}/aggregates")
+    public CompletableFuture<ResponseEntity<RunAggregateStatsDTO>> getAggregateStats(@PathVariable String id) {
+        return bulkheads.history().submit(() -> ResponseEntity.of(historyService.getAggregateStats(id)));
+    }
+    
+    /**
+     * Set emergency override. Priority path: applied on the request thread (memory only,
+     * never queued behind ticks); lights switch before the response is sent.
      * POST /api/simulation/{id}/emergency
      */
     @PostMapping("/{id}/emergency")
@@ -76,12 +214,16 @@ public class SimulationController {
         @PathVariable String id,
         @RequestBody EmergencyOverrideDTO override
     ) {
-        simulationService.setEmergencyOverride(id, override);
-        return ResponseEntity.ok().build();
+        try {
+            simulationService.setEmergencyOverride(id, override, System.nanoTime());
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     /**
-     * Clear emergency override
+     * Clear emergency override (same priority path)
      * DELETE /api/simulation/{id}/emergency
      */
     @DeleteMapping("/{id}/emergency")
@@ -90,18 +232,56 @@ public class SimulationController {
         return ResponseEntity.ok().build();
     }
     
+    /**
+     * Query journaled events (emergency, congestion, signal_change, ...), newest first
+     * GET /api/simulation/{id}/events?type=congestion&from=...&to=...&limit=100
+     */
+    @GetMapping("/{id}/events")
+    public CompletableFuture<ResponseEntity<List<TrafficEventDTO>>> getEvents(
+        @PathVariable String id,
+        @RequestParam(required = false) String type,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(defaultValue = "100") int limit
+    ) {
+        return bulkheads.history().submit(() ->
+            ResponseEntity.ok(eventJournal.query(id, type, from, to, Math.max(1, Math.min(limit, 1000)))));
+    }
+    
+    /**
+     * Pending optimization recommendations, most urgent first
+     * GET /api/simulation/{id}/recommendations
+     */
+    @GetMapping("/{id}/recommendations")
+    public CompletableFuture<ResponseEntity<List<OptimizationRecommendation>>> getRecommendations(@PathVariable String id) {
+        return bulkheads.history().submit(() -> ResponseEntity.ok(historyService.getPendingRecommendations(id)));
+    }
+    
     /**
      * Update road from video analytics
      * POST /api/simulation/{id}/road/{roadName}/video-update
      */
     @PostMapping("/{id}/road/{roadName}/video-update")
-    public ResponseEntity<Void> updateRoadFromVideo(
+    public CompletableFuture<ResponseEntity<Void>> updateRoadFromVideo(
         @PathVariable String id,
         @PathVariable String roadName,
         @RequestBody VideoAnalyticsDTO videoData
     ) {
-        simulationService.updateRoadFromVideo(id, roadName, videoData);
-        return ResponseEntity.ok().build();
+        return bulkheads.detection().submit(() -> {
+            simulationService.updateRoadFromVideo(id, roadName, videoData);
+            return ResponseEntity.ok().build();
+        });
+    }
+    
+    /**
+     * Bulk video analytics for many simulations and roads: one JSON object per line, each the
+     * video-update body plus its simulationId; bad lines are rejected individually.
+     * The body is read on the request thread; only the grouped updates run on the detection bulkhead.
+     * POST /api/simulation/video-updates (Content-Type: application/x-ndjson)
+     */
+    @PostMapping(value = "/video-updates", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<VideoIngestResultDTO> ingestVideoUpdates(InputStream body) throws IOException {
+        return ResponseEntity.ok(ingestService.ingest(body));
     }
     
     /**
@@ -109,9 +289,11 @@ public class SimulationController {
      * POST /api/simulation/{id}/pause
      */
     @PostMapping("/{id}/pause")
-    public ResponseEntity<Void> pauseSimulation(@PathVariable String id) {
-        simulationService.pauseSimulation(id);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> pauseSimulation(@PathVariable String id) {
+        return bulkheads.simulation().submit(() -> {
+            simulationService.pauseSimulation(id);
+            return ResponseEntity.ok().build();
+        });
     }
     
     /**
@@ -119,9 +301,11 @@ public class SimulationController {
      * POST /api/simulation/{id}/resume
      */
     @PostMapping("/{id}/resume")
-    public ResponseEntity<Void> resumeSimulation(@PathVariable String id) {
-        simulationService.resumeSimulation(id);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> resumeSimulation(@PathVariable String id) {
+        return bulkheads.simulation().submit(() -> {
+            simulationService.resumeSimulation(id);
+            return ResponseEntity.ok().build();
+        });
     }
     
     /**
@@ -129,14 +313,35 @@ public class SimulationController {
      * POST /api/simulation/{id}/stop
      */
     @PostMapping("/{id}/stop")
-    public ResponseEntity<Void> stopSimulation(@PathVariable String id) {
-        simulationService.stopSimulation(id);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> stopSimulation(@PathVariable String id) {
+        return bulkheads.simulation().submit(() -> {
+            simulationService.stopSimulation(id);
+            return ResponseEntity.ok().build();
+        });
+    }
+    
+    private boolean isValidTopology(CreateSimulationRequest request) {
+        if (!TrafficSimulationService.MODE_NETWORK.equals(request.getMode())) return true;
+        try {
+            return topologyService.find(request.getTopology()).isPresent();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
     
     @Data
     public static class CreateSimulationRequest {
         private String userId;
         private Double speed;
+        private String mode; // tick (default), event, micro or network
+        private String topology; // network mode: topology file name, e.g. corridor or grid-32x32
+    }
+    
+    @Data
+    public static class ForkRequest {
+        private Double horizon; // seconds to fast-forward, default 900
+        private Double cycleLength; // new base cycle length
+        private Map<String, Double> greenExtensions; // road name or direction -> seconds of green added (negative: removed)
+        private Long seed; // random by default; pass the returned seed to repeat a fork
     }
 }
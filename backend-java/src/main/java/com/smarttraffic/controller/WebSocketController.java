@@ -1,5 +1,6 @@
 package com.smarttraffic.controller;
 
+import com.smarttraffic.dto.DetectionWindowDTO;
 import com.smarttraffic.dto.VideoAnalyticsDTO;
 import com.smarttraffic.service.VehicleDetectionService;
 import lombok.RequiredArgsConstructor;
@@ -23,18 +24,30 @@ public class WebSocketController {
     /**
      * Start video detection for a road
      * Client subscribes to: /topic/video-analytics/{roadName}
+     *   and, for window aggregates: /topic/video-windows/{roadName}/{window}
      * Client sends to: /app/start-detection/{roadName}
      */
     @MessageMapping("/start-detection/{roadName}")
     public void startDetection(@DestinationVariable String roadName) {
         log.info("Starting video detection for road: {}", roadName);
         
-        vehicleDetectionService.startDetection(roadName, analytics -> {
-            // Push analytics to all subscribers
-            messagingTemplate.convertAndSend(
-                "/topic/video-analytics/" + roadName,
-                analytics
-            );
+        vehicleDetectionService.startDetection(roadName, new VehicleDetectionService.DetectionCallback() {
+            @Override
+            public void onAnalytics(VideoAnalyticsDTO analytics) {
+                // Push analytics to all subscribers
+                messagingTemplate.convertAndSend(
+                    "/topic/video-analytics/" + roadName,
+                    analytics
+                );
+            }
+            
+            @Override
+            public void onWindow(DetectionWindowDTO window) {
+                messagingTemplate.convertAndSend(
+                    "/topic/video-windows/" + roadName + "/" + window.getWindow(),
+                    window
+                );
+            }
         });
     }
     
@@ -0,0 +1,24 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a recorded video analytics log of one road
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsRecordingDTO {
+    private String name; // file name, used to replay it
+    private String roadName;
+    private LocalDateTime startedAt;
+    private Long frames; // null for finished recordings (not counted when listing)
+    private Long bytes;
+    private Boolean active;
+}
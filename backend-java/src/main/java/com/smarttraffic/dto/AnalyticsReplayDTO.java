@@ -0,0 +1,28 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the progress of a video analytics replay
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsReplayDTO {
+    private String roadName; // road the frames are fed to
+    private String recording;
+    private Double speed; // multiple of recorded time, null for max speed
+    private String simulationId; // simulation also fed, if any
+    private String status; // running, completed, stopped, failed
+    private Long frames; // frames delivered so far
+    private Double elapsedMillis;
+    private Double maxLagMillis; // furthest a frame was delivered behind its schedule (0 at max speed)
+    private Boolean truncated; // the log ended in a partial record
+    private LocalDateTime startedAt;
+}
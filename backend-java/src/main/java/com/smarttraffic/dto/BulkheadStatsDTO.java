@@ -0,0 +1,27 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for per-workload bulkhead saturation metrics
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkheadStatsDTO {
+    private String name;
+    private Integer threads;
+    private Integer queueCapacity;
+    private Integer active; // calls running
+    private Integer queued; // admitted, waiting for a thread
+    private Double saturation; // (active + queued) / (threads + queueCapacity)
+    private Long completed;
+    private Long failed;
+    private Long rejected; // turned away with 429
+    private Double avgQueueWaitMillis;
+    private Double maxQueueWaitMillis;
+}
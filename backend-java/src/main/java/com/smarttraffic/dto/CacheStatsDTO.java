@@ -0,0 +1,25 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for in-process cache metrics
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO {
+    private String name;
+    private Integer size;
+    private Integer maxSize;
+    private Long hits;
+    private Long misses;
+    private Long evictions; // size-based
+    private Long expirations; // time-based
+    private Long invalidations;
+    private Double hitRatio;
+}
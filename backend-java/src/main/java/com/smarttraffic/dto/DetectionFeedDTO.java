@@ -0,0 +1,27 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the sampling rate and CPU use of one live detection feed
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DetectionFeedDTO {
+    private String roadName;
+    private Long frames;
+    private Double targetFps; // what the feed's traffic asks for
+    private Double fps; // granted under the CPU budget
+    private Double effectiveFps; // measured between recent frames
+    private Double averageVehicles; // recent, per frame
+    private Double variability; // recent frame-to-frame change in vehicles
+    private Double fastestSpeed; // km/h, recent
+    private Double costMicros; // per frame: detection, tracking, windows and publishing
+    private Double cpuCores;
+    private Double cpuSavedCores; // against the fixed rate; negative when busier
+}
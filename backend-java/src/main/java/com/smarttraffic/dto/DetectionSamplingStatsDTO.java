@@ -0,0 +1,32 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for adaptive detection sampling across the live feeds
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DetectionSamplingStatsDTO {
+    private Boolean enabled;
+    private Integer feeds;
+    private Double fixedFps; // traffic.detection.fps, the rate without adaptive sampling
+    private Double minFps;
+    private Double maxFps;
+    private Double effectiveFps; // summed over the feeds
+    private Double cpuBudgetCores;
+    private Double demandCores; // target rates times cost per frame
+    private Double budgetShare; // fraction of its target each feed gets, 1 within budget
+    private Double cpuCores;
+    private Double fixedRateCpuCores; // the same feeds at the fixed rate
+    private Double cpuSavedCores;
+    private Double cpuSavedPercent;
+    private List<DetectionFeedDTO> perFeed;
+}
@@ -0,0 +1,29 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO for one window of a road's detection stream, averaged over the frames in it
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DetectionWindowDTO {
+    private String roadName;
+    private String window; // configured name, e.g. "30s"
+    private Long from; // epoch millis, inclusive
+    private Long to; // exclusive
+    private Integer frames;
+    private Long detections;
+    private Double averageVehicles; // per frame
+    private Double averageQueue;
+    private Double averageSpeed; // km/h over all detections
+    private Double averageFlowRate; // vehicles per minute, as the frames report it
+    private Map<String, Double> vehicleMix; // share of detections by type
+}
@@ -0,0 +1,33 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * DTO for emergency override request-to-green latency and SLO state
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmergencyLatencyDTO {
+    private Long overrides;
+    private Double meanMillis;
+    private Double p50Millis;
+    private Double p90Millis;
+    private Double p99Millis;
+    private Double maxMillis;
+    private Double sloMillis;
+    private Double sloTarget; // share of overrides that must be within sloMillis
+    private Long sloViolations; // overrides slower than sloMillis
+    private Double windowCompliance; // last evaluated window, null if it had no overrides
+    private Boolean alerting;
+    private Long alerts; // windows that breached the target
+    private LocalDateTime lastAlertAt;
+    private Map<Double, Long> buckets; // upper bound in ms -> overrides
+}
@@ -0,0 +1,29 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for asynchronous export job status
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobDTO {
+    private String jobId;
+    private String format; // pdf, excel, csv
+    private String status; // queued, running, completed, failed
+    private Integer progress; // percent of data rows written
+    private Boolean reused; // served from an earlier identical request
+    private Long sizeBytes;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime expiresAt;
+    private String downloadUrl;
+}
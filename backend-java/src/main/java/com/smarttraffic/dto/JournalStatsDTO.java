@@ -0,0 +1,26 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for event journal throughput and backlog metrics
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalStatsDTO {
+    private Long appended;
+    private Long persisted;
+    private Long dropped; // pending queue full, kept in ring only
+    private Long failed; // given up after traffic.journal.max-attempts
+    private Long retried; // rows queued again after a failed insert
+    private Integer pending;
+    private Integer ringSize;
+    private Integer ringCapacity;
+    private Long batches;
+    private Double avgBatchMillis;
+}
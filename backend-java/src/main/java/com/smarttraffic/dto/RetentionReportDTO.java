@@ -0,0 +1,25 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * DTO reporting what a telemetry retention pass did
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionReportDTO {
+    private LocalDateTime startedAt;
+    private Long durationMs;
+    private Long snapshotsRolledUp;
+    private Long snapshotsPurged;
+    private Long rollupsPurged;
+    private Long eventsPurged;
+    private Integer chunks;
+    private Boolean timeBudgetExhausted;
+}
@@ -0,0 +1,22 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for per-road aggregates over a time range of a run (JPQL constructor expression)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoadAggregateDTO {
+    private String roadName;
+    private Long samples;
+    private Double avgVehicles;
+    private Double avgWaitTime;
+    private Double avgQueueLength;
+    private Double avgEfficiency;
+}
@@ -0,0 +1,19 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for summed vehicle counts per road and hour of day (JPQL constructor expression)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoadHourlyVolumeDTO {
+    private String roadName;
+    private Integer hour;
+    private Long vehicles;
+}
@@ -0,0 +1,27 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for one raw road_performance row, read without loading the entity graph
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoadPerformanceRowDTO {
+    private String id;
+    private String simulationId;
+    private String roadName;
+    private String roadDirection;
+    private Integer vehicles;
+    private Double waitTime;
+    private Integer queueLength;
+    private Double efficiency;
+    private String signalState;
+    private LocalDateTime timestamp;
+}
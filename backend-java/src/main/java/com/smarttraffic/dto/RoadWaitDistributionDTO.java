@@ -0,0 +1,39 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO for the measured per-vehicle waits of one road (microscopic mode)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoadWaitDistributionDTO {
+    private String roadName;
+    private String direction;
+    private Long served; // vehicles that crossed the stop line
+    private Integer queued;
+    private Double queueMeters; // vehicle lengths plus standstill gaps
+    private Double meanWait; // seconds, served vehicles
+    private Double p50Wait;
+    private Double p90Wait;
+    private Double p99Wait;
+    private Double maxWait;
+    private Double throughputPerHour;
+    private Map<String, TypeStats> byType; // car, truck, bus, motorcycle, bicycle
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TypeStats {
+        private Long served;
+        private Double meanWait;
+    }
+}
@@ -0,0 +1,37 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for aggregate road statistics over all snapshots of a simulation run
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunAggregateStatsDTO {
+    private String simulationId;
+    private Long snapshotCount;
+    private Double avgVehicles;
+    private Double avgWaitTime;
+    private Double avgQueueLength;
+    private Integer maxQueueLength;
+    private Double avgEfficiency;
+    private Long emergencyEvents;
+    
+    /**
+     * Used by the JPQL constructor expression in RoadPerformanceRepository
+     */
+    public RunAggregateStatsDTO(Long snapshotCount, Double avgVehicles, Double avgWaitTime,
+                                Double avgQueueLength, Integer maxQueueLength, Double avgEfficiency) {
+        this.snapshotCount = snapshotCount;
+        this.avgVehicles = avgVehicles;
+        this.avgWaitTime = avgWaitTime;
+        this.avgQueueLength = avgQueueLength;
+        this.maxQueueLength = maxQueueLength;
+        this.avgEfficiency = avgEfficiency;
+    }
+}
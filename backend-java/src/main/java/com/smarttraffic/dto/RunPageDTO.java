@@ -0,0 +1,21 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * DTO for one page of simulation run summaries
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunPageDTO {
+    private List<SimulationSummaryDTO> runs;
+    private Integer page;
+    private Integer size;
+    private Boolean hasNext;
+}
@@ -0,0 +1,37 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for a what-if fork: the live run fast-forwarded unchanged (baseline) and with the
+ * requested changes (projected), both from the same state and random seed
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationForkDTO {
+    private String simulationId;
+    private Double horizon; // simulated seconds
+    private Long seed;
+    private Double cycleLength; // requested base cycle length, null if unchanged
+    private Map<String, Double> greenExtensions; // seconds per road
+    private Projection baseline;
+    private Projection projected;
+    private Double computeMillis;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Projection {
+        private TrafficStatsDTO stats; // over the horizon only: processed, mean wait (Little's law), throughput/min
+        private List<RoadDTO> roads; // state at the end of the horizon
+    }
+}
@@ -0,0 +1,45 @@
+package com.smarttraffic.dto;
+
+import com.smarttraffic.model.SimulationRun;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * DTO carrying the scalar columns of a simulation run (no road/event collections)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationSummaryDTO {
+    private String id;
+    private String userId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private String status; // running, paused, completed
+    private Double speed;
+    private Integer cyclesCompleted;
+    private Integer totalProcessed;
+    private Double avgWaitTime;
+    private Double efficiency;
+    private Integer emergencyEvents;
+    
+    public static SimulationSummaryDTO from(SimulationRun run) {
+        return SimulationSummaryDTO.builder()
+            .id(run.getId())
+            .userId(run.getUserId())
+            .startTime(run.getStartTime())
+            .endTime(run.getEndTime())
+            .status(run.getStatus())
+            .speed(run.getSpeed())
+            .cyclesCompleted(run.getCyclesCompleted())
+            .totalProcessed(run.getTotalProcessed())
+            .avgWaitTime(run.getAvgWaitTime())
+            .efficiency(run.getEfficiency())
+            .emergencyEvents(run.getEmergencyEvents())
+            .build();
+    }
+}
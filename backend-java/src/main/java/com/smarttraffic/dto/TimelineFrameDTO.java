@@ -0,0 +1,24 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for one recorded tick of a simulation's in-memory timeline
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineFrameDTO {
+    private Long tick; // sequence number since the simulation started
+    private Double time; // simulated seconds
+    private LocalDateTime timestamp;
+    private Integer totalProcessed;
+    private List<RoadDTO> roads;
+}
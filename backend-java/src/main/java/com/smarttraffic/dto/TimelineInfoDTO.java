@@ -0,0 +1,27 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO describing what a simulation's in-memory timeline currently holds
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineInfoDTO {
+    private Integer frames; // frames held, at most capacity
+    private Integer capacity;
+    private Integer roads;
+    private Long bytes; // preallocated, independent of how many frames are held
+    private Long recorded; // frames recorded since the start, including overwritten ones
+    private Double fromTime; // simulated seconds of the oldest frame held
+    private Double toTime;
+    private LocalDateTime fromTimestamp;
+    private LocalDateTime toTimestamp;
+}
@@ -0,0 +1,29 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO for the result of a signal timing optimization
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimingOptimizationDTO {
+    private String simulationId;
+    private Double cycleLength; // seconds, best plan
+    private Map<String, Double> greens; // green seconds per road (yellow not included)
+    private Double baselineP95Wait; // seconds, current plan; null if the budget ran out before re-scoring
+    private Double optimizedP95Wait;
+    private Double improvement; // percentage
+    private Integer iterations;
+    private Integer evaluations; // simulation runs
+    private String stoppedBy; // budget, no-improvement, converged
+    private Double elapsedMillis;
+    private String recommendationId; // null if the current plan was not beaten
+}
@@ -0,0 +1,24 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a traffic event as held in the event journal
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrafficEventDTO {
+    private String id;
+    private String simulationId;
+    private String eventType; // emergency, emergency_cleared, congestion, signal_change
+    private String roadName;
+    private String vehicleType; // ambulance, fire_truck, police
+    private String description;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,26 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for the outcome of one bulk video analytics upload
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoIngestResultDTO {
+    private Long lines; // non-blank lines read
+    private Long accepted;
+    private Long rejected;
+    private Map<String, Long> rejectedByReason; // malformed, missing_field, unknown_simulation, unknown_road
+    private List<String> errors; // first rejections, "line N: reason"
+    private Integer batches;
+    private Double elapsedMillis;
+}
@@ -0,0 +1,30 @@
+package com.smarttraffic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO for bulk video analytics ingest totals since startup
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoIngestStatsDTO {
+    private Long requests;
+    private Long lines;
+    private Long accepted;
+    private Long rejected;
+    private Map<String, Long> rejectedByReason;
+    private Long batches; // lock acquisitions, one per simulation per batch
+    private Double batchP50Millis; // time holding a simulation's lock for one batch
+    private Double batchP99Millis;
+    private Double batchMaxMillis;
+    private Double requestP50Millis; // whole upload, including reading and parsing
+    private Double requestP99Millis;
+    private Double requestMaxMillis;
+}
@@ -0,0 +1,20 @@
+package com.smarttraffic.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a bulk video analytics upload: the analytics fields plus the simulation they belong to
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoUpdateDTO {
+    private String simulationId;
+    @JsonUnwrapped
+    private VideoAnalyticsDTO analytics;
+}
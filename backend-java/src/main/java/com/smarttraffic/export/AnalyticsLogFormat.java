@@ -0,0 +1,47 @@
+package com.smarttraffic.export;
+
+/**
+ * Layout of the video analytics log (".sta"), version 2: one road's stream of
+ * {@link com.smarttraffic.dto.VideoAnalyticsDTO} frames, for replaying detection load.
+ *
+ * <pre>
+ * file    := header record*
+ * header  := magic "STAL" (4 bytes) | version (1 byte) | roadName (string) | startMillis (int64)
+ * record  := length (varint, &gt; 0) | payload (length bytes)
+ * payload := timestamp | vehicleCount (INT) | queueLength (INT) | averageSpeed (DECIMAL2)
+ *            | flowRate (DECIMAL2) | vehicles (varint count plus one, 0 is null) | vehicle*
+ * vehicle := type | confidence (FIXED4) | x | y | width | height (FIXED4, 0 if no box)
+ *            | speed (DECIMAL2) | timestamp | id (version 2)
+ * </pre>
+ *
+ * Encodings:
+ * <ul>
+ *   <li>timestamp: epoch milliseconds as the zigzag varint delta to the previous record's
+ *       (the header's startMillis for the first); a vehicle's is the delta to its frame's</li>
+ *   <li>INT: zigzag varint of the value plus one; 0 is null</li>
+ *   <li>DECIMAL2 / FIXED4: the value scaled by 100 / 10,000 and rounded, encoded like INT</li>
+ *   <li>type: varint {@link #TYPES} index plus one, 0 is null; {@link #OTHER_TYPE} is followed by the name</li>
+ *   <li>id: varint, 0 is null; a tracker id ({@code road-track-N}, see
+ *       {@link com.smarttraffic.service.VehicleTracker}) is N plus {@link #TRACK_ID}, any other
+ *       id is {@link #OTHER_ID} followed by the id</li>
+ * </ul>
+ * A string is a varint byte length followed by UTF-8 bytes; ints are big-endian.
+ * Version 1 logs have no vehicle ids; readers give their vehicles {@code road-vehicle-timestamp-index}.
+ * Records are length-prefixed, so a reader stops cleanly at a record cut off by a crash.
+ */
+public final class AnalyticsLogFormat {
+    
+    public static final byte[] MAGIC = {'S', 'T', 'A', 'L'};
+    public static final int VERSION = 2;
+    public static final String FILE_EXTENSION = "sta";
+    
+    public static final String[] TYPES = {"car", "truck", "bus", "motorcycle", "bicycle"};
+    public static final int OTHER_TYPE = TYPES.length + 1;
+    
+    public static final int OTHER_ID = 1;
+    public static final int TRACK_ID = 2;
+    public static final String TRACK_INFIX = "-track-";
+    
+    private AnalyticsLogFormat() {
+    }
+}
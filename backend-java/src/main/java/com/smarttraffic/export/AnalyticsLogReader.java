@@ -0,0 +1,174 @@
+package com.smarttraffic.export;
+
+import com.smarttraffic.dto.DetectedVehicleDTO;
+import com.smarttraffic.dto.VideoAnalyticsDTO;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.smarttraffic.export.AnalyticsLogFormat.*;
+import static com.smarttraffic.export.ColumnarFormat.readString;
+import static com.smarttraffic.export.ColumnarFormat.readVarLong;
+import static com.smarttraffic.export.ColumnarFormat.unzigzag;
+
+/**
+ * Reads logs written by {@link AnalyticsLogWriter}, one frame at a time.
+ *
+ * <pre>
+ * try (AnalyticsLogReader reader = new AnalyticsLogReader(new FileInputStream("road-a.sta"))) {
+ *     for (VideoAnalyticsDTO frame; (frame = reader.next()) != null; ) {
+ *         pipeline.accept(frame);
+ *     }
+ * }
+ * </pre>
+ *
+ * Frames carry the recorded road name, timestamps and vehicle ids. A record cut off at the end
+ * of the file (the recorder crashed mid-write) ends the log like a clean end of file.
+ */
+public class AnalyticsLogReader implements Closeable {
+    
+    private final DataInputStream in;
+    private final int version;
+    private final String roadName;
+    private final long startMillis;
+    private final BlockBuffer payload = new BlockBuffer(4 * 1024);
+    private long previousTimestamp;
+    private boolean truncated;
+    
+    public AnalyticsLogReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        
+        byte[] magic = new byte[MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a video analytics log");
+        }
+        this.version = this.in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported analytics log version " + version);
+        }
+        this.roadName = readString(this.in);
+        this.startMillis = this.in.readLong();
+        this.previousTimestamp = startMillis;
+    }
+    
+    public String getRoadName() {
+        return roadName;
+    }
+    
+    public long getStartMillis() {
+        return startMillis;
+    }
+    
+    /**
+     * Whether the log ended in a partial record
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+    
+    /**
+     * Next frame, or null after the last one
+     */
+    public VideoAnalyticsDTO next() throws IOException {
+        if (truncated) return null;
+        in.mark(1);
+        if (in.read() < 0) return null;
+        in.reset();
+        
+        try {
+            int length = (int) readVarLong(in);
+            payload.resetForRead(length);
+            in.readFully(payload.array(), 0, length);
+        } catch (EOFException e) {
+            truncated = true;
+            return null;
+        }
+        
+        long timestamp = previousTimestamp + unzigzag(payload.readVarLong());
+        Integer vehicleCount = toInteger(readInt());
+        Integer queueLength = toInteger(readInt());
+        Double averageSpeed = readScaled(100.0);
+        Double flowRate = readScaled(100.0);
+        
+        List<DetectedVehicleDTO> vehicles = null;
+        long count = payload.readVarLong();
+        if (count > 0) {
+            vehicles = new ArrayList<>((int) (count - 1));
+            for (int i = 0; i < count - 1; i++) {
+                vehicles.add(readVehicle(timestamp, i));
+            }
+        }
+        previousTimestamp = timestamp;
+        
+        return VideoAnalyticsDTO.builder()
+            .roadName(roadName)
+            .vehicleCount(vehicleCount)
+            .queueLength(queueLength)
+            .averageSpeed(averageSpeed)
+            .detectedVehicles(vehicles)
+            .timestamp(timestamp)
+            .flowRate(flowRate)
+            .build();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    private DetectedVehicleDTO readVehicle(long frameTimestamp, int index) throws IOException {
+        String type = readType();
+        Double confidence = readScaled(10_000.0);
+        Double x = readScaled(10_000.0);
+        Double y = readScaled(10_000.0);
+        Double width = readScaled(10_000.0);
+        Double height = readScaled(10_000.0);
+        Double speed = readScaled(100.0);
+        long timestamp = frameTimestamp + unzigzag(payload.readVarLong());
+        String id = version >= 2 ? readId() : roadName + "-vehicle-" + frameTimestamp + "-" + index;
+        
+        DetectedVehicleDTO.BoundingBoxDTO box = x == null && y == null && width == null && height == null
+            ? null
+            : new DetectedVehicleDTO.BoundingBoxDTO(x, y, width, height);
+        return DetectedVehicleDTO.builder()
+            .id(id)
+            .type(type)
+            .confidence(confidence)
+            .bbox(box)
+            .speed(speed)
+            .timestamp(timestamp)
+            .build();
+    }
+    
+    private String readId() throws IOException {
+        long code = payload.readVarLong();
+        if (code == 0) return null;
+        if (code == OTHER_ID) return payload.readString();
+        return roadName + TRACK_INFIX + (code - TRACK_ID);
+    }
+    
+    private String readType() throws IOException {
+        int code = (int) payload.readVarLong();
+        if (code == 0) return null;
+        if (code == OTHER_TYPE) return payload.readString();
+        if (code > TYPES.length) throw new IOException("Unknown vehicle type code " + code);
+        return TYPES[code - 1];
+    }
+    
+    private Double readScaled(double scale) throws IOException {
+        Long value = readInt();
+        return value != null ? value / scale : null;
+    }
+    
+    private Long readInt() throws IOException {
+        long value = payload.readVarLong();
+        return value != 0 ? unzigzag(value - 1) : null;
+    }
+    
+    private static Integer toInteger(Long value) {
+        return value != null ? Math.toIntExact(value) : null;
+    }
+}
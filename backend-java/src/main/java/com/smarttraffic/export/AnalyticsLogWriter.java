@@ -0,0 +1,141 @@
+package com.smarttraffic.export;
+
+import com.smarttraffic.dto.DetectedVehicleDTO;
+import com.smarttraffic.dto.VideoAnalyticsDTO;
+
+import java.io.*;
+
+import static com.smarttraffic.export.AnalyticsLogFormat.*;
+import static com.smarttraffic.export.ColumnarFormat.writeString;
+import static com.smarttraffic.export.ColumnarFormat.writeVarLong;
+import static com.smarttraffic.export.ColumnarFormat.zigzag;
+
+/**
+ * Appends video analytics frames to a log in the format described in {@link AnalyticsLogFormat}.
+ * Each frame is encoded into a reused buffer and written as one length-prefixed record.
+ * Not thread-safe.
+ */
+public class AnalyticsLogWriter implements Closeable {
+    
+    private final DataOutputStream out;
+    private final String trackPrefix;
+    private final BlockBuffer payload = new BlockBuffer(4 * 1024);
+    private long previousTimestamp;
+    private long records;
+    private long bytes;
+    
+    public AnalyticsLogWriter(OutputStream out, String roadName, long startMillis) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.previousTimestamp = startMillis;
+        this.trackPrefix = roadName + TRACK_INFIX;
+        
+        this.out.write(MAGIC);
+        this.out.writeByte(VERSION);
+        writeString(this.out, roadName);
+        this.out.writeLong(startMillis);
+        this.bytes = this.out.size();
+    }
+    
+    public void append(VideoAnalyticsDTO frame) throws IOException {
+        payload.clear();
+        long timestamp = frame.getTimestamp() != null ? frame.getTimestamp() : previousTimestamp;
+        payload.writeVarLong(zigzag(timestamp - previousTimestamp));
+        writeInt(frame.getVehicleCount() != null ? frame.getVehicleCount().longValue() : null);
+        writeInt(frame.getQueueLength() != null ? frame.getQueueLength().longValue() : null);
+        writeScaled(frame.getAverageSpeed(), 100.0);
+        writeScaled(frame.getFlowRate(), 100.0);
+        
+        if (frame.getDetectedVehicles() == null) {
+            payload.writeVarLong(0);
+        } else {
+            payload.writeVarLong(frame.getDetectedVehicles().size() + 1L);
+            for (DetectedVehicleDTO vehicle : frame.getDetectedVehicles()) {
+                writeVehicle(vehicle, timestamp);
+            }
+        }
+        
+        writeVarLong(out, payload.length());
+        out.write(payload.array(), 0, payload.length());
+        previousTimestamp = timestamp;
+        records++;
+        bytes = out.size();
+    }
+    
+    /**
+     * Push buffered records to the file, e.g. so a reader sees them before the log is closed
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    public long getRecords() {
+        return records;
+    }
+    
+    /**
+     * Bytes written so far, header included
+     */
+    public long getBytes() {
+        return bytes;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    private void writeVehicle(DetectedVehicleDTO vehicle, long frameTimestamp) {
+        writeType(vehicle.getType());
+        writeScaled(vehicle.getConfidence(), 10_000.0);
+        DetectedVehicleDTO.BoundingBoxDTO box = vehicle.getBbox();
+        writeScaled(box != null ? box.getX() : null, 10_000.0);
+        writeScaled(box != null ? box.getY() : null, 10_000.0);
+        writeScaled(box != null ? box.getWidth() : null, 10_000.0);
+        writeScaled(box != null ? box.getHeight() : null, 10_000.0);
+        writeScaled(vehicle.getSpeed(), 100.0);
+        long timestamp = vehicle.getTimestamp() != null ? vehicle.getTimestamp() : frameTimestamp;
+        payload.writeVarLong(zigzag(timestamp - frameTimestamp));
+        writeId(vehicle.getId());
+    }
+    
+    private void writeId(String id) {
+        if (id == null) {
+            payload.writeVarLong(0);
+            return;
+        }
+        if (id.startsWith(trackPrefix)) {
+            String number = id.substring(trackPrefix.length());
+            // Only the canonical form, so the reader rebuilds exactly this id
+            if (!number.isEmpty() && number.length() < 19 && number.chars().allMatch(Character::isDigit)
+                && (number.length() == 1 || number.charAt(0) != '0')) {
+                payload.writeVarLong(Long.parseLong(number) + TRACK_ID);
+                return;
+            }
+        }
+        payload.writeVarLong(OTHER_ID);
+        payload.writeString(id);
+    }
+    
+    private void writeType(String type) {
+        if (type == null) {
+            payload.writeVarLong(0);
+            return;
+        }
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                payload.writeVarLong(i + 1);
+                return;
+            }
+        }
+        payload.writeVarLong(OTHER_TYPE);
+        payload.writeString(type);
+    }
+    
+    private void writeScaled(Double value, double scale) {
+        writeInt(value != null ? Math.round(value * scale) : null);
+    }
+    
+    private void writeInt(Long value) {
+        payload.writeVarLong(value != null ? zigzag(value) + 1 : 0);
+    }
+}
@@ -0,0 +1,89 @@
+package com.smarttraffic.export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte array with a cursor for encoding and decoding block payloads
+ * (avoids the per-byte synchronization of the java.io byte array streams)
+ */
+class BlockBuffer {
+    
+    private byte[] bytes;
+    private int position;
+    private int limit;
+    
+    BlockBuffer(int capacity) {
+        bytes = new byte[capacity];
+    }
+    
+    byte[] array() {
+        return bytes;
+    }
+    
+    int length() {
+        return position;
+    }
+    
+    void clear() {
+        position = 0;
+        limit = 0;
+    }
+    
+    /**
+     * Make room for {@code length} bytes to be read from {@link #array()} after it is refilled
+     */
+    void resetForRead(int length) {
+        if (bytes.length < length) {
+            bytes = new byte[length];
+        }
+        position = 0;
+        limit = length;
+    }
+    
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+    }
+    
+    void writeString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(utf8.length);
+        ensureCapacity(utf8.length);
+        System.arraycopy(utf8, 0, bytes, position, utf8.length);
+        position += utf8.length;
+    }
+    
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) throw new EOFException("Block payload truncated");
+            byte b = bytes[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+    
+    String readString() throws IOException {
+        int length = (int) readVarLong();
+        if (position + length > limit) throw new EOFException("Block payload truncated");
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (position + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + extra));
+        }
+    }
+}
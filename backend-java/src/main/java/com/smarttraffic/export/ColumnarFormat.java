@@ -0,0 +1,96 @@
+package com.smarttraffic.export;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the columnar road history format (".stc"), version 1.
+ *
+ * <pre>
+ * file    := header block* end
+ * header  := magic "STCF" (4 bytes) | version (1 byte) | simulationId (string)
+ *            | columnCount (varint) | (name (string) | type (1 byte))*
+ * block   := rowCount (int32, &gt; 0) | rawLength (int32) | compressedLength (int32)
+ *            | deflate(payload) (compressedLength bytes)
+ * end     := rowCount 0 (int32)
+ * payload := one section per column, in header order, each covering rowCount values
+ * </pre>
+ *
+ * Column encodings inside a payload:
+ * <ul>
+ *   <li>TIMESTAMP: epoch milliseconds (UTC); the first value as a zigzag varint,
+ *       then the zigzag varint delta to the previous row</li>
+ *   <li>DICT_STRING: per-block dictionary (varint size, then strings), then one varint
+ *       code per row; code 0 is null and code n is the n-th dictionary entry</li>
+ *   <li>INT: zigzag varint of the value plus one; 0 is null</li>
+ *   <li>DECIMAL2: the value scaled by 100 and rounded, encoded like INT</li>
+ * </ul>
+ * A string is a varint byte length followed by UTF-8 bytes; ints are big-endian.
+ * Blocks are independent, so a reader only ever holds one block in memory.
+ */
+public final class ColumnarFormat {
+    
+    public static final byte[] MAGIC = {'S', 'T', 'C', 'F'};
+    public static final int VERSION = 1;
+    public static final String FILE_EXTENSION = "stc";
+    
+    public static final byte TIMESTAMP = 1;
+    public static final byte DICT_STRING = 2;
+    public static final byte INT = 3;
+    public static final byte DECIMAL2 = 4;
+    
+    /**
+     * Columns of a road history file, in storage order
+     */
+    public static final String[] COLUMN_NAMES = {
+        "timestamp", "road_name", "road_direction", "signal_state",
+        "vehicles", "queue_length", "wait_time", "efficiency"
+    };
+    public static final byte[] COLUMN_TYPES = {
+        TIMESTAMP, DICT_STRING, DICT_STRING, DICT_STRING,
+        INT, INT, DECIMAL2, DECIMAL2
+    };
+    
+    private ColumnarFormat() {
+    }
+    
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+    
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+    
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+    
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,166 @@
+package com.smarttraffic.export;
+
+import java.io.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.smarttraffic.export.ColumnarFormat.*;
+
+/**
+ * Reads files written by {@link ColumnarWriter}, one decompressed block at a time.
+ *
+ * <pre>
+ * try (ColumnarReader reader = new ColumnarReader(new FileInputStream("history.stc"))) {
+ *     for (ColumnarReader.Block block; (block = reader.nextBlock()) != null; ) {
+ *         for (int i = 0; i &lt; block.rows(); i++) {
+ *             sum += block.queueLength()[i];
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * Null ints are returned as {@link #NULL_INT}, null decimals as NaN and null strings as null.
+ */
+public class ColumnarReader implements Closeable {
+    
+    public static final int NULL_INT = Integer.MIN_VALUE;
+    
+    private final DataInputStream in;
+    private final String simulationId;
+    private final Inflater inflater = new Inflater();
+    private final BlockBuffer payload = new BlockBuffer(256 * 1024);
+    private byte[] compressed = new byte[64 * 1024];
+    private boolean finished;
+    
+    public ColumnarReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        
+        byte[] magic = new byte[MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a columnar road history file");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar format version " + version);
+        }
+        this.simulationId = readString(this.in);
+        
+        int columns = (int) readVarLong(this.in);
+        if (columns != COLUMN_NAMES.length) {
+            throw new IOException("Unexpected column count " + columns);
+        }
+        for (int i = 0; i < columns; i++) {
+            String name = readString(this.in);
+            byte type = this.in.readByte();
+            if (!COLUMN_NAMES[i].equals(name) || COLUMN_TYPES[i] != type) {
+                throw new IOException("Unexpected column " + name + " at position " + i);
+            }
+        }
+    }
+    
+    public String getSimulationId() {
+        return simulationId;
+    }
+    
+    /**
+     * Next block, or null after the last one
+     */
+    public Block nextBlock() throws IOException {
+        if (finished) return null;
+        
+        int rows = in.readInt();
+        if (rows == 0) {
+            finished = true;
+            return null;
+        }
+        int rawLength = in.readInt();
+        int compressedLength = in.readInt();
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+        in.readFully(compressed, 0, compressedLength);
+        
+        payload.resetForRead(rawLength);
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            if (inflater.inflate(payload.array(), 0, rawLength) != rawLength) {
+                throw new IOException("Truncated block");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block", e);
+        }
+        
+        BlockBuffer data = payload;
+        long[] timestamps = new long[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += unzigzag(data.readVarLong());
+            timestamps[i] = previous;
+        }
+        String[] roadNames = readDictionaryColumn(data, rows);
+        String[] roadDirections = readDictionaryColumn(data, rows);
+        String[] signalStates = readDictionaryColumn(data, rows);
+        int[] vehicles = readIntColumn(data, rows);
+        int[] queueLengths = readIntColumn(data, rows);
+        double[] waitTimes = readDecimalColumn(data, rows);
+        double[] efficiencies = readDecimalColumn(data, rows);
+        
+        return new Block(rows, timestamps, roadNames, roadDirections, signalStates,
+            vehicles, queueLengths, waitTimes, efficiencies);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+    
+    private static String[] readDictionaryColumn(BlockBuffer data, int rows) throws IOException {
+        String[] dictionary = new String[(int) data.readVarLong()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = data.readString();
+        }
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            int code = (int) data.readVarLong();
+            values[i] = code == 0 ? null : dictionary[code - 1];
+        }
+        return values;
+    }
+    
+    private static int[] readIntColumn(BlockBuffer data, int rows) throws IOException {
+        int[] values = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            long encoded = data.readVarLong();
+            values[i] = encoded == 0 ? NULL_INT : (int) unzigzag(encoded - 1);
+        }
+        return values;
+    }
+    
+    private static double[] readDecimalColumn(BlockBuffer data, int rows) throws IOException {
+        double[] values = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            long encoded = data.readVarLong();
+            values[i] = encoded == 0 ? Double.NaN : unzigzag(encoded - 1) / 100.0;
+        }
+        return values;
+    }
+    
+    /**
+     * One decoded block; arrays are indexed by row
+     */
+    public record Block(int rows, long[] timestampMillis, String[] roadName, String[] roadDirection,
+                        String[] signalState, int[] vehicles, int[] queueLength,
+                        double[] waitTime, double[] efficiency) {
+        
+        public LocalDateTime timestamp(int row) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis[row]), ZoneOffset.UTC);
+        }
+    }
+}
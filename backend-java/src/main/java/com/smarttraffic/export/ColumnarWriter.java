@@ -0,0 +1,149 @@
+package com.smarttraffic.export;
+
+import com.smarttraffic.dto.RoadPerformanceRowDTO;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static com.smarttraffic.export.ColumnarFormat.*;
+
+/**
+ * Writes road history rows in the columnar format described in {@link ColumnarFormat}.
+ * Rows are buffered column by column into primitive arrays and written as a compressed
+ * block every {@code blockRows} rows; call {@link #finish()} to write the last block.
+ * Not thread-safe.
+ */
+public class ColumnarWriter {
+    
+    public static final int DEFAULT_BLOCK_ROWS = 65_536;
+    
+    private final DataOutputStream out;
+    private final int blockRows;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final BlockBuffer payload = new BlockBuffer(256 * 1024);
+    private byte[] compressed = new byte[64 * 1024];
+    
+    private final long[] timestamps;
+    private final String[][] strings;
+    private final long[][] numbers; // INT and DECIMAL2 columns, already scaled, Long.MIN_VALUE for null
+    private int rows;
+    private long totalRows;
+    
+    public ColumnarWriter(OutputStream out, String simulationId) throws IOException {
+        this(out, simulationId, DEFAULT_BLOCK_ROWS);
+    }
+    
+    public ColumnarWriter(OutputStream out, String simulationId, int blockRows) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.blockRows = blockRows;
+        this.timestamps = new long[blockRows];
+        this.strings = new String[3][blockRows];
+        this.numbers = new long[4][blockRows];
+        
+        this.out.write(MAGIC);
+        this.out.writeByte(VERSION);
+        writeString(this.out, simulationId);
+        writeVarLong(this.out, COLUMN_NAMES.length);
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            writeString(this.out, COLUMN_NAMES[i]);
+            this.out.writeByte(COLUMN_TYPES[i]);
+        }
+    }
+    
+    public void append(RoadPerformanceRowDTO row) throws IOException {
+        append(row.getTimestamp(), row.getRoadName(), row.getRoadDirection(), row.getSignalState(),
+            row.getVehicles(), row.getQueueLength(), row.getWaitTime(), row.getEfficiency());
+    }
+    
+    public void append(LocalDateTime timestamp, String roadName, String roadDirection, String signalState,
+                       Integer vehicles, Integer queueLength, Double waitTime, Double efficiency) throws IOException {
+        timestamps[rows] = timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+        strings[0][rows] = roadName;
+        strings[1][rows] = roadDirection;
+        strings[2][rows] = signalState;
+        numbers[0][rows] = vehicles != null ? vehicles : Long.MIN_VALUE;
+        numbers[1][rows] = queueLength != null ? queueLength : Long.MIN_VALUE;
+        numbers[2][rows] = waitTime != null ? Math.round(waitTime * 100.0) : Long.MIN_VALUE;
+        numbers[3][rows] = efficiency != null ? Math.round(efficiency * 100.0) : Long.MIN_VALUE;
+        
+        if (++rows == blockRows) {
+            writeBlock();
+        }
+    }
+    
+    /**
+     * Write the pending block and the end marker; the underlying stream is flushed, not closed
+     *
+     * @return total number of rows written
+     */
+    public long finish() throws IOException {
+        if (rows > 0) {
+            writeBlock();
+        }
+        out.writeInt(0);
+        out.flush();
+        deflater.end();
+        return totalRows;
+    }
+    
+    private void writeBlock() throws IOException {
+        payload.clear();
+        
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarLong(zigzag(timestamps[i] - previous));
+            previous = timestamps[i];
+        }
+        for (String[] column : strings) {
+            writeDictionaryColumn(column);
+        }
+        for (long[] column : numbers) {
+            for (int i = 0; i < rows; i++) {
+                payload.writeVarLong(column[i] == Long.MIN_VALUE ? 0 : zigzag(column[i]) + 1);
+            }
+        }
+        
+        deflater.reset();
+        deflater.setInput(payload.array(), 0, payload.length());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        
+        out.writeInt(rows);
+        out.writeInt(payload.length());
+        out.writeInt(length);
+        out.write(compressed, 0, length);
+        
+        totalRows += rows;
+        rows = 0;
+    }
+    
+    private void writeDictionaryColumn(String[] column) {
+        Map<String, Integer> codes = new HashMap<>();
+        int[] rowCodes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            String value = column[i];
+            rowCodes[i] = value == null ? 0 : codes.computeIfAbsent(value, v -> codes.size() + 1);
+        }
+        
+        String[] dictionary = new String[codes.size()];
+        codes.forEach((value, code) -> dictionary[code - 1] = value);
+        payload.writeVarLong(dictionary.length);
+        for (String value : dictionary) {
+            payload.writeString(value);
+        }
+        for (int code : rowCodes) {
+            payload.writeVarLong(code);
+        }
+    }
+}
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "optimization_recommendations", indexes = {
     @Index(name = "idx_simulation_id", columnList = "simulation_id"),
-    @Index(name = "idx_priority", columnList = "priority")
+    @Index(name = "idx_priority", columnList = "priority"),
+    @Index(name = "idx_recommendation_condition", columnList = "simulation_id, road_name, condition_type, status")
 })
 @Data
 @Builder
@@ -34,6 +35,9 @@ public class OptimizationRecommendation {
     @Column(name = "category", nullable = false, length = 50)
     private String category; // timing, infrastructure, emergency
     
+    @Column(name = "condition_type", length = 30)
+    private String condition; // what the analyzer detected, e.g. queue, starved; null when issued otherwise
+    
     @Column(name = "priority", nullable = false, length = 20)
     private String priority; // low, medium, high, critical
     
@@ -13,6 +13,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "road_performance", indexes = {
     @Index(name = "idx_simulation_id", columnList = "simulation_id"),
+    @Index(name = "idx_road_performance_timestamp_id", columnList = "timestamp, id"),
+    @Index(name = "idx_road_performance_sim_timestamp", columnList = "simulation_id, timestamp"),
     @Index(name = "idx_road_name", columnList = "road_name")
 })
 @Data
@@ -0,0 +1,54 @@
+package com.smarttraffic.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Entity holding hourly road performance aggregates that outlive the raw snapshots
+ */
+@Entity
+@Table(name = "road_performance_rollups", indexes = {
+    @Index(name = "idx_rollups_sim_road_bucket", columnList = "simulation_id, road_name, bucket_start", unique = true),
+    @Index(name = "idx_rollups_bucket_start", columnList = "bucket_start")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoadPerformanceRollup {
+    
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+    
+    @Column(name = "simulation_id", nullable = false, length = 36)
+    private String simulationId;
+    
+    @Column(name = "road_name", nullable = false, length = 50)
+    private String roadName;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart; // start of the hour
+    
+    @Column(name = "samples", nullable = false)
+    private Long samples;
+    
+    @Column(name = "avg_vehicles")
+    private Double avgVehicles;
+    
+    @Column(name = "avg_wait_time")
+    private Double avgWaitTime;
+    
+    @Column(name = "avg_queue_length")
+    private Double avgQueueLength;
+    
+    @Column(name = "max_queue_length")
+    private Integer maxQueueLength;
+    
+    @Column(name = "avg_efficiency")
+    private Double avgEfficiency;
+}
@@ -13,7 +13,12 @@ import java.util.List;
  * Entity representing a traffic simulation run session
  */
 @Entity
-@Table(name = "simulation_runs")
+@Table(name = "simulation_runs", indexes = {
+    @Index(name = "idx_simulation_runs_user_start", columnList = "user_id, start_time"),
+    @Index(name = "idx_simulation_runs_status_start", columnList = "status, start_time"),
+    @Index(name = "idx_simulation_runs_start_time", columnList = "start_time"),
+    @Index(name = "idx_simulation_runs_efficiency", columnList = "efficiency")
+})
 @Data
 @Builder
 @NoArgsConstructor
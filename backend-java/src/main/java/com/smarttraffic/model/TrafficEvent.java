@@ -13,6 +13,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "traffic_events", indexes = {
     @Index(name = "idx_simulation_id", columnList = "simulation_id"),
+    @Index(name = "idx_traffic_events_timestamp_id", columnList = "timestamp, id"),
+    @Index(name = "idx_traffic_events_sim_type_timestamp", columnList = "simulation_id, event_type, timestamp"),
     @Index(name = "idx_event_type", columnList = "event_type")
 })
 @Data
@@ -1,12 +1,15 @@
 package com.smarttraffic.repository;
 
 import com.smarttraffic.model.OptimizationRecommendation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OptimizationRecommendationRepository extends JpaRepository<OptimizationRecommendation, String> {
@@ -17,9 +20,22 @@ public interface OptimizationRecommendationRepository extends JpaRepository<Opti
     
     List<OptimizationRecommendation> findByStatus(String status);
     
+    Optional<OptimizationRecommendation> findFirstBySimulationIdAndRoadNameAndConditionAndStatus(
+        String simulationId, String roadName, String condition, String status);
+    
     @Query("SELECT or FROM OptimizationRecommendation or WHERE or.simulationId = :simulationId AND or.status = 'pending' ORDER BY CASE or.priority WHEN 'critical' THEN 1 WHEN 'high' THEN 2 WHEN 'medium' THEN 3 ELSE 4 END")
     List<OptimizationRecommendation> findPendingRecommendationsByPriority(@Param("simulationId") String simulationId);
     
+    @Query("SELECT or FROM OptimizationRecommendation or WHERE or.simulationId = :simulationId " +
+           "AND or.createdAt >= :start AND or.createdAt < :end " +
+           "ORDER BY CASE or.priority WHEN 'critical' THEN 1 WHEN 'high' THEN 2 WHEN 'medium' THEN 3 ELSE 4 END, or.createdAt DESC")
+    List<OptimizationRecommendation> findForReport(
+        @Param("simulationId") String simulationId,
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end,
+        Pageable pageable
+    );
+    
     @Query("SELECT or FROM OptimizationRecommendation or WHERE or.roadName = :roadName AND or.status = :status")
     List<OptimizationRecommendation> findByRoadNameAndStatus(
         @Param("roadName") String roadName,
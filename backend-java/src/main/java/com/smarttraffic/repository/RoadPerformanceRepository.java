@@ -1,14 +1,25 @@
 package com.smarttraffic.repository;
 
+import com.smarttraffic.dto.RoadAggregateDTO;
+import com.smarttraffic.dto.RoadHourlyVolumeDTO;
+import com.smarttraffic.dto.RoadPerformanceRowDTO;
+import com.smarttraffic.dto.RunAggregateStatsDTO;
 import com.smarttraffic.model.RoadPerformance;
 import com.smarttraffic.model.SimulationRun;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface RoadPerformanceRepository extends JpaRepository<RoadPerformance, String> {
@@ -29,4 +40,68 @@ public interface RoadPerformanceRepository extends JpaRepository<RoadPerformance
     
     @Query("SELECT AVG(rp.efficiency) FROM RoadPerformance rp WHERE rp.simulationRun.id = :simulationId")
     Double calculateAverageEfficiency(@Param("simulationId") String simulationId);
+    
+    @Query("SELECT new com.smarttraffic.dto.RunAggregateStatsDTO(COUNT(rp), AVG(rp.vehicles), AVG(rp.waitTime), " +
+           "AVG(rp.queueLength), MAX(rp.queueLength), AVG(rp.efficiency)) " +
+           "FROM RoadPerformance rp WHERE rp.simulationRun.id = :simulationId")
+    RunAggregateStatsDTO calculateRunAggregates(@Param("simulationId") String simulationId);
+    
+    /**
+     * Next chunk of rows older than the cutoff, strictly after the (timestamp, id) keyset cursor
+     */
+    @Query("SELECT new com.smarttraffic.dto.RoadPerformanceRowDTO(rp.id, rp.simulationRun.id, rp.roadName, rp.roadDirection, " +
+           "rp.vehicles, rp.waitTime, rp.queueLength, rp.efficiency, rp.signalState, rp.timestamp) " +
+           "FROM RoadPerformance rp WHERE rp.timestamp < :cutoff " +
+           "AND (rp.timestamp > :afterTimestamp OR (rp.timestamp = :afterTimestamp AND rp.id > :afterId)) " +
+           "ORDER BY rp.timestamp, rp.id")
+    List<RoadPerformanceRowDTO> findExpiredChunk(
+        @Param("cutoff") LocalDateTime cutoff,
+        @Param("afterTimestamp") LocalDateTime afterTimestamp,
+        @Param("afterId") String afterId,
+        Pageable pageable
+    );
+    
+    @Modifying
+    @Query("DELETE FROM RoadPerformance rp WHERE rp.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+    
+    /**
+     * Cursor over all rows of a run in time order; must be consumed inside a transaction
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.smarttraffic.dto.RoadPerformanceRowDTO(rp.id, rp.simulationRun.id, rp.roadName, rp.roadDirection, " +
+           "rp.vehicles, rp.waitTime, rp.queueLength, rp.efficiency, rp.signalState, rp.timestamp) " +
+           "FROM RoadPerformance rp WHERE rp.simulationRun.id = :simulationId ORDER BY rp.timestamp, rp.id")
+    Stream<RoadPerformanceRowDTO> streamRowsBySimulationId(@Param("simulationId") String simulationId);
+    
+    @Query("SELECT new com.smarttraffic.dto.RunAggregateStatsDTO(COUNT(rp), AVG(rp.vehicles), AVG(rp.waitTime), " +
+           "AVG(rp.queueLength), MAX(rp.queueLength), AVG(rp.efficiency)) " +
+           "FROM RoadPerformance rp WHERE rp.simulationRun.id = :simulationId " +
+           "AND rp.timestamp >= :start AND rp.timestamp < :end")
+    RunAggregateStatsDTO calculateRangeAggregates(
+        @Param("simulationId") String simulationId,
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end
+    );
+    
+    @Query("SELECT new com.smarttraffic.dto.RoadAggregateDTO(rp.roadName, COUNT(rp), AVG(rp.vehicles), AVG(rp.waitTime), " +
+           "AVG(rp.queueLength), AVG(rp.efficiency)) " +
+           "FROM RoadPerformance rp WHERE rp.simulationRun.id = :simulationId " +
+           "AND rp.timestamp >= :start AND rp.timestamp < :end " +
+           "GROUP BY rp.roadName ORDER BY rp.roadName")
+    List<RoadAggregateDTO> aggregateByRoad(
+        @Param("simulationId") String simulationId,
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end
+    );
+    
+    @Query("SELECT new com.smarttraffic.dto.RoadHourlyVolumeDTO(rp.roadName, EXTRACT(HOUR FROM rp.timestamp), SUM(rp.vehicles)) " +
+           "FROM RoadPerformance rp WHERE rp.simulationRun.id = :simulationId " +
+           "AND rp.timestamp >= :start AND rp.timestamp < :end " +
+           "GROUP BY rp.roadName, EXTRACT(HOUR FROM rp.timestamp)")
+    List<RoadHourlyVolumeDTO> sumVehiclesByRoadAndHour(
+        @Param("simulationId") String simulationId,
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end
+    );
 }
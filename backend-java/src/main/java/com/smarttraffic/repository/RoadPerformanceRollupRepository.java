@@ -0,0 +1,30 @@
+package com.smarttraffic.repository;
+
+import com.smarttraffic.model.RoadPerformanceRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RoadPerformanceRollupRepository extends JpaRepository<RoadPerformanceRollup, String> {
+    
+    List<RoadPerformanceRollup> findBySimulationIdOrderByBucketStart(String simulationId);
+    
+    Optional<RoadPerformanceRollup> findBySimulationIdAndRoadNameAndBucketStart(
+        String simulationId, String roadName, LocalDateTime bucketStart);
+    
+    @Query("SELECT r.id FROM RoadPerformanceRollup r WHERE r.bucketStart < :cutoff ORDER BY r.bucketStart, r.id")
+    List<String> findExpiredIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM RoadPerformanceRollup r WHERE r.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+}
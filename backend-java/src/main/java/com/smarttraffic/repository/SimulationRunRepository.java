@@ -1,13 +1,18 @@
 package com.smarttraffic.repository;
 
+import com.smarttraffic.dto.SimulationSummaryDTO;
 import com.smarttraffic.model.SimulationRun;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SimulationRunRepository extends JpaRepository<SimulationRun, String> {
@@ -30,4 +35,49 @@ public interface SimulationRunRepository extends JpaRepository<SimulationRun, St
     
     @Query("SELECT sr FROM SimulationRun sr WHERE sr.efficiency >= :minEfficiency ORDER BY sr.efficiency DESC")
     List<SimulationRun> findTopPerformingSimulations(@Param("minEfficiency") Double minEfficiency);
+    
+    @Query("SELECT new com.smarttraffic.dto.SimulationSummaryDTO(sr.id, sr.userId, sr.startTime, sr.endTime, sr.status, sr.speed, " +
+           "sr.cyclesCompleted, sr.totalProcessed, sr.avgWaitTime, sr.efficiency, sr.emergencyEvents) " +
+           "FROM SimulationRun sr WHERE sr.id = :id")
+    Optional<SimulationSummaryDTO> findSummaryById(@Param("id") String id);
+    
+    // Summary projections for listings: only scalar columns are selected and the
+    // Pageable's sort/limit is applied in SQL. Slice skips the extra COUNT query.
+    
+    @Query("SELECT new com.smarttraffic.dto.SimulationSummaryDTO(sr.id, sr.userId, sr.startTime, sr.endTime, sr.status, sr.speed, " +
+           "sr.cyclesCompleted, sr.totalProcessed, sr.avgWaitTime, sr.efficiency, sr.emergencyEvents) " +
+           "FROM SimulationRun sr WHERE sr.userId = :userId")
+    Slice<SimulationSummaryDTO> findSummariesByUserId(@Param("userId") String userId, Pageable pageable);
+    
+    @Query("SELECT new com.smarttraffic.dto.SimulationSummaryDTO(sr.id, sr.userId, sr.startTime, sr.endTime, sr.status, sr.speed, " +
+           "sr.cyclesCompleted, sr.totalProcessed, sr.avgWaitTime, sr.efficiency, sr.emergencyEvents) " +
+           "FROM SimulationRun sr WHERE sr.userId = :userId AND sr.status = :status")
+    Slice<SimulationSummaryDTO> findSummariesByUserIdAndStatus(
+        @Param("userId") String userId,
+        @Param("status") String status,
+        Pageable pageable
+    );
+    
+    @Query("SELECT new com.smarttraffic.dto.SimulationSummaryDTO(sr.id, sr.userId, sr.startTime, sr.endTime, sr.status, sr.speed, " +
+           "sr.cyclesCompleted, sr.totalProcessed, sr.avgWaitTime, sr.efficiency, sr.emergencyEvents) " +
+           "FROM SimulationRun sr WHERE sr.status = :status")
+    Slice<SimulationSummaryDTO> findSummariesByStatus(@Param("status") String status, Pageable pageable);
+    
+    @Query("SELECT new com.smarttraffic.dto.SimulationSummaryDTO(sr.id, sr.userId, sr.startTime, sr.endTime, sr.status, sr.speed, " +
+           "sr.cyclesCompleted, sr.totalProcessed, sr.avgWaitTime, sr.efficiency, sr.emergencyEvents) " +
+           "FROM SimulationRun sr WHERE sr.startTime BETWEEN :start AND :end")
+    Slice<SimulationSummaryDTO> findSummariesByDateRange(
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end,
+        Pageable pageable
+    );
+    
+    @Query("SELECT new com.smarttraffic.dto.SimulationSummaryDTO(sr.id, sr.userId, sr.startTime, sr.endTime, sr.status, sr.speed, " +
+           "sr.cyclesCompleted, sr.totalProcessed, sr.avgWaitTime, sr.efficiency, sr.emergencyEvents) " +
+           "FROM SimulationRun sr WHERE sr.efficiency >= :minEfficiency ORDER BY sr.efficiency DESC")
+    List<SimulationSummaryDTO> findTopPerformingSummaries(@Param("minEfficiency") Double minEfficiency, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE SimulationRun sr SET sr.emergencyEvents = sr.emergencyEvents + :count, sr.updatedAt = CURRENT_TIMESTAMP WHERE sr.id = :id")
+    int incrementEmergencyEvents(@Param("id") String id, @Param("count") int count);
 }
@@ -1,13 +1,17 @@
 package com.smarttraffic.repository;
 
+import com.smarttraffic.dto.TrafficEventDTO;
 import com.smarttraffic.model.TrafficEvent;
 import com.smarttraffic.model.SimulationRun;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -31,4 +35,53 @@ public interface TrafficEventRepository extends JpaRepository<TrafficEvent, Stri
     
     @Query("SELECT COUNT(te) FROM TrafficEvent te WHERE te.simulationRun.id = :simulationId AND te.eventType = 'emergency'")
     Long countEmergencyEvents(@Param("simulationId") String simulationId);
+    
+    @Query("SELECT COUNT(te) FROM TrafficEvent te WHERE te.simulationRun.id = :simulationId " +
+           "AND te.eventType = :eventType AND te.timestamp >= :start AND te.timestamp < :end")
+    long countBySimulationTypeAndTimeRange(
+        @Param("simulationId") String simulationId,
+        @Param("eventType") String eventType,
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end
+    );
+    
+    /**
+     * Next chunk of events older than the cutoff, strictly after the (timestamp, id) keyset cursor
+     */
+    @Query("SELECT te FROM TrafficEvent te WHERE te.timestamp < :cutoff " +
+           "AND (te.timestamp > :afterTimestamp OR (te.timestamp = :afterTimestamp AND te.id > :afterId)) " +
+           "ORDER BY te.timestamp, te.id")
+    List<TrafficEvent> findExpiredChunk(
+        @Param("cutoff") LocalDateTime cutoff,
+        @Param("afterTimestamp") LocalDateTime afterTimestamp,
+        @Param("afterId") String afterId,
+        Pageable pageable
+    );
+    
+    @Modifying
+    @Query("DELETE FROM TrafficEvent te WHERE te.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+    
+    @Query("SELECT new com.smarttraffic.dto.TrafficEventDTO(te.id, te.simulationRun.id, te.eventType, te.roadName, " +
+           "te.vehicleType, te.description, te.timestamp) FROM TrafficEvent te " +
+           "WHERE te.simulationRun.id = :simulationId AND te.timestamp >= :start AND te.timestamp < :end " +
+           "ORDER BY te.timestamp DESC")
+    List<TrafficEventDTO> findEventsBySimulationAndTimeRange(
+        @Param("simulationId") String simulationId,
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end,
+        Pageable pageable
+    );
+    
+    @Query("SELECT new com.smarttraffic.dto.TrafficEventDTO(te.id, te.simulationRun.id, te.eventType, te.roadName, " +
+           "te.vehicleType, te.description, te.timestamp) FROM TrafficEvent te " +
+           "WHERE te.simulationRun.id = :simulationId AND te.eventType = :eventType " +
+           "AND te.timestamp >= :start AND te.timestamp < :end ORDER BY te.timestamp DESC")
+    List<TrafficEventDTO> findEventsBySimulationTypeAndTimeRange(
+        @Param("simulationId") String simulationId,
+        @Param("eventType") String eventType,
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end,
+        Pageable pageable
+    );
 }
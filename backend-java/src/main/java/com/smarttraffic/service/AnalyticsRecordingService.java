@@ -0,0 +1,240 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.AnalyticsRecordingDTO;
+import com.smarttraffic.dto.VideoAnalyticsDTO;
+import com.smarttraffic.export.AnalyticsLogFormat;
+import com.smarttraffic.export.AnalyticsLogReader;
+import com.smarttraffic.export.AnalyticsLogWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Records video analytics streams per road into binary logs ({@link AnalyticsLogFormat})
+ * under {@code traffic.detection.recording-directory}, so detection load can be replayed.
+ *
+ * Frames are appended on the detection thread; a recording stops by itself when it reaches
+ * {@code traffic.detection.max-recording-bytes} or on a write error.
+ */
+@Service
+@Slf4j
+public class AnalyticsRecordingService {
+    
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>(); // active, by road
+    
+    public AnalyticsRecordingService(
+        @Value("${traffic.detection.recording-directory:./recordings}") String directory,
+        @Value("${traffic.detection.max-recording-bytes:268435456}") long maxBytes
+    ) throws IOException {
+        this.directory = Files.createDirectories(Paths.get(directory)).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Start recording a road's analytics; returns the running recording if there is one
+     */
+    public AnalyticsRecordingDTO start(String roadName) throws IOException {
+        Recording existing = recordings.get(roadName);
+        if (existing != null) return existing.toDTO();
+        
+        long startMillis = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis), ZoneId.systemDefault());
+        String prefix = roadName.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + FILE_TIME.format(now);
+        
+        // Never reuse a file: concurrent starts in the same millisecond each get their own
+        String name = prefix + "." + AnalyticsLogFormat.FILE_EXTENSION;
+        Path file = directory.resolve(name);
+        OutputStream out = null;
+        for (int attempt = 2; out == null; attempt++) {
+            try {
+                out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                name = prefix + "-" + attempt + "." + AnalyticsLogFormat.FILE_EXTENSION;
+                file = directory.resolve(name);
+            }
+        }
+        AnalyticsLogWriter writer = new AnalyticsLogWriter(out, roadName, startMillis);
+        
+        Recording recording = new Recording(name, roadName, now, writer);
+        if (recordings.putIfAbsent(roadName, recording) != null) {
+            // Lost a race with another start for the same road; the file is this call's own
+            writer.close();
+            Files.deleteIfExists(file);
+            return recordings.get(roadName).toDTO();
+        }
+        log.info("Started recording analytics of {} to {}", roadName, file);
+        return recording.toDTO();
+    }
+    
+    /**
+     * Stop recording a road; empty if it was not being recorded
+     */
+    public Optional<AnalyticsRecordingDTO> stop(String roadName) {
+        Recording recording = recordings.remove(roadName);
+        if (recording == null) return Optional.empty();
+        
+        recording.close();
+        log.info("Stopped recording analytics of {}: {} frames, {} bytes", roadName, recording.frames(),
+            recording.bytes());
+        return Optional.of(recording.toDTO());
+    }
+    
+    /**
+     * Append a frame if its road is being recorded
+     */
+    public void record(VideoAnalyticsDTO frame) {
+        Recording recording = recordings.get(frame.getRoadName());
+        if (recording == null) return;
+        
+        try {
+            if (!recording.append(frame, maxBytes)) {
+                log.warn("Recording {} reached {} bytes, stopping", recording.name, maxBytes);
+                stop(frame.getRoadName());
+            }
+        } catch (IOException e) {
+            log.error("Could not record analytics of {}: {}", frame.getRoadName(), e.getMessage());
+            stop(frame.getRoadName());
+        }
+    }
+    
+    /**
+     * Recordings in the directory, newest first
+     */
+    public List<AnalyticsRecordingDTO> list() throws IOException {
+        List<AnalyticsRecordingDTO> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.toString().endsWith("." + AnalyticsLogFormat.FILE_EXTENSION)).toList()) {
+                describe(file).ifPresent(result::add);
+            }
+        }
+        result.sort(Comparator.comparing(AnalyticsRecordingDTO::getStartedAt).reversed());
+        return result;
+    }
+    
+    /**
+     * Open a recording for reading
+     *
+     * @throws IllegalArgumentException if there is no recording with that name
+     */
+    public AnalyticsLogReader open(String name) throws IOException {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Recording name is required");
+        }
+        Path file = directory.resolve(name).normalize();
+        if (!directory.equals(file.getParent()) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Unknown recording " + name);
+        }
+        InputStream in = Files.newInputStream(file);
+        try {
+            return new AnalyticsLogReader(in);
+        } catch (IOException e) {
+            in.close();
+            throw new IllegalArgumentException("Not a readable recording: " + name);
+        }
+    }
+    
+    @PreDestroy
+    public void closeAll() {
+        new ArrayList<>(recordings.keySet()).forEach(this::stop);
+    }
+    
+    private Optional<AnalyticsRecordingDTO> describe(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        Recording active = recordings.values().stream()
+            .filter(recording -> recording.name.equals(name))
+            .findFirst()
+            .orElse(null);
+        if (active != null) return Optional.of(active.toDTO());
+        
+        try (AnalyticsLogReader reader = new AnalyticsLogReader(Files.newInputStream(file))) {
+            return Optional.of(AnalyticsRecordingDTO.builder()
+                .name(name)
+                .roadName(reader.getRoadName())
+                .startedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(reader.getStartMillis()), ZoneId.systemDefault()))
+                .bytes(Files.size(file))
+                .active(false)
+                .build());
+        } catch (IOException e) {
+            log.warn("Skipping unreadable recording {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * An open log; appends and close are serialized on the instance
+     */
+    private static final class Recording {
+        private final String name;
+        private final String roadName;
+        private final LocalDateTime startedAt;
+        private final AnalyticsLogWriter writer;
+        private boolean closed;
+        
+        Recording(String name, String roadName, LocalDateTime startedAt, AnalyticsLogWriter writer) {
+            this.name = name;
+            this.roadName = roadName;
+            this.startedAt = startedAt;
+            this.writer = writer;
+        }
+        
+        /**
+         * @return false if the log is full (the frame is not written)
+         */
+        synchronized boolean append(VideoAnalyticsDTO frame, long maxBytes) throws IOException {
+            if (closed) return true;
+            if (writer.getBytes() >= maxBytes) return false;
+            writer.append(frame);
+            return true;
+        }
+        
+        synchronized void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Could not close recording {}: {}", name, e.getMessage());
+            }
+        }
+        
+        synchronized long frames() {
+            return writer.getRecords();
+        }
+        
+        synchronized long bytes() {
+            return writer.getBytes();
+        }
+        
+        synchronized AnalyticsRecordingDTO toDTO() {
+            return AnalyticsRecordingDTO.builder()
+                .name(name)
+                .roadName(roadName)
+                .startedAt(startedAt)
+                .frames(writer.getRecords())
+                .bytes(writer.getBytes())
+                .active(!closed)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.CacheStatsDTO;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Small in-process LRU cache with a size bound and a time-to-live per entry.
+ * Loads run outside the lock, so two concurrent misses may both hit the loader;
+ * the last one wins, which is fine for immutable values.
+ */
+public class BoundedTtlCache<K, V> {
+    
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    
+    private final LinkedHashMap<K, Entry<V>> entries;
+    
+    public BoundedTtlCache(String name, int maxSize, long ttlSeconds) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedTtlCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Return the cached value, or load it; the loaded value is only cached when
+     * {@code cacheable} accepts it (e.g. only completed runs)
+     */
+    public Optional<V> get(K key, Function<K, Optional<V>> loader, Predicate<V> cacheable) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return Optional.of(entry.value);
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+        
+        misses.increment();
+        Optional<V> loaded = loader.apply(key);
+        loaded.filter(cacheable).ifPresent(value -> {
+            synchronized (entries) {
+                entries.put(key, new Entry<>(value, System.nanoTime()));
+            }
+        });
+        return loaded;
+    }
+    
+    public void invalidate(K key) {
+        synchronized (entries) {
+            if (entries.remove(key) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+    
+    /**
+     * Drop expired entries so they do not hold memory until their next lookup
+     */
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Iterator<Entry<V>> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().loadedAt >= ttlNanos) {
+                    it.remove();
+                    expirations.increment();
+                }
+            }
+        }
+    }
+    
+    public CacheStatsDTO stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        
+        return CacheStatsDTO.builder()
+            .name(name)
+            .size(size)
+            .maxSize(maxSize)
+            .hits(hitCount)
+            .misses(missCount)
+            .evictions(evictions.sum())
+            .expirations(expirations.sum())
+            .invalidations(invalidations.sum())
+            .hitRatio(lookups > 0 ? Math.round(hitCount * 10000.0 / lookups) / 100.0 : 0.0)
+            .build();
+    }
+    
+    private record Entry<V>(V value, long loadedAt) {
+    }
+}
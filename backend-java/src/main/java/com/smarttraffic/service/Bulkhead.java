@@ -0,0 +1,158 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.BulkheadStatsDTO;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Isolates one class of work on its own fixed thread pool.
+ *
+ * At most {@code threads + queueCapacity} calls are admitted at a time; anything
+ * beyond that is rejected immediately with {@link BulkheadFullException} instead of
+ * queueing without bound, so one overloaded workload cannot starve the others.
+ * Because each workload only has {@code threads} threads, that is also the most
+ * JDBC connections it can hold at once.
+ */
+public class Bulkhead {
+    
+    private final String name;
+    private final int threads;
+    private final int queueCapacity;
+    private final Semaphore permits;
+    private final ThreadPoolExecutor executor;
+    
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0L);
+    
+    public Bulkhead(String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.permits = new Semaphore(threads + queueCapacity);
+        
+        // Admission is bounded by the semaphore, so the executor queue itself never fills up
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+    
+    /**
+     * Run {@code call} on this bulkhead's pool, or throw {@link BulkheadFullException} if it is saturated
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        admit();
+        long admittedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        
+        try {
+            executor.execute(() -> {
+                recordWait(admittedAt);
+                try {
+                    result.complete(call.get());
+                    completed.increment();
+                } catch (Throwable e) {
+                    failed.increment();
+                    result.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Only when the pool is shut down; the task never runs, so its permit is returned here
+            permits.release();
+            rejected.increment();
+            throw e;
+        }
+        return result;
+    }
+    
+    /**
+     * Run {@code task} on this bulkhead's pool, or throw {@link BulkheadFullException} if it is saturated
+     */
+    public void execute(Runnable task) {
+        submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Admit a streaming response body now; the permit is held until the body has been written.
+     * The body itself runs on the MVC async executor (see {@link #executor()}).
+     */
+    public StreamingResponseBody admit(StreamingResponseBody body) {
+        admit();
+        long admittedAt = System.nanoTime();
+        
+        return out -> {
+            recordWait(admittedAt);
+            try {
+                body.writeTo(out);
+                completed.increment();
+            } catch (Throwable e) {
+                failed.increment();
+                throw e;
+            } finally {
+                permits.release();
+            }
+        };
+    }
+    
+    public Executor executor() {
+        return executor;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public BulkheadStatsDTO stats() {
+        int active = executor.getActiveCount();
+        int queued = executor.getQueue().size();
+        long done = completed.sum() + failed.sum();
+        
+        return BulkheadStatsDTO.builder()
+            .name(name)
+            .threads(threads)
+            .queueCapacity(queueCapacity)
+            .active(active)
+            .queued(queued)
+            .saturation(Math.round((threads + queueCapacity - permits.availablePermits()) * 1000.0
+                / (threads + queueCapacity)) / 1000.0)
+            .completed(completed.sum())
+            .failed(failed.sum())
+            .rejected(rejected.sum())
+            .avgQueueWaitMillis(done > 0 ? Math.round(waitNanos.sum() / 1_000.0 / done) / 1_000.0 : 0.0)
+            .maxQueueWaitMillis(Math.round(maxWaitNanos.get() / 1_000.0) / 1_000.0)
+            .build();
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private void admit() {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new BulkheadFullException(name);
+        }
+    }
+    
+    private void recordWait(long admittedAt) {
+        long waited = System.nanoTime() - admittedAt;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+    }
+}
@@ -0,0 +1,17 @@
+package com.smarttraffic.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a bulkhead has no free thread or queue slot; mapped to 429
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class BulkheadFullException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public BulkheadFullException(String bulkhead) {
+        super("Bulkhead '" + bulkhead + "' is full");
+    }
+}
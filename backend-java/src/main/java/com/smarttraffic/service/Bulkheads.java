@@ -0,0 +1,95 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.BulkheadStatsDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bulkheads per workload class, so exports or slow history queries cannot
+ * take threads (and JDBC connections) away from ticks
+ */
+@Component
+public class Bulkheads {
+    
+    private final Bulkhead simulation;
+    private final Bulkhead detection;
+    private final Bulkhead export;
+    private final Bulkhead history;
+    private final Bulkhead forks;
+    private final List<Bulkhead> all = new CopyOnWriteArrayList<>();
+    
+    public Bulkheads(
+        @Value("${traffic.bulkheads.simulation.threads:4}") int simulationThreads,
+        @Value("${traffic.bulkheads.simulation.queue:100}") int simulationQueue,
+        @Value("${traffic.bulkheads.detection.threads:2}") int detectionThreads,
+        @Value("${traffic.bulkheads.detection.queue:50}") int detectionQueue,
+        @Value("${traffic.bulkheads.export.threads:4}") int exportThreads,
+        @Value("${traffic.bulkheads.export.queue:8}") int exportQueue,
+        @Value("${traffic.bulkheads.history.threads:4}") int historyThreads,
+        @Value("${traffic.bulkheads.history.queue:50}") int historyQueue,
+        @Value("${traffic.bulkheads.forks.threads:2}") int forkThreads,
+        @Value("${traffic.bulkheads.forks.queue:50}") int forkQueue
+    ) {
+        this.simulation = register(new Bulkhead("simulation", simulationThreads, simulationQueue));
+        this.detection = register(new Bulkhead("detection", detectionThreads, detectionQueue));
+        this.export = register(new Bulkhead("export", exportThreads, exportQueue));
+        this.history = register(new Bulkhead("history", historyThreads, historyQueue));
+        this.forks = register(new Bulkhead("forks", forkThreads, forkQueue));
+    }
+    
+    /**
+     * Simulation lifecycle and tick commands
+     */
+    public Bulkhead simulation() {
+        return simulation;
+    }
+    
+    /**
+     * Video analytics updates
+     */
+    public Bulkhead detection() {
+        return detection;
+    }
+    
+    /**
+     * Streamed report downloads
+     */
+    public Bulkhead export() {
+        return export;
+    }
+    
+    /**
+     * Run history, aggregates and event queries
+     */
+    public Bulkhead history() {
+        return history;
+    }
+    
+    /**
+     * What-if fast-forwards of forked simulations and timing searches (CPU-bound)
+     */
+    public Bulkhead forks() {
+        return forks;
+    }
+    
+    /**
+     * Track a bulkhead owned by another service (e.g. background export jobs) in the metrics
+     */
+    public Bulkhead register(Bulkhead bulkhead) {
+        all.add(bulkhead);
+        return bulkhead;
+    }
+    
+    public List<BulkheadStatsDTO> stats() {
+        return all.stream().map(Bulkhead::stats).toList();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        all.forEach(Bulkhead::shutdown);
+    }
+}
@@ -0,0 +1,234 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.DetectedVehicleDTO;
+import com.smarttraffic.dto.DetectionFeedDTO;
+import com.smarttraffic.dto.DetectionSamplingStatsDTO;
+import com.smarttraffic.dto.VideoAnalyticsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive frame rate of live detection feeds, within {@code min-fps} and {@code max-fps}.
+ *
+ * A feed's target rate grows with its recent traffic: how many vehicles are in view
+ * relative to {@code saturation-vehicles}, and how much that count changes from frame to
+ * frame relative to {@code variability-vehicles}. It never drops below the rate at which the
+ * fastest vehicle recently seen is still caught {@code min-sightings} times in view, so
+ * tracking and line counting keep working on a quiet but fast road.
+ *
+ * Feeds share a CPU budget ({@code cpu-budget}, in cores). Each feed's demand is its target
+ * rate times its measured cost per frame; while the total demand exceeds the budget, every
+ * feed gets the same fraction of its target, but never less than {@code min-fps}. Demand is
+ * kept as a running total, so a frame costs O(1) whatever the number of feeds.
+ *
+ * With sampling disabled every feed runs at the fixed {@code traffic.detection.fps}, which
+ * is also the baseline the saved CPU is reported against.
+ */
+@Service
+public class DetectionSamplingService {
+    
+    private static final double SMOOTHING = 0.2; // weight of the newest frame in the moving averages
+    private static final double SPEED_DECAY = 0.9; // per frame, of the fastest recent speed
+    
+    @Value("${traffic.detection.fps:2}")
+    private double fixedFps;
+    
+    @Value("${traffic.detection.sampling.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${traffic.detection.sampling.min-fps:0.5}")
+    private double minFps;
+    
+    @Value("${traffic.detection.sampling.max-fps:4}")
+    private double maxFps;
+    
+    @Value("${traffic.detection.sampling.saturation-vehicles:12}")
+    private double saturationVehicles;
+    
+    @Value("${traffic.detection.sampling.variability-vehicles:3}")
+    private double variabilityVehicles;
+    
+    @Value("${traffic.detection.sampling.min-sightings:3}")
+    private double minSightings;
+    
+    @Value("${traffic.detection.sampling.cpu-budget:1.0}")
+    private double cpuBudget; // cores
+    
+    @Value("${traffic.detection.tracking.frame-height-meters:40}")
+    private double frameHeightMeters;
+    
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+    private final AtomicLong demandNanos = new AtomicLong(); // CPU nanoseconds per second all feeds ask for
+    
+    /**
+     * Start rating a feed, replacing an earlier one of the same road
+     */
+    public Feed register(String roadName) {
+        Feed feed = new Feed(roadName);
+        Feed previous = feeds.put(roadName, feed);
+        if (previous != null) previous.close();
+        return feed;
+    }
+    
+    public DetectionSamplingStatsDTO getStats() {
+        List<DetectionFeedDTO> rows = new ArrayList<>();
+        double used = 0.0;
+        double baseline = 0.0;
+        double effectiveFps = 0.0;
+        for (Feed feed : feeds.values()) {
+            rows.add(feed.toDTO());
+            used += feed.effectiveFps() * feed.costNanos / 1e9;
+            baseline += fixedFps * feed.costNanos / 1e9;
+            effectiveFps += feed.effectiveFps();
+        }
+        rows.sort(Comparator.comparing(DetectionFeedDTO::getRoadName));
+        
+        return DetectionSamplingStatsDTO.builder()
+            .enabled(enabled)
+            .feeds(rows.size())
+            .fixedFps(fixedFps)
+            .minFps(enabled ? minFps : fixedFps)
+            .maxFps(enabled ? maxFps : fixedFps)
+            .effectiveFps(round(effectiveFps))
+            .cpuBudgetCores(cpuBudget)
+            .demandCores(round(demandNanos.get() / 1e9))
+            .budgetShare(round(budgetShare()))
+            .cpuCores(round(used))
+            .fixedRateCpuCores(round(baseline))
+            .cpuSavedCores(round(baseline - used))
+            .cpuSavedPercent(baseline > 0 ? round((baseline - used) / baseline * 100.0) : 0.0)
+            .perFeed(rows)
+            .build();
+    }
+    
+    /**
+     * Fraction of its target rate every feed gets under the CPU budget
+     */
+    private double budgetShare() {
+        long demand = demandNanos.get();
+        return demand <= cpuBudget * 1e9 ? 1.0 : cpuBudget * 1e9 / demand;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+    
+    /**
+     * One feed's rate; fed by the feed's own thread only
+     */
+    public final class Feed {
+        private final String roadName;
+        private volatile double vehicles; // moving average per frame
+        private volatile double variability; // moving average of the frame-to-frame change in vehicles
+        private volatile double fastest; // km/h, decaying
+        private volatile double targetFps;
+        private volatile double fps; // granted after the budget
+        private volatile double intervalMillis; // moving average between frames
+        private volatile double costNanos; // moving average per frame
+        private volatile long frames;
+        private volatile boolean closed;
+        private long demand; // this feed's part of demandNanos
+        private int lastVehicles = -1;
+        private long lastTimestamp = Long.MIN_VALUE;
+        
+        private Feed(String roadName) {
+            this.roadName = roadName;
+            this.targetFps = enabled ? maxFps : fixedFps;
+            this.fps = targetFps;
+        }
+        
+        /**
+         * Account a processed frame and its cost
+         *
+         * @return milliseconds until the next frame
+         */
+        public long next(VideoAnalyticsDTO frame, long frameCostNanos) {
+            frames++;
+            costNanos = frames == 1 ? frameCostNanos : costNanos + SMOOTHING * (frameCostNanos - costNanos);
+            long timestamp = frame.getTimestamp() != null ? frame.getTimestamp() : System.currentTimeMillis();
+            if (lastTimestamp != Long.MIN_VALUE) {
+                double interval = Math.max(0, timestamp - lastTimestamp);
+                intervalMillis = frames == 2 ? interval : intervalMillis + SMOOTHING * (interval - intervalMillis);
+            }
+            lastTimestamp = timestamp;
+            observe(frame);
+            
+            targetFps = enabled ? target() : fixedFps;
+            updateDemand();
+            fps = enabled ? Math.max(minFps, targetFps * budgetShare()) : fixedFps;
+            return Math.round(1000.0 / fps);
+        }
+        
+        /**
+         * Stop counting this feed against the budget
+         */
+        public void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                demandNanos.addAndGet(-demand);
+                demand = 0;
+            }
+            feeds.remove(roadName, this);
+        }
+        
+        private void observe(VideoAnalyticsDTO frame) {
+            int count = frame.getVehicleCount() != null ? frame.getVehicleCount() : 0;
+            vehicles += SMOOTHING * (count - vehicles);
+            if (lastVehicles >= 0) {
+                variability += SMOOTHING * (Math.abs(count - lastVehicles) - variability);
+            }
+            lastVehicles = count;
+            
+            double speed = 0.0;
+            if (frame.getDetectedVehicles() != null) {
+                for (DetectedVehicleDTO vehicle : frame.getDetectedVehicles()) {
+                    if (vehicle.getSpeed() != null) speed = Math.max(speed, vehicle.getSpeed());
+                }
+            }
+            fastest = Math.max(speed, fastest * SPEED_DECAY);
+        }
+        
+        private double target() {
+            double activity = Math.min(1.0, Math.max(vehicles / saturationVehicles, variability / variabilityVehicles));
+            // A vehicle crosses the frame in frameHeightMeters / speed seconds
+            double tracking = minSightings * (fastest / 3.6) / frameHeightMeters;
+            return Math.min(maxFps, Math.max(minFps + (maxFps - minFps) * activity, tracking));
+        }
+        
+        private synchronized void updateDemand() {
+            if (closed) return;
+            long updated = (long) (targetFps * costNanos);
+            demandNanos.addAndGet(updated - demand);
+            demand = updated;
+        }
+        
+        private double effectiveFps() {
+            return intervalMillis > 0 ? 1000.0 / intervalMillis : fps;
+        }
+        
+        private DetectionFeedDTO toDTO() {
+            double effective = effectiveFps();
+            return DetectionFeedDTO.builder()
+                .roadName(roadName)
+                .frames(frames)
+                .targetFps(round(targetFps))
+                .fps(round(fps))
+                .effectiveFps(round(effective))
+                .averageVehicles(round(vehicles))
+                .variability(round(variability))
+                .fastestSpeed(round(fastest))
+                .costMicros(round(costNanos / 1e3))
+                .cpuCores(round(effective * costNanos / 1e9))
+                .cpuSavedCores(round((fixedFps - effective) * costNanos / 1e9))
+                .build();
+        }
+    }
+}
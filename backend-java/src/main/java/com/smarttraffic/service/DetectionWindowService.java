@@ -0,0 +1,57 @@
+package com.smarttraffic.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Configured aggregation windows of detection streams (see {@link WindowAggregator}),
+ * and the one adaptive signal timing reads
+ */
+@Service
+@Slf4j
+public class DetectionWindowService {
+    
+    private final List<WindowAggregator.Window> windows = new ArrayList<>();
+    private final int controlWindow;
+    
+    public DetectionWindowService(
+        @Value("${traffic.detection.windows:5s,30s/5s,5m/30s}") String windows,
+        @Value("${traffic.detection.control-window:30s}") String controlWindow
+    ) {
+        Set<String> names = new HashSet<>();
+        for (String spec : windows.split(",")) {
+            if (spec.isBlank()) continue;
+            WindowAggregator.Window window = WindowAggregator.Window.parse(spec);
+            if (!names.add(window.name())) {
+                throw new IllegalArgumentException("Duplicate detection window " + window.name());
+            }
+            this.windows.add(window);
+        }
+        this.controlWindow = this.windows.stream().map(WindowAggregator.Window::name).toList().indexOf(controlWindow);
+        if (this.controlWindow < 0) {
+            throw new IllegalArgumentException("Control window " + controlWindow + " is not among " + windows);
+        }
+        log.info("Detection windows {}, signal timing from {}", windows, controlWindow);
+    }
+    
+    public WindowAggregator newAggregator(String roadName) {
+        return new WindowAggregator(roadName, windows);
+    }
+    
+    /**
+     * Index of the window adaptive timing reads, in every aggregator
+     */
+    public int getControlWindow() {
+        return controlWindow;
+    }
+    
+    public String getControlWindowName() {
+        return windows.get(controlWindow).name();
+    }
+}
@@ -0,0 +1,102 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.EmergencyLatencyDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request-to-green latency of emergency overrides, measured from the moment the
+ * request reached the controller until the emergency approach shows green in the
+ * running simulation.
+ *
+ * Every override slower than {@code slo-millis} is logged. Each evaluation window
+ * the share of overrides within the SLO is compared with {@code slo-target}; a window
+ * below target raises an alert (logged at ERROR and exposed in the metrics).
+ */
+@Service
+@Slf4j
+public class EmergencyLatencyMonitor {
+    
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder violations = new LongAdder();
+    private final AtomicLong windowTotal = new AtomicLong();
+    private final AtomicLong windowViolations = new AtomicLong();
+    private final LongAdder alerts = new LongAdder();
+    
+    @Value("${traffic.emergency.slo-millis:50}")
+    private double sloMillis;
+    
+    @Value("${traffic.emergency.slo-target:0.99}")
+    private double sloTarget;
+    
+    private volatile Double windowCompliance;
+    private volatile boolean alerting;
+    private volatile LocalDateTime lastAlertAt;
+    
+    /**
+     * Record the request-to-green latency of one override
+     */
+    public void record(String simulationId, String road, long nanos) {
+        histogram.recordNanos(nanos);
+        windowTotal.incrementAndGet();
+        
+        double millis = nanos / 1_000_000.0;
+        if (millis > sloMillis) {
+            violations.increment();
+            windowViolations.incrementAndGet();
+            log.warn("Emergency override on {} for simulation {} took {} ms to green (SLO {} ms)",
+                road, simulationId, String.format("%.2f", millis), sloMillis);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${traffic.emergency.slo-evaluation-interval:60000}")
+    public void evaluateSlo() {
+        long total = windowTotal.getAndSet(0);
+        long slow = windowViolations.getAndSet(0);
+        if (total == 0) {
+            windowCompliance = null;
+            alerting = false;
+            return;
+        }
+        
+        double compliance = (double) (total - slow) / total;
+        windowCompliance = compliance;
+        alerting = compliance < sloTarget;
+        if (alerting) {
+            alerts.increment();
+            lastAlertAt = LocalDateTime.now();
+            log.error("Emergency latency SLO breached: {}/{} overrides within {} ms ({}%, target {}%), p99 {} ms",
+                total - slow, total, sloMillis, String.format("%.2f", compliance * 100.0),
+                String.format("%.2f", sloTarget * 100.0), histogram.percentileMillis(0.99));
+        }
+    }
+    
+    public EmergencyLatencyDTO getStats() {
+        return EmergencyLatencyDTO.builder()
+            .overrides(histogram.count())
+            .meanMillis(round(histogram.meanMillis()))
+            .p50Millis(round(histogram.percentileMillis(0.50)))
+            .p90Millis(round(histogram.percentileMillis(0.90)))
+            .p99Millis(round(histogram.percentileMillis(0.99)))
+            .maxMillis(round(histogram.maxMillis()))
+            .sloMillis(sloMillis)
+            .sloTarget(sloTarget)
+            .sloViolations(violations.sum())
+            .windowCompliance(windowCompliance)
+            .alerting(alerting)
+            .alerts(alerts.sum())
+            .lastAlertAt(lastAlertAt)
+            .buckets(histogram.bucketsMillis())
+            .build();
+    }
+    
+    private static double round(double millis) {
+        return Math.round(millis * 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,255 @@
+package com.smarttraffic.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smarttraffic.dto.ExportJobDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs PDF/Excel/CSV exports in the background instead of on request threads.
+ *
+ * Jobs go to their own bulkhead ("export-jobs"); when it is full {@link #submit}
+ * throws {@link BulkheadFullException}. Results are written to
+ * {@code export.output-directory} under the SHA-256 of the request body plus format,
+ * so an identical request within the TTL reuses the existing file (also across restarts).
+ */
+@Service
+@Slf4j
+public class ExportJobService {
+    
+    private static final Map<String, String> EXTENSIONS = Map.of("pdf", "pdf", "excel", "xlsx", "csv", "csv");
+    
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
+    private final Path outputDirectory;
+    private final long ttlMinutes;
+    private final Bulkhead workers;
+    
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, String> jobsByKey = new ConcurrentHashMap<>();
+    
+    public ExportJobService(
+        ExportService exportService,
+        ObjectMapper objectMapper,
+        Bulkheads bulkheads,
+        @Value("${export.output-directory:./exports}") String outputDirectory,
+        @Value("${export.jobs.workers:2}") int workerCount,
+        @Value("${export.jobs.queue-capacity:20}") int queueCapacity,
+        @Value("${export.jobs.result-ttl-minutes:60}") long ttlMinutes
+    ) throws IOException {
+        this.exportService = exportService;
+        this.objectMapper = objectMapper;
+        this.outputDirectory = Files.createDirectories(Paths.get(outputDirectory, "jobs"));
+        this.ttlMinutes = ttlMinutes;
+        this.workers = bulkheads.register(new Bulkhead("export-jobs", workerCount, queueCapacity));
+    }
+    
+    /**
+     * Submit an export; returns the existing job if an identical one is pending or cached
+     */
+    public synchronized ExportJobDTO submit(ExportService.AnalyticsData data, String format) {
+        String extension = EXTENSIONS.get(format);
+        if (extension == null) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        
+        String key = contentKey(data, format);
+        ExportJob existing = Optional.ofNullable(jobsByKey.get(key)).map(jobs::get).orElse(null);
+        if (existing != null && existing.isReusable()) {
+            return existing.toDTO(true);
+        }
+        
+        Path target = outputDirectory.resolve(key + "." + extension);
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), key, format, target);
+        
+        // Result left by an earlier process that is still within the TTL
+        if (isFresh(target)) {
+            job.complete(target);
+            register(job);
+            return job.toDTO(true);
+        }
+        
+        register(job);
+        try {
+            workers.execute(() -> run(job, data));
+        } catch (BulkheadFullException e) {
+            jobs.remove(job.id);
+            jobsByKey.remove(key, job.id);
+            throw e;
+        }
+        log.info("Queued {} export job {}", format, job.id);
+        return job.toDTO(false);
+    }
+    
+    public Optional<ExportJobDTO> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(job -> job.toDTO(false));
+    }
+    
+    /**
+     * Result file of a completed job that has not expired
+     */
+    public Optional<Path> getResult(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null || !"completed".equals(job.status) || !Files.exists(job.target)) {
+            return Optional.empty();
+        }
+        return Optional.of(job.target);
+    }
+    
+    /**
+     * Drop expired jobs and their files, including files left by earlier processes
+     */
+    @Scheduled(fixedDelayString = "${export.jobs.purge-interval:60000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        jobs.values().removeIf(job -> {
+            if (job.expiresAt == null || job.expiresAt.isAfter(now)) return false;
+            jobsByKey.remove(job.key, job.id);
+            return true;
+        });
+        
+        try (Stream<Path> files = Files.list(outputDirectory)) {
+            files.filter(file -> !isFresh(file)).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete expired export {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not list export directory {}: {}", outputDirectory, e.getMessage());
+        }
+    }
+    
+    private void run(ExportJob job, ExportService.AnalyticsData data) {
+        job.status = "running";
+        int totalRows = Math.max(1, data.getRoadPerformance().size() + data.getRecommendations().size());
+        Path temp = job.target.resolveSibling(job.target.getFileName() + ".tmp");
+        
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                exportService.writeReport(data, job.format, out,
+                    rows -> job.progress = Math.min(99, rows * 100 / totalRows));
+            }
+            Files.move(temp, job.target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.complete(job.target);
+            log.info("Export job {} completed ({} bytes)", job.id, job.sizeBytes);
+        } catch (Exception e) {
+            log.error("Export job {} failed", job.id, e);
+            job.fail(e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // best effort
+            }
+        }
+    }
+    
+    private void register(ExportJob job) {
+        jobs.put(job.id, job);
+        jobsByKey.put(job.key, job.id);
+    }
+    
+    private boolean isFresh(Path file) {
+        try {
+            return Files.exists(file) && Files.getLastModifiedTime(file).toMillis()
+                > System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private String contentKey(ExportService.AnalyticsData data, String format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(objectMapper.writeValueAsBytes(data));
+            digest.update(format.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash export request", e);
+        }
+    }
+    
+    /**
+     * Mutable job state, written by one worker and read by status requests
+     */
+    private class ExportJob {
+        final String id;
+        final String key;
+        final String format;
+        final Path target;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        volatile String status = "queued";
+        volatile int progress;
+        volatile Long sizeBytes;
+        volatile String error;
+        volatile LocalDateTime completedAt;
+        volatile LocalDateTime expiresAt;
+        
+        ExportJob(String id, String key, String format, Path target) {
+            this.id = id;
+            this.key = key;
+            this.format = format;
+            this.target = target;
+        }
+        
+        void complete(Path file) {
+            try {
+                sizeBytes = Files.size(file);
+            } catch (IOException e) {
+                sizeBytes = null;
+            }
+            progress = 100;
+            completedAt = LocalDateTime.now();
+            expiresAt = completedAt.plusMinutes(ttlMinutes);
+            status = "completed";
+        }
+        
+        void fail(String message) {
+            error = message;
+            completedAt = LocalDateTime.now();
+            expiresAt = completedAt.plusMinutes(ttlMinutes);
+            status = "failed";
+        }
+        
+        boolean isReusable() {
+            return switch (status) {
+                case "queued", "running" -> true;
+                case "completed" -> expiresAt.isAfter(LocalDateTime.now()) && Files.exists(target);
+                default -> false;
+            };
+        }
+        
+        ExportJobDTO toDTO(boolean reused) {
+            return ExportJobDTO.builder()
+                .jobId(id)
+                .format(format)
+                .status(status)
+                .progress(progress)
+                .reused(reused)
+                .sizeBytes(sizeBytes)
+                .error(error)
+                .createdAt(createdAt)
+                .completedAt(completedAt)
+                .expiresAt(expiresAt)
+                .downloadUrl("/api/export/jobs/" + id + "/download")
+                .build();
+        }
+    }
+}
@@ -1,28 +1,46 @@
 package com.smarttraffic.service;
 
+import com.itextpdf.kernel.events.Event;
+import com.itextpdf.kernel.events.IEventHandler;
+import com.itextpdf.kernel.events.PdfDocumentEvent;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
 import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.layout.Canvas;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
 import com.smarttraffic.dto.RoadDTO;
+import com.smarttraffic.dto.RoadPerformanceRowDTO;
 import com.smarttraffic.dto.TrafficStatsDTO;
+import com.smarttraffic.export.ColumnarFormat;
+import com.smarttraffic.export.ColumnarWriter;
 import com.smarttraffic.model.OptimizationRecommendation;
+import com.smarttraffic.repository.RoadPerformanceRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
 
 /**
- * Export service for generating PDF, Excel, and CSV reports
+ * Export service for generating PDF, Excel, CSV and columnar reports
  * Converted from TypeScript exportUtils.ts
  */
 @Service
@@ -31,168 +49,405 @@ import java.util.List;
 public class ExportService {
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+    private static final int PDF_FLUSH_ROWS = 100; // table rows buffered before layout
+    private static final int EXCEL_ROW_WINDOW = 100; // rows kept in memory per sheet
+    private static final int MAX_SHEET_ROWS = 1_048_576; // XLSX limit
+    
+    private final RoadPerformanceRepository roadPerformanceRepository;
+    
+    /**
+     * Write an analytics report in the given format ("pdf", "excel" or "csv").
+     * {@code progress} receives the number of data rows written so far.
+     */
+    public void writeReport(AnalyticsData data, String format, OutputStream out, IntConsumer progress) throws IOException {
+        switch (format) {
+            case "pdf" -> writePdfReport(data, out, progress);
+            case "excel" -> writeExcelReport(data, out, progress);
+            case "csv" -> writeCsvReport(data, out, progress);
+            default -> throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+    }
     
     /**
      * Generate PDF traffic analytics report
      */
     public byte[] generatePdfReport(AnalyticsData data) {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            
-            // Header
-            document.add(new Paragraph("Traffic Analytics Report")
-                .setFontSize(20)
-                .setBold());
-            document.add(new Paragraph("Generated: " + LocalDateTime.now().format(DATE_FORMATTER))
-                .setFontSize(12));
-            document.add(new Paragraph("\n"));
-            
-            // Summary metrics
-            document.add(new Paragraph("Summary Metrics").setFontSize(16).setBold());
-            document.add(new Paragraph("System Efficiency: " + data.getSystemEfficiency() + "%"));
-            document.add(new Paragraph("Average Wait Time: " + data.getAvgWaitTime() + "s"));
-            document.add(new Paragraph("Total Throughput: " + data.getTotalThroughput() + " vehicles"));
-            document.add(new Paragraph("Emergency Events: " + data.getEmergencyEvents()));
-            document.add(new Paragraph("\n"));
-            
-            // Road performance table
-            document.add(new Paragraph("Road Performance").setFontSize(16).setBold());
-            Table table = new Table(5);
-            table.addHeaderCell("Road");
-            table.addHeaderCell("Vehicles");
-            table.addHeaderCell("Wait Time (s)");
-            table.addHeaderCell("Efficiency (%)");
-            table.addHeaderCell("Queue Length");
-            
-            for (RoadPerformanceData road : data.getRoadPerformance()) {
-                table.addCell(road.getRoadName());
+            writePdfReport(data, baos);
+            return baos.toByteArray();
+        } catch (Exception e) {
+            log.error("Error generating PDF report", e);
+            throw new RuntimeException("Failed to generate PDF report", e);
+        }
+    }
+    
+    /**
+     * Write PDF traffic analytics report straight to the given stream.
+     * The road table is a large table: rows are flushed to the document every
+     * {@link #PDF_FLUSH_ROWS} rows and finished pages are written out immediately.
+     */
+    public void writePdfReport(AnalyticsData data, OutputStream out) {
+        writePdfReport(data, out, rows -> { });
+    }
+    
+    /**
+     * Write PDF traffic analytics report, reporting the number of table rows written so far
+     */
+    public void writePdfReport(AnalyticsData data, OutputStream out, IntConsumer progress) {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        PdfDocument pdf = new PdfDocument(writer);
+        pdf.addEventHandler(PdfDocumentEvent.END_PAGE, new PageFooter("Traffic Analytics Report"));
+        Document document = new Document(pdf);
+        
+        // Header
+        document.add(new Paragraph("Traffic Analytics Report")
+            .setFontSize(20)
+            .setBold());
+        document.add(new Paragraph("Generated: " + LocalDateTime.now().format(DATE_FORMATTER))
+            .setFontSize(12));
+        document.add(new Paragraph("\n"));
+        
+        // Summary metrics
+        document.add(new Paragraph("Summary Metrics").setFontSize(16).setBold());
+        document.add(new Paragraph("System Efficiency: " + data.getSystemEfficiency() + "%"));
+        document.add(new Paragraph("Average Wait Time: " + data.getAvgWaitTime() + "s"));
+        document.add(new Paragraph("Total Throughput: " + data.getTotalThroughput() + " vehicles"));
+        document.add(new Paragraph("Emergency Events: " + data.getEmergencyEvents()));
+        document.add(new Paragraph("\n"));
+        
+        // Road performance table (header row repeats on every page)
+        document.add(new Paragraph("Road Performance").setFontSize(16).setBold());
+        Table table = new Table(5, true);
+        table.addHeaderCell("Road");
+        table.addHeaderCell("Vehicles");
+        table.addHeaderCell("Wait Time (s)");
+        table.addHeaderCell("Efficiency (%)");
+        table.addHeaderCell("Queue Length");
+        document.add(table);
+        
+        int rows = 0;
+        int buffered = 0;
+        for (RoadPerformanceData road : data.getRoadPerformance()) {
+            table.addCell(road.getRoadName());
+            table.addCell(String.valueOf(road.getVehicles()));
+            table.addCell(String.valueOf(road.getWaitTime()));
+            table.addCell(String.valueOf(road.getEfficiency()));
+            table.addCell(String.valueOf(road.getQueueLength()));
+            progress.accept(++rows);
+            if (++buffered == PDF_FLUSH_ROWS) {
+                table.flush();
+                buffered = 0;
+            }
+        }
+        table.complete();
+        document.add(new Paragraph("\n"));
+        
+        // Recommendations
+        if (!data.getRecommendations().isEmpty()) {
+            document.add(new Paragraph("Optimization Recommendations").setFontSize(16).setBold());
+            for (RecommendationData rec : data.getRecommendations()) {
+                document.add(new Paragraph(String.format("[%s] %s: %s", 
+                    rec.getSeverity(), rec.getRoadName(), rec.getRecommendation())));
+                progress.accept(++rows);
+            }
+        }
+        
+        document.close();
+    }
+    
+    /**
+     * Stream the raw road_performance history of a run as a multi-page PDF table.
+     * At most {@link #PDF_FLUSH_ROWS} rows are buffered before they are laid out,
+     * and completed pages are written to the stream as the cursor advances.
+     *
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long writeRoadHistoryPdf(String simulationId, OutputStream out) {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        PdfDocument pdf = new PdfDocument(writer);
+        pdf.addEventHandler(PdfDocumentEvent.END_PAGE, new PageFooter("Road History - " + simulationId));
+        Document document = new Document(pdf, PageSize.A4.rotate());
+        long rows = 0;
+        
+        document.add(new Paragraph("Road History").setFontSize(20).setBold());
+        document.add(new Paragraph("Simulation: " + simulationId).setFontSize(12));
+        document.add(new Paragraph("Generated: " + LocalDateTime.now().format(DATE_FORMATTER)).setFontSize(12));
+        
+        Table table = new Table(UnitValue.createPercentArray(new float[]{18, 14, 10, 10, 11, 12, 12, 13}), true)
+            .useAllAvailableWidth()
+            .setFontSize(9);
+        table.addHeaderCell("Timestamp");
+        table.addHeaderCell("Road");
+        table.addHeaderCell("Direction");
+        table.addHeaderCell("Signal");
+        table.addHeaderCell("Vehicles");
+        table.addHeaderCell("Queue Length");
+        table.addHeaderCell("Wait Time (s)");
+        table.addHeaderCell("Efficiency (%)");
+        document.add(table);
+        
+        try (Stream<RoadPerformanceRowDTO> history = roadPerformanceRepository.streamRowsBySimulationId(simulationId)) {
+            Iterator<RoadPerformanceRowDTO> it = history.iterator();
+            while (it.hasNext()) {
+                RoadPerformanceRowDTO road = it.next();
+                table.addCell(road.getTimestamp().format(DATE_FORMATTER));
+                table.addCell(String.valueOf(road.getRoadName()));
+                table.addCell(String.valueOf(road.getRoadDirection()));
+                table.addCell(String.valueOf(road.getSignalState()));
                 table.addCell(String.valueOf(road.getVehicles()));
+                table.addCell(String.valueOf(road.getQueueLength()));
                 table.addCell(String.valueOf(road.getWaitTime()));
                 table.addCell(String.valueOf(road.getEfficiency()));
-                table.addCell(String.valueOf(road.getQueueLength()));
-            }
-            
-            document.add(table);
-            document.add(new Paragraph("\n"));
-            
-            // Recommendations
-            if (!data.getRecommendations().isEmpty()) {
-                document.add(new Paragraph("Optimization Recommendations").setFontSize(16).setBold());
-                for (RecommendationData rec : data.getRecommendations()) {
-                    document.add(new Paragraph(String.format("[%s] %s: %s", 
-                        rec.getSeverity(), rec.getRoadName(), rec.getRecommendation())));
+                if (++rows % PDF_FLUSH_ROWS == 0) {
+                    table.flush();
                 }
             }
-            
-            document.close();
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Error generating PDF report", e);
-            throw new RuntimeException("Failed to generate PDF report", e);
         }
+        
+        table.complete();
+        document.close();
+        
+        log.info("Streamed {} road history rows to PDF for simulation {}", rows, simulationId);
+        return rows;
     }
     
     /**
      * Generate Excel traffic analytics report
      */
     public byte[] generateExcelReport(AnalyticsData data) {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            writeExcelReport(data, baos);
+            return baos.toByteArray();
+        } catch (IOException e) {
+            log.error("Error generating Excel report", e);
+            throw new RuntimeException("Failed to generate Excel report", e);
+        }
+    }
+    
+    /**
+     * Write Excel traffic analytics report straight to the given stream.
+     * Uses a streaming (SXSSF) workbook: only a small window of rows is kept in memory,
+     * the rest is spilled to a compressed temp file, and column widths are estimated
+     * from sampled cell content instead of autoSizeColumn.
+     */
+    public void writeExcelReport(AnalyticsData data, OutputStream out) throws IOException {
+        writeExcelReport(data, out, rows -> { });
+    }
+    
+    /**
+     * Write Excel traffic analytics report, reporting the number of data rows written so far
+     */
+    public void writeExcelReport(AnalyticsData data, OutputStream out, IntConsumer progress) throws IOException {
+        SXSSFWorkbook workbook = newStreamingWorkbook();
+        int rows = 0;
+        try {
             // Create sheets
             Sheet summarySheet = workbook.createSheet("Summary");
             Sheet roadSheet = workbook.createSheet("Road Performance");
             Sheet recommendationsSheet = workbook.createSheet("Recommendations");
             
             // Summary sheet
+            ColumnWidths summaryWidths = new ColumnWidths(2);
             int summaryRow = 0;
             Row row = summarySheet.createRow(summaryRow++);
-            row.createCell(0).setCellValue("Traffic Analytics Report");
+            summaryWidths.set(row, 0, "Traffic Analytics Report");
             
             row = summarySheet.createRow(summaryRow++);
-            row.createCell(0).setCellValue("Generated:");
-            row.createCell(1).setCellValue(LocalDateTime.now().format(DATE_FORMATTER));
+            summaryWidths.set(row, 0, "Generated:");
+            summaryWidths.set(row, 1, LocalDateTime.now().format(DATE_FORMATTER));
             
             summaryRow++; // Empty row
             
             row = summarySheet.createRow(summaryRow++);
-            row.createCell(0).setCellValue("Metric");
-            row.createCell(1).setCellValue("Value");
+            summaryWidths.set(row, 0, "Metric");
+            summaryWidths.set(row, 1, "Value");
             
             row = summarySheet.createRow(summaryRow++);
-            row.createCell(0).setCellValue("System Efficiency");
-            row.createCell(1).setCellValue(data.getSystemEfficiency() + "%");
+            summaryWidths.set(row, 0, "System Efficiency");
+            summaryWidths.set(row, 1, data.getSystemEfficiency() + "%");
             
             row = summarySheet.createRow(summaryRow++);
-            row.createCell(0).setCellValue("Average Wait Time");
-            row.createCell(1).setCellValue(data.getAvgWaitTime() + "s");
+            summaryWidths.set(row, 0, "Average Wait Time");
+            summaryWidths.set(row, 1, data.getAvgWaitTime() + "s");
             
             row = summarySheet.createRow(summaryRow++);
-            row.createCell(0).setCellValue("Total Throughput");
-            row.createCell(1).setCellValue(data.getTotalThroughput());
+            summaryWidths.set(row, 0, "Total Throughput");
+            summaryWidths.set(row, 1, data.getTotalThroughput());
             
             row = summarySheet.createRow(summaryRow++);
-            row.createCell(0).setCellValue("Emergency Events");
-            row.createCell(1).setCellValue(data.getEmergencyEvents());
+            summaryWidths.set(row, 0, "Emergency Events");
+            summaryWidths.set(row, 1, data.getEmergencyEvents());
+            summaryWidths.apply(summarySheet);
             
             // Road performance sheet
+            ColumnWidths roadWidths = new ColumnWidths(6);
             int roadRow = 0;
             Row headerRow = roadSheet.createRow(roadRow++);
-            headerRow.createCell(0).setCellValue("Road");
-            headerRow.createCell(1).setCellValue("Vehicles");
-            headerRow.createCell(2).setCellValue("Wait Time (s)");
-            headerRow.createCell(3).setCellValue("Efficiency (%)");
-            headerRow.createCell(4).setCellValue("Queue Length");
-            headerRow.createCell(5).setCellValue("Peak Traffic");
+            roadWidths.set(headerRow, 0, "Road");
+            roadWidths.set(headerRow, 1, "Vehicles");
+            roadWidths.set(headerRow, 2, "Wait Time (s)");
+            roadWidths.set(headerRow, 3, "Efficiency (%)");
+            roadWidths.set(headerRow, 4, "Queue Length");
+            roadWidths.set(headerRow, 5, "Peak Traffic");
             
             for (RoadPerformanceData road : data.getRoadPerformance()) {
                 Row dataRow = roadSheet.createRow(roadRow++);
-                dataRow.createCell(0).setCellValue(road.getRoadName());
-                dataRow.createCell(1).setCellValue(road.getVehicles());
-                dataRow.createCell(2).setCellValue(road.getWaitTime());
-                dataRow.createCell(3).setCellValue(road.getEfficiency());
-                dataRow.createCell(4).setCellValue(road.getQueueLength());
-                dataRow.createCell(5).setCellValue(road.getPeakTraffic());
+                roadWidths.set(dataRow, 0, road.getRoadName());
+                roadWidths.set(dataRow, 1, road.getVehicles());
+                roadWidths.set(dataRow, 2, road.getWaitTime());
+                roadWidths.set(dataRow, 3, road.getEfficiency());
+                roadWidths.set(dataRow, 4, road.getQueueLength());
+                roadWidths.set(dataRow, 5, road.getPeakTraffic());
+                progress.accept(++rows);
             }
+            roadWidths.apply(roadSheet);
             
             // Recommendations sheet
+            ColumnWidths recWidths = new ColumnWidths(4);
             int recRow = 0;
             Row recHeaderRow = recommendationsSheet.createRow(recRow++);
-            recHeaderRow.createCell(0).setCellValue("Road");
-            recHeaderRow.createCell(1).setCellValue("Severity");
-            recHeaderRow.createCell(2).setCellValue("Recommendation");
-            recHeaderRow.createCell(3).setCellValue("Estimated Impact");
+            recWidths.set(recHeaderRow, 0, "Road");
+            recWidths.set(recHeaderRow, 1, "Severity");
+            recWidths.set(recHeaderRow, 2, "Recommendation");
+            recWidths.set(recHeaderRow, 3, "Estimated Impact");
             
             for (RecommendationData rec : data.getRecommendations()) {
                 Row recDataRow = recommendationsSheet.createRow(recRow++);
-                recDataRow.createCell(0).setCellValue(rec.getRoadName());
-                recDataRow.createCell(1).setCellValue(rec.getSeverity());
-                recDataRow.createCell(2).setCellValue(rec.getRecommendation());
-                recDataRow.createCell(3).setCellValue(rec.getEstimatedImpact());
+                recWidths.set(recDataRow, 0, rec.getRoadName());
+                recWidths.set(recDataRow, 1, rec.getSeverity());
+                recWidths.set(recDataRow, 2, rec.getRecommendation());
+                recWidths.set(recDataRow, 3, rec.getEstimatedImpact());
+                progress.accept(++rows);
             }
+            recWidths.apply(recommendationsSheet);
             
-            // Auto-size columns
-            for (int i = 0; i < 6; i++) {
-                summarySheet.autoSizeColumn(i);
-                roadSheet.autoSizeColumn(i);
-                recommendationsSheet.autoSizeColumn(i);
-            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+    
+    /**
+     * Stream the raw road_performance history of a run as an Excel workbook.
+     * Rows come from a database cursor and go through a streaming workbook,
+     * rolling over to a new sheet when the XLSX row limit is reached.
+     *
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long writeRoadHistoryExcel(String simulationId, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = newStreamingWorkbook();
+        long rows = 0;
+        
+        try (Stream<RoadPerformanceRowDTO> history = roadPerformanceRepository.streamRowsBySimulationId(simulationId)) {
+            Iterator<RoadPerformanceRowDTO> it = history.iterator();
+            int sheetIndex = 0;
+            Sheet sheet = null;
+            ColumnWidths widths = null;
+            int rowIndex = MAX_SHEET_ROWS;
             
-            workbook.write(baos);
-            return baos.toByteArray();
-        } catch (IOException e) {
-            log.error("Error generating Excel report", e);
-            throw new RuntimeException("Failed to generate Excel report", e);
+            do {
+                if (rowIndex >= MAX_SHEET_ROWS) {
+                    if (widths != null) widths.apply(sheet);
+                    sheet = workbook.createSheet(sheetIndex == 0 ? "Road History" : "Road History " + (sheetIndex + 1));
+                    widths = new ColumnWidths(8);
+                    sheetIndex++;
+                    rowIndex = 0;
+                    
+                    Row header = sheet.createRow(rowIndex++);
+                    widths.set(header, 0, "Timestamp");
+                    widths.set(header, 1, "Road");
+                    widths.set(header, 2, "Direction");
+                    widths.set(header, 3, "Signal");
+                    widths.set(header, 4, "Vehicles");
+                    widths.set(header, 5, "Queue Length");
+                    widths.set(header, 6, "Wait Time (s)");
+                    widths.set(header, 7, "Efficiency (%)");
+                }
+                if (!it.hasNext()) break;
+                
+                RoadPerformanceRowDTO road = it.next();
+                Row dataRow = sheet.createRow(rowIndex++);
+                widths.set(dataRow, 0, road.getTimestamp().format(DATE_FORMATTER));
+                widths.set(dataRow, 1, road.getRoadName());
+                widths.set(dataRow, 2, road.getRoadDirection());
+                widths.set(dataRow, 3, road.getSignalState());
+                widths.set(dataRow, 4, road.getVehicles());
+                widths.set(dataRow, 5, road.getQueueLength());
+                widths.set(dataRow, 6, road.getWaitTime());
+                widths.set(dataRow, 7, road.getEfficiency());
+                rows++;
+            } while (true);
+            
+            widths.apply(sheet);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        
+        log.info("Streamed {} road history rows to Excel for simulation {}", rows, simulationId);
+        return rows;
+    }
+    
+    /**
+     * Stream the raw road_performance history of a run in the compressed columnar
+     * format (see {@link ColumnarFormat}), for offline analysis
+     *
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long writeRoadHistoryColumnar(String simulationId, OutputStream out) throws IOException {
+        ColumnarWriter writer = new ColumnarWriter(new BufferedOutputStream(out, CSV_BUFFER_SIZE), simulationId);
+        
+        try (Stream<RoadPerformanceRowDTO> history = roadPerformanceRepository.streamRowsBySimulationId(simulationId)) {
+            Iterator<RoadPerformanceRowDTO> it = history.iterator();
+            while (it.hasNext()) {
+                writer.append(it.next());
+            }
         }
+        
+        long rows = writer.finish();
+        log.info("Streamed {} road history rows in columnar format for simulation {}", rows, simulationId);
+        return rows;
+    }
+    
+    private SXSSFWorkbook newStreamingWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
     }
     
     /**
      * Generate CSV traffic analytics report
      */
     public byte[] generateCsvReport(AnalyticsData data) {
-        StringBuilder csv = new StringBuilder();
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            writeCsvReport(data, baos);
+            return baos.toByteArray();
+        } catch (IOException e) {
+            log.error("Error generating CSV report", e);
+            throw new RuntimeException("Failed to generate CSV report", e);
+        }
+    }
+    
+    /**
+     * Write CSV traffic analytics report (UTF-8) straight to the given stream
+     */
+    public void writeCsvReport(AnalyticsData data, OutputStream out) throws IOException {
+        writeCsvReport(data, out, rows -> { });
+    }
+    
+    /**
+     * Write CSV traffic analytics report, reporting the number of data rows written so far
+     */
+    public void writeCsvReport(AnalyticsData data, OutputStream out, IntConsumer progress) throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
         
         // Header
         csv.append("Traffic Analytics Report\n");
@@ -201,21 +456,23 @@ public class ExportService {
         // Summary
         csv.append("Summary Metrics\n");
         csv.append("Metric,Value\n");
-        csv.append("System Efficiency,").append(data.getSystemEfficiency()).append("%\n");
-        csv.append("Average Wait Time,").append(data.getAvgWaitTime()).append("s\n");
-        csv.append("Total Throughput,").append(data.getTotalThroughput()).append("\n");
-        csv.append("Emergency Events,").append(data.getEmergencyEvents()).append("\n\n");
+        csv.append("System Efficiency,").append(String.valueOf(data.getSystemEfficiency())).append("%\n");
+        csv.append("Average Wait Time,").append(String.valueOf(data.getAvgWaitTime())).append("s\n");
+        csv.append("Total Throughput,").append(String.valueOf(data.getTotalThroughput())).append("\n");
+        csv.append("Emergency Events,").append(String.valueOf(data.getEmergencyEvents())).append("\n\n");
         
         // Road performance
+        int rows = 0;
         csv.append("Road Performance\n");
         csv.append("Road,Vehicles,Wait Time (s),Efficiency (%),Queue Length (m),Peak Traffic\n");
         for (RoadPerformanceData road : data.getRoadPerformance()) {
-            csv.append(road.getRoadName()).append(",")
-               .append(road.getVehicles()).append(",")
-               .append(road.getWaitTime()).append(",")
-               .append(road.getEfficiency()).append(",")
-               .append(road.getQueueLength()).append(",")
-               .append(road.getPeakTraffic()).append("\n");
+            csv.append(escapeCSV(road.getRoadName())).append(",")
+               .append(String.valueOf(road.getVehicles())).append(",")
+               .append(String.valueOf(road.getWaitTime())).append(",")
+               .append(String.valueOf(road.getEfficiency())).append(",")
+               .append(String.valueOf(road.getQueueLength())).append(",")
+               .append(escapeCSV(road.getPeakTraffic())).append("\n");
+            progress.accept(++rows);
         }
         
         csv.append("\n");
@@ -225,14 +482,50 @@ public class ExportService {
             csv.append("Recommendations\n");
             csv.append("Road,Severity,Recommendation,Impact\n");
             for (RecommendationData rec : data.getRecommendations()) {
-                csv.append(rec.getRoadName()).append(",")
-                   .append(rec.getSeverity()).append(",")
+                csv.append(escapeCSV(rec.getRoadName())).append(",")
+                   .append(escapeCSV(rec.getSeverity())).append(",")
                    .append(escapeCSV(rec.getRecommendation())).append(",")
-                   .append(rec.getEstimatedImpact()).append("\n");
+                   .append(escapeCSV(rec.getEstimatedImpact())).append("\n");
+                progress.accept(++rows);
             }
         }
         
-        return csv.toString().getBytes();
+        csv.flush();
+    }
+    
+    /**
+     * Stream the raw road_performance history of a run as CSV (UTF-8).
+     * Rows are read through a database cursor and written as they arrive,
+     * so heap use is constant regardless of run length.
+     *
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long writeRoadHistoryCsv(String simulationId, OutputStream out) throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
+        csv.append("Timestamp,Road,Direction,Signal,Vehicles,Queue Length,Wait Time (s),Efficiency (%)\n");
+        csv.flush(); // start sending bytes right away
+        
+        long rows = 0;
+        try (Stream<RoadPerformanceRowDTO> history = roadPerformanceRepository.streamRowsBySimulationId(simulationId)) {
+            Iterator<RoadPerformanceRowDTO> it = history.iterator();
+            while (it.hasNext()) {
+                RoadPerformanceRowDTO row = it.next();
+                csv.append(row.getTimestamp().format(DATE_FORMATTER)).append(",")
+                   .append(escapeCSV(row.getRoadName())).append(",")
+                   .append(escapeCSV(row.getRoadDirection())).append(",")
+                   .append(row.getSignalState()).append(",")
+                   .append(String.valueOf(row.getVehicles())).append(",")
+                   .append(String.valueOf(row.getQueueLength())).append(",")
+                   .append(String.valueOf(row.getWaitTime())).append(",")
+                   .append(String.valueOf(row.getEfficiency())).append("\n");
+                rows++;
+            }
+        }
+        
+        csv.flush();
+        log.info("Streamed {} road history rows for simulation {}", rows, simulationId);
+        return rows;
     }
     
     /**
@@ -246,6 +539,76 @@ public class ExportService {
         return value;
     }
     
+    /**
+     * Stamps the report title and page number at the bottom of every page.
+     * The total page count is unknown while streaming, so only the current page is shown.
+     */
+    private static class PageFooter implements IEventHandler {
+        private final String title;
+        
+        PageFooter(String title) {
+            this.title = title;
+        }
+        
+        @Override
+        public void handleEvent(Event event) {
+            PdfDocumentEvent pageEvent = (PdfDocumentEvent) event;
+            PdfPage page = pageEvent.getPage();
+            Rectangle pageSize = page.getPageSize();
+            int pageNumber = pageEvent.getDocument().getPageNumber(page);
+            
+            try (Canvas canvas = new Canvas(new PdfCanvas(page), pageSize)) {
+                canvas.setFontSize(9);
+                canvas.showTextAligned(title + " - Page " + pageNumber,
+                    pageSize.getWidth() / 2, 20, TextAlignment.CENTER);
+            }
+        }
+    }
+    
+    /**
+     * Column widths estimated from the first rows written to a sheet
+     * (a cheap replacement for autoSizeColumn, which re-measures every cell)
+     */
+    private static class ColumnWidths {
+        private static final int SAMPLE_ROWS = 200;
+        private static final int MAX_CHARS = 80;
+        
+        private final int[] maxChars;
+        private int sampledRows;
+        private int lastRow = -1;
+        
+        ColumnWidths(int columns) {
+            maxChars = new int[columns];
+        }
+        
+        void set(Row row, int column, String value) {
+            row.createCell(column).setCellValue(value);
+            sample(row, column, value != null ? value.length() : 0);
+        }
+        
+        void set(Row row, int column, Number value) {
+            Cell cell = row.createCell(column);
+            if (value != null) cell.setCellValue(value.doubleValue());
+            sample(row, column, value != null ? value.toString().length() : 0);
+        }
+        
+        private void sample(Row row, int column, int length) {
+            if (row.getRowNum() != lastRow) {
+                lastRow = row.getRowNum();
+                sampledRows++;
+            }
+            if (sampledRows <= SAMPLE_ROWS) {
+                maxChars[column] = Math.max(maxChars[column], Math.min(length, MAX_CHARS));
+            }
+        }
+        
+        void apply(Sheet sheet) {
+            for (int i = 0; i < maxChars.length; i++) {
+                sheet.setColumnWidth(i, (Math.max(maxChars[i], 4) + 2) * 256);
+            }
+        }
+    }
+    
     /**
      * Analytics data container for exports
      */
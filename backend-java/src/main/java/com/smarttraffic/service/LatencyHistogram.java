@@ -0,0 +1,102 @@
+package com.smarttraffic.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets over microseconds.
+ *
+ * Each power of two is split into 4 linear sub-buckets, so a recorded value is off by
+ * at most 25% and percentiles stay meaningful from microseconds up to minutes with a
+ * fixed 164-slot array. Recording never locks.
+ */
+public class LatencyHistogram {
+    
+    private static final int SUB_BUCKETS = 4;
+    private static final int MAX_EXPONENT = 41; // ~25 days in microseconds
+    private static final int BUCKETS = SUB_BUCKETS * MAX_EXPONENT;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+    
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0L, nanos / 1_000L);
+        counts.incrementAndGet(bucketOf(micros));
+        count.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+    
+    public long count() {
+        return count.sum();
+    }
+    
+    public double meanMillis() {
+        long n = count.sum();
+        return n > 0 ? sumMicros.sum() / 1_000.0 / n : 0.0;
+    }
+    
+    public double maxMillis() {
+        return maxMicros.get() / 1_000.0;
+    }
+    
+    /**
+     * Upper bound of the bucket holding the given quantile (0..1), capped at the observed maximum
+     */
+    public double percentileMillis(double quantile) {
+        long n = count.sum();
+        if (n == 0) return 0.0;
+        
+        long rank = Math.max(1L, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros.get()) / 1_000.0;
+            }
+        }
+        return maxMillis();
+    }
+    
+    /**
+     * Non-empty buckets keyed by their upper bound in milliseconds
+     */
+    public Map<Double, Long> bucketsMillis() {
+        Map<Double, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                buckets.put(upperBound(i) / 1_000.0, c);
+            }
+        }
+        return buckets;
+    }
+    
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, SUB_BUCKETS * (exponent - 1) + sub);
+    }
+    
+    /**
+     * Exclusive upper bound (in microseconds) of a bucket
+     */
+    static long upperBound(int bucket) {
+        return lowerBound(bucket + 1);
+    }
+    
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        
+        int exponent = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - 2);
+    }
+}
@@ -0,0 +1,94 @@
+package com.smarttraffic.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smarttraffic.simulation.NetworkTopology;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Loads network topologies by name from {@code traffic.network.topology-directory},
+ * falling back to the ones bundled under {@code classpath:topologies/}.
+ * Files may be JSON ({@code <name>.json}) or YAML ({@code <name>.yaml|.yml}).
+ */
+@Service
+@Slf4j
+public class NetworkTopologyService {
+    
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,100}");
+    private static final String[] EXTENSIONS = {".json", ".yaml", ".yml"};
+    
+    private final ObjectMapper mapper;
+    private final Path directory;
+    private final Map<String, NetworkTopology> cache = new ConcurrentHashMap<>();
+    
+    public NetworkTopologyService(
+        ObjectMapper objectMapper,
+        @Value("${traffic.network.topology-directory:./topologies}") String directory
+    ) {
+        this.mapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+        this.directory = Path.of(directory);
+    }
+    
+    /**
+     * Parsed topology (grids expanded), or empty if no file with that name exists.
+     * Throws {@link IllegalArgumentException} for invalid names or malformed files.
+     */
+    public Optional<NetworkTopology> find(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid topology name " + name);
+        }
+        
+        NetworkTopology cached = cache.get(name);
+        if (cached != null) return Optional.of(cached);
+        
+        return locate(name).map(resource -> {
+            NetworkTopology topology = parse(resource).expand();
+            if (topology.getName() == null) topology.setName(name);
+            cache.put(name, topology);
+            log.info("Loaded topology {}: {} intersections, {} links",
+                name, topology.getIntersections().size(), topology.getLinks().size());
+            return topology;
+        });
+    }
+    
+    private Optional<Resource> locate(String name) {
+        for (String extension : EXTENSIONS) {
+            Resource file = new FileSystemResource(directory.resolve(name + extension));
+            if (file.exists()) return Optional.of(file);
+        }
+        for (String extension : EXTENSIONS) {
+            Resource bundled = new ClassPathResource("topologies/" + name + extension);
+            if (bundled.exists()) return Optional.of(bundled);
+        }
+        return Optional.empty();
+    }
+    
+    private NetworkTopology parse(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            if (resource.getFilename() != null && resource.getFilename().endsWith(".json")) {
+                return mapper.readValue(in, NetworkTopology.class);
+            }
+            Object yaml = new Yaml().load(in);
+            return mapper.convertValue(yaml, NetworkTopology.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read topology " + resource.getDescription(), e);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed topology " + resource.getDescription() + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.model.OptimizationRecommendation;
+import com.smarttraffic.repository.OptimizationRecommendationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background analyzer that turns the road snapshot stream into optimization recommendations.
+ *
+ * Each simulation keeps a sliding window of the last {@code window-size} snapshots per
+ * road with running sums, so a new snapshot costs O(roads) regardless of run length.
+ * Detected conditions:
+ * - persistent queue build-up on an approach
+ * - starved approaches (long waits with almost no green in the window)
+ * - cycle length too short (all approaches queued) or too long (all approaches idle)
+ * Recommendations are deduplicated per (simulation, road, condition) with a cooldown; a
+ * condition that persists updates its pending recommendation instead of adding another.
+ */
+@Service
+@Slf4j
+public class RecommendationEngine {
+    
+    private static final String INTERSECTION = "Intersection";
+    
+    private final OptimizationRecommendationRepository recommendationRepository;
+    
+    @Value("${traffic.recommendations.window-size:30}")
+    private int windowSize;
+    
+    @Value("${traffic.recommendations.queue-threshold:15}")
+    private double queueThreshold;
+    
+    @Value("${traffic.recommendations.queue-growth:5}")
+    private int queueGrowth;
+    
+    @Value("${traffic.recommendations.idle-queue-threshold:3}")
+    private double idleQueueThreshold;
+    
+    @Value("${traffic.recommendations.starved-green-share:0.1}")
+    private double starvedGreenShare;
+    
+    @Value("${traffic.recommendations.starved-wait-time:60}")
+    private double starvedWaitTime;
+    
+    @Value("${traffic.recommendations.cooldown-minutes:10}")
+    private long cooldownMinutes;
+    
+    private final BlockingQueue<RoadSnapshotEvent> inbox;
+    private final Map<String, SimulationWindow> windows = new ConcurrentHashMap<>();
+    private final Map<String, LocalDateTime> lastIssued = new ConcurrentHashMap<>();
+    
+    public RecommendationEngine(
+        OptimizationRecommendationRepository recommendationRepository,
+        @Value("${traffic.recommendations.inbox-capacity:10000}") int inboxCapacity
+    ) {
+        this.recommendationRepository = recommendationRepository;
+        this.inbox = new ArrayBlockingQueue<>(inboxCapacity);
+    }
+    
+    /**
+     * Called on the tick thread; only enqueues
+     */
+    @EventListener
+    public void onSnapshot(RoadSnapshotEvent snapshot) {
+        if (!inbox.offer(snapshot)) {
+            log.warn("Recommendation inbox full, dropping snapshot of simulation {}", snapshot.simulationId());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${traffic.recommendations.analysis-interval:1000}")
+    public void analyzePending() {
+        List<RoadSnapshotEvent> batch = new ArrayList<>();
+        inbox.drainTo(batch);
+        if (batch.isEmpty()) return;
+        
+        List<OptimizationRecommendation> recommendations = new ArrayList<>();
+        for (RoadSnapshotEvent snapshot : batch) {
+            SimulationWindow window = windows.computeIfAbsent(snapshot.simulationId(),
+                id -> new SimulationWindow(snapshot.roadNames().length, windowSize));
+            window.add(snapshot);
+            analyze(snapshot, window, recommendations);
+        }
+        
+        if (!recommendations.isEmpty()) {
+            recommendationRepository.saveAll(recommendations);
+            log.info("Generated or updated {} optimization recommendations", recommendations.size());
+        }
+    }
+    
+    /**
+     * Drop windows of simulations that stopped sending snapshots
+     */
+    @Scheduled(fixedDelayString = "${traffic.recommendations.idle-eviction-interval:300000}")
+    public void evictIdleWindows() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(30);
+        windows.entrySet().removeIf(entry -> entry.getValue().lastSeen.isBefore(cutoff));
+        lastIssued.values().removeIf(issued -> issued.isBefore(cutoff.minusMinutes(cooldownMinutes)));
+    }
+    
+    private void analyze(RoadSnapshotEvent snapshot, SimulationWindow window, List<OptimizationRecommendation> out) {
+        if (!window.isFull()) return;
+        
+        String simulationId = snapshot.simulationId();
+        int roads = window.roads.length;
+        int queuedRoads = 0;
+        int idleRoads = 0;
+        
+        for (int i = 0; i < roads; i++) {
+            RoadWindow road = window.roads[i];
+            String roadName = snapshot.roadNames()[i];
+            double meanQueue = road.meanQueue();
+            
+            if (meanQueue > queueThreshold) queuedRoads++;
+            if (meanQueue < idleQueueThreshold) idleRoads++;
+            
+            int growth = road.newestQueue() - road.oldestQueue();
+            if (meanQueue > queueThreshold && growth >= queueGrowth) {
+                issue(out, simulationId, roadName, "queue", "timing",
+                    meanQueue > 2 * queueThreshold ? "critical" : meanQueue > 1.5 * queueThreshold ? "high" : "medium",
+                    String.format("Queue on %s grew from %d to %d over the last %d snapshots (mean %.1f). " +
+                            "Extend its green split or add a dedicated phase.",
+                        roadName, road.oldestQueue(), road.newestQueue(), windowSize, meanQueue),
+                    Math.min(40.0, (meanQueue - queueThreshold) / meanQueue * 50.0));
+            }
+            
+            if (road.greenShare() < starvedGreenShare && road.meanWait() > starvedWaitTime) {
+                issue(out, simulationId, roadName, "starved", "timing", "high",
+                    String.format("%s is starved: green in %.0f%% of recent snapshots with mean wait %.1fs. " +
+                            "Guarantee it a minimum green time each cycle.",
+                        roadName, road.greenShare() * 100.0, road.meanWait()),
+                    Math.min(35.0, (road.meanWait() - starvedWaitTime) / road.meanWait() * 60.0));
+            }
+        }
+        
+        double cycleLength = snapshot.cycleLength();
+        if (queuedRoads == roads && cycleLength < 90.0) {
+            double proposed = Math.min(90.0, cycleLength + 15.0);
+            issue(out, simulationId, INTERSECTION, "cycle-short", "timing", "high",
+                String.format("All approaches are persistently queued with a %.0fs cycle. " +
+                    "Increase the cycle length to %.0fs to reduce lost time per vehicle.", cycleLength, proposed),
+                Math.min(25.0, (proposed - cycleLength) / proposed * 40.0));
+        } else if (idleRoads == roads && cycleLength > 45.0) {
+            double proposed = Math.max(45.0, cycleLength - 15.0);
+            issue(out, simulationId, INTERSECTION, "cycle-long", "timing", "low",
+                String.format("All approaches are nearly empty with a %.0fs cycle. " +
+                    "Shorten the cycle to %.0fs to cut red time on arrival.", cycleLength, proposed),
+                Math.min(20.0, (cycleLength - proposed) / cycleLength * 30.0));
+        }
+    }
+    
+    private void issue(List<OptimizationRecommendation> out, String simulationId, String roadName,
+                       String condition, String category, String priority, String text, double expectedImprovement) {
+        String key = simulationId + "|" + roadName + "|" + condition;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime previous = lastIssued.get(key);
+        if (previous != null && previous.isAfter(now.minusMinutes(cooldownMinutes))) {
+            return;
+        }
+        lastIssued.put(key, now);
+        
+        // The cooldown is in memory only; the pending row also covers earlier cooldowns and restarts
+        OptimizationRecommendation recommendation = recommendationRepository
+            .findFirstBySimulationIdAndRoadNameAndConditionAndStatus(simulationId, roadName, condition, "pending")
+            .orElseGet(() -> OptimizationRecommendation.builder()
+                .id(UUID.randomUUID().toString())
+                .simulationId(simulationId)
+                .roadName(roadName)
+                .condition(condition)
+                .status("pending")
+                .createdAt(now)
+                .build());
+        recommendation.setCategory(category);
+        recommendation.setPriority(priority);
+        recommendation.setRecommendation(text);
+        recommendation.setExpectedImprovement(Math.round(Math.max(0.0, expectedImprovement) * 10.0) / 10.0);
+        out.add(recommendation);
+    }
+    
+    /**
+     * Per-simulation sliding windows, one per road
+     */
+    private static class SimulationWindow {
+        final RoadWindow[] roads;
+        volatile LocalDateTime lastSeen = LocalDateTime.now();
+        
+        SimulationWindow(int roadCount, int size) {
+            roads = new RoadWindow[roadCount];
+            for (int i = 0; i < roadCount; i++) {
+                roads[i] = new RoadWindow(size);
+            }
+        }
+        
+        void add(RoadSnapshotEvent snapshot) {
+            lastSeen = LocalDateTime.now();
+            for (int i = 0; i < roads.length && i < snapshot.queues().length; i++) {
+                roads[i].add(snapshot.queues()[i], snapshot.waitTimes()[i], "green".equals(snapshot.lights()[i]));
+            }
+        }
+        
+        boolean isFull() {
+            return roads.length > 0 && roads[0].count == roads[0].queues.length;
+        }
+    }
+    
+    /**
+     * Fixed-size ring of recent samples with running sums (O(1) per sample)
+     */
+    private static class RoadWindow {
+        final int[] queues;
+        final double[] waits;
+        final boolean[] green;
+        int next;
+        int count;
+        long queueSum;
+        double waitSum;
+        int greenCount;
+        
+        RoadWindow(int size) {
+            queues = new int[size];
+            waits = new double[size];
+            green = new boolean[size];
+        }
+        
+        void add(int queue, double wait, boolean isGreen) {
+            if (count == queues.length) {
+                queueSum -= queues[next];
+                waitSum -= waits[next];
+                if (green[next]) greenCount--;
+            } else {
+                count++;
+            }
+            queues[next] = queue;
+            waits[next] = wait;
+            green[next] = isGreen;
+            queueSum += queue;
+            waitSum += wait;
+            if (isGreen) greenCount++;
+            next = (next + 1) % queues.length;
+        }
+        
+        double meanQueue() {
+            return (double) queueSum / count;
+        }
+        
+        double meanWait() {
+            return waitSum / count;
+        }
+        
+        double greenShare() {
+            return (double) greenCount / count;
+        }
+        
+        int newestQueue() {
+            return queues[(next - 1 + queues.length) % queues.length];
+        }
+        
+        int oldestQueue() {
+            return count == queues.length ? queues[next] : queues[0];
+        }
+    }
+}
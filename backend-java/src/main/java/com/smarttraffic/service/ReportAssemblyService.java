@@ -0,0 +1,123 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.RoadAggregateDTO;
+import com.smarttraffic.dto.RoadHourlyVolumeDTO;
+import com.smarttraffic.dto.RunAggregateStatsDTO;
+import com.smarttraffic.dto.SimulationSummaryDTO;
+import com.smarttraffic.model.OptimizationRecommendation;
+import com.smarttraffic.repository.OptimizationRecommendationRepository;
+import com.smarttraffic.repository.RoadPerformanceRepository;
+import com.smarttraffic.repository.SimulationRunRepository;
+import com.smarttraffic.repository.TrafficEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Builds {@link ExportService.AnalyticsData} for a run on the server, so reports
+ * no longer need the client to download raw data and post it back.
+ *
+ * Everything comes from a handful of grouped queries (one row per road, or per
+ * road and hour), never from loading individual snapshots.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReportAssemblyService {
+    
+    private static final LocalDateTime RANGE_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime RANGE_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
+    private final SimulationRunRepository simulationRunRepository;
+    private final RoadPerformanceRepository roadPerformanceRepository;
+    private final TrafficEventRepository trafficEventRepository;
+    private final OptimizationRecommendationRepository recommendationRepository;
+    
+    @Value("${export.report.max-recommendations:50}")
+    private int maxRecommendations;
+    
+    /**
+     * Assemble report data for a run, optionally limited to [from, to);
+     * empty if the run does not exist. Throughput is only tracked per run,
+     * so it is the run total even for a time range.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ExportService.AnalyticsData> assemble(String simulationId, LocalDateTime from, LocalDateTime to) {
+        Optional<SimulationSummaryDTO> run = simulationRunRepository.findSummaryById(simulationId);
+        if (run.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        LocalDateTime start = from != null ? from : RANGE_START;
+        LocalDateTime end = to != null ? to : RANGE_END;
+        long startNanos = System.nanoTime();
+        
+        RunAggregateStatsDTO totals = roadPerformanceRepository.calculateRangeAggregates(simulationId, start, end);
+        List<RoadAggregateDTO> roads = roadPerformanceRepository.aggregateByRoad(simulationId, start, end);
+        Map<String, Integer> peakHours = peakHourByRoad(
+            roadPerformanceRepository.sumVehiclesByRoadAndHour(simulationId, start, end));
+        long emergencies = trafficEventRepository.countBySimulationTypeAndTimeRange(simulationId, "emergency", start, end);
+        List<OptimizationRecommendation> recommendations = recommendationRepository.findForReport(
+            simulationId, start, end, PageRequest.of(0, maxRecommendations));
+        
+        // A run without snapshots yet falls back to its own counters; an empty time range reports zeros
+        boolean hasSnapshots = totals != null && totals.getSnapshotCount() != null && totals.getSnapshotCount() > 0;
+        boolean useRunTotals = !hasSnapshots && from == null && to == null;
+        ExportService.AnalyticsData data = new ExportService.AnalyticsData();
+        data.setSystemEfficiency(round(useRunTotals ? run.get().getEfficiency() : hasSnapshots ? totals.getAvgEfficiency() : null));
+        data.setAvgWaitTime(round(useRunTotals ? run.get().getAvgWaitTime() : hasSnapshots ? totals.getAvgWaitTime() : null));
+        data.setTotalThroughput(Optional.ofNullable(run.get().getTotalProcessed()).orElse(0));
+        data.setEmergencyEvents((int) emergencies);
+        data.setRoadPerformance(roads.stream().map(road -> toRoadData(road, peakHours.get(road.getRoadName()))).toList());
+        data.setRecommendations(recommendations.stream().map(ReportAssemblyService::toRecommendationData).toList());
+        
+        log.debug("Assembled report for simulation {} ({} roads, {} recommendations) in {} ms", simulationId,
+            roads.size(), recommendations.size(), (System.nanoTime() - startNanos) / 1_000_000L);
+        return Optional.of(data);
+    }
+    
+    private static Map<String, Integer> peakHourByRoad(List<RoadHourlyVolumeDTO> volumes) {
+        Map<String, RoadHourlyVolumeDTO> peaks = new HashMap<>();
+        for (RoadHourlyVolumeDTO volume : volumes) {
+            peaks.merge(volume.getRoadName(), volume, (a, b) -> valueOf(b.getVehicles()) > valueOf(a.getVehicles()) ? b : a);
+        }
+        Map<String, Integer> hours = new HashMap<>();
+        peaks.forEach((road, peak) -> hours.put(road, peak.getHour()));
+        return hours;
+    }
+    
+    private static ExportService.RoadPerformanceData toRoadData(RoadAggregateDTO road, Integer peakHour) {
+        ExportService.RoadPerformanceData data = new ExportService.RoadPerformanceData();
+        data.setRoadName(road.getRoadName());
+        data.setVehicles((int) Math.round(road.getAvgVehicles() != null ? road.getAvgVehicles() : 0.0));
+        data.setWaitTime(round(road.getAvgWaitTime()));
+        data.setEfficiency(round(road.getAvgEfficiency()));
+        data.setQueueLength((int) Math.round(road.getAvgQueueLength() != null ? road.getAvgQueueLength() : 0.0));
+        data.setPeakTraffic(peakHour != null ? String.format("%02d:00-%02d:00", peakHour, (peakHour + 1) % 24) : "N/A");
+        return data;
+    }
+    
+    private static ExportService.RecommendationData toRecommendationData(OptimizationRecommendation rec) {
+        ExportService.RecommendationData data = new ExportService.RecommendationData();
+        data.setRoadName(rec.getRoadName());
+        data.setSeverity(rec.getPriority());
+        data.setRecommendation(rec.getRecommendation());
+        data.setEstimatedImpact(rec.getExpectedImprovement() != null
+            ? String.format("%.1f%%", rec.getExpectedImprovement()) : "N/A");
+        return data;
+    }
+    
+    private static Double round(Double value) {
+        return value != null ? Math.round(value * 10.0) / 10.0 : 0.0;
+    }
+    
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+}
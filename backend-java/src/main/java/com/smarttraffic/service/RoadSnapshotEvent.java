@@ -0,0 +1,41 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.RoadDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable copy of the road state at a snapshot, published to in-process listeners
+ */
+public record RoadSnapshotEvent(
+    String simulationId,
+    LocalDateTime timestamp,
+    double cycleLength,
+    String[] roadNames,
+    String[] lights,
+    int[] vehicles,
+    int[] queues,
+    double[] waitTimes
+) {
+    
+    static RoadSnapshotEvent of(String simulationId, double cycleLength, List<RoadDTO> roads) {
+        int n = roads.size();
+        String[] names = new String[n];
+        String[] lights = new String[n];
+        int[] vehicles = new int[n];
+        int[] queues = new int[n];
+        double[] waitTimes = new double[n];
+        
+        for (int i = 0; i < n; i++) {
+            RoadDTO road = roads.get(i);
+            names[i] = road.getName();
+            lights[i] = road.getLight();
+            vehicles[i] = road.getVehicles();
+            queues[i] = road.getQueue();
+            waitTimes[i] = road.getWaitTime();
+        }
+        
+        return new RoadSnapshotEvent(simulationId, LocalDateTime.now(), cycleLength, names, lights, vehicles, queues, waitTimes);
+    }
+}
@@ -0,0 +1,104 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.RoadDTO;
+import com.smarttraffic.model.RoadPerformance;
+import com.smarttraffic.repository.SimulationRunRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the periodic road performance snapshots off the tick path.
+ *
+ * {@link #submit} only queues the snapshot; a background flush inserts each one in
+ * its own transaction. A network snapshot has a row per approach (4,096 for a 32x32
+ * grid), which would otherwise hold up the tick that took it for most of a second.
+ * When the writer falls behind, new snapshots are dropped rather than queued without bound.
+ */
+@Service
+@Slf4j
+public class RoadSnapshotWriter {
+    
+    private final SimulationRunRepository simulationRunRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final BlockingQueue<Snapshot> pending;
+    
+    public RoadSnapshotWriter(
+        SimulationRunRepository simulationRunRepository,
+        PlatformTransactionManager transactionManager,
+        @Value("${traffic.snapshots.pending-capacity:64}") int pendingCapacity
+    ) {
+        this.simulationRunRepository = simulationRunRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pending = new ArrayBlockingQueue<>(pendingCapacity);
+    }
+    
+    /**
+     * Queue a snapshot; never blocks and never touches the database
+     *
+     * @param roads copies, not the live road list
+     */
+    public void submit(String simulationId, List<RoadDTO> roads) {
+        if (!pending.offer(new Snapshot(simulationId, LocalDateTime.now(), roads))) {
+            log.warn("Road snapshot backlog full, snapshot of simulation {} will not be persisted", simulationId);
+        }
+    }
+    
+    /**
+     * Persist queued snapshots, one transaction each
+     */
+    @Scheduled(fixedDelayString = "${traffic.snapshots.flush-interval:1000}")
+    public void flush() {
+        List<Snapshot> batch = new ArrayList<>();
+        pending.drainTo(batch);
+        for (Snapshot snapshot : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(snapshot));
+            } catch (Exception e) {
+                log.error("Failed to persist road snapshot of simulation {}: {}", snapshot.simulationId(), e.getMessage());
+            }
+        }
+    }
+    
+    private void insert(Snapshot snapshot) {
+        if (!simulationRunRepository.existsById(snapshot.simulationId())) return;
+        
+        for (RoadDTO road : snapshot.roads()) {
+            // persist (not merge) so assigned ids do not trigger a SELECT per row
+            entityManager.persist(RoadPerformance.builder()
+                .id(UUID.randomUUID().toString())
+                .simulationRun(simulationRunRepository.getReferenceById(snapshot.simulationId()))
+                .roadName(road.getName())
+                .roadDirection(road.getDirection())
+                .vehicles(road.getVehicles())
+                .waitTime(road.getWaitTime())
+                .queueLength(road.getQueue())
+                .efficiency(road.getPerformance())
+                .signalState(road.getLight())
+                .timestamp(snapshot.timestamp())
+                .build());
+        }
+        // Detach the rows so the commit does not dirty-check thousands of entities
+        entityManager.flush();
+        entityManager.clear();
+    }
+    
+    private record Snapshot(String simulationId, LocalDateTime timestamp, List<RoadDTO> roads) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.CacheStatsDTO;
+import com.smarttraffic.dto.RunAggregateStatsDTO;
+import com.smarttraffic.dto.RunPageDTO;
+import com.smarttraffic.dto.SimulationSummaryDTO;
+import com.smarttraffic.model.OptimizationRecommendation;
+import com.smarttraffic.repository.OptimizationRecommendationRepository;
+import com.smarttraffic.repository.RoadPerformanceRepository;
+import com.smarttraffic.repository.SimulationRunRepository;
+import com.smarttraffic.repository.TrafficEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Read side for finished and running simulation runs.
+ * Completed runs never change, so their summaries and aggregate stats are kept
+ * in a bounded read-through cache; running/paused runs always go to the database.
+ */
+@Service
+@Slf4j
+public class SimulationHistoryService {
+    
+    private static final String COMPLETED = "completed";
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final Set<String> SORTABLE_FIELDS = Set.of(
+        "startTime", "endTime", "efficiency", "avgWaitTime", "totalProcessed");
+    
+    private final SimulationRunRepository simulationRunRepository;
+    private final RoadPerformanceRepository roadPerformanceRepository;
+    private final TrafficEventRepository trafficEventRepository;
+    private final OptimizationRecommendationRepository recommendationRepository;
+    
+    private final BoundedTtlCache<String, SimulationSummaryDTO> summaryCache;
+    private final BoundedTtlCache<String, RunAggregateStatsDTO> aggregateCache;
+    
+    public SimulationHistoryService(
+        SimulationRunRepository simulationRunRepository,
+        RoadPerformanceRepository roadPerformanceRepository,
+        TrafficEventRepository trafficEventRepository,
+        OptimizationRecommendationRepository recommendationRepository,
+        @Value("${traffic.cache.completed-runs.max-entries:1000}") int maxEntries,
+        @Value("${traffic.cache.completed-runs.ttl-seconds:600}") long ttlSeconds
+    ) {
+        this.simulationRunRepository = simulationRunRepository;
+        this.roadPerformanceRepository = roadPerformanceRepository;
+        this.trafficEventRepository = trafficEventRepository;
+        this.recommendationRepository = recommendationRepository;
+        this.summaryCache = new BoundedTtlCache<>("run-summaries", maxEntries, ttlSeconds);
+        this.aggregateCache = new BoundedTtlCache<>("run-aggregates", maxEntries, ttlSeconds);
+    }
+    
+    /**
+     * Get the summary columns of a run (cached once the run is completed)
+     */
+    @Transactional(readOnly = true)
+    public Optional<SimulationSummaryDTO> getSummary(String simulationId) {
+        return summaryCache.get(simulationId,
+            simulationRunRepository::findSummaryById,
+            summary -> COMPLETED.equals(summary.getStatus()));
+    }
+    
+    /**
+     * Get aggregate road statistics of a run (cached once the run is completed)
+     */
+    @Transactional(readOnly = true)
+    public Optional<RunAggregateStatsDTO> getAggregateStats(String simulationId) {
+        Optional<SimulationSummaryDTO> summary = getSummary(simulationId);
+        if (summary.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        boolean completed = COMPLETED.equals(summary.get().getStatus());
+        return aggregateCache.get(simulationId, this::loadAggregateStats, stats -> completed);
+    }
+    
+    /**
+     * List a user's runs, optionally filtered by status
+     */
+    @Transactional(readOnly = true)
+    public RunPageDTO listRunsByUser(String userId, String status, int page, int size, String sort) {
+        Pageable pageable = pageRequest(page, size, sort);
+        Slice<SimulationSummaryDTO> slice = status == null
+            ? simulationRunRepository.findSummariesByUserId(userId, pageable)
+            : simulationRunRepository.findSummariesByUserIdAndStatus(userId, status, pageable);
+        return toPage(slice);
+    }
+    
+    /**
+     * List runs in a given status
+     */
+    @Transactional(readOnly = true)
+    public RunPageDTO listRunsByStatus(String status, int page, int size, String sort) {
+        return toPage(simulationRunRepository.findSummariesByStatus(status, pageRequest(page, size, sort)));
+    }
+    
+    /**
+     * List runs started within a date range
+     */
+    @Transactional(readOnly = true)
+    public RunPageDTO listRunsByDateRange(LocalDateTime start, LocalDateTime end, int page, int size, String sort) {
+        return toPage(simulationRunRepository.findSummariesByDateRange(start, end, pageRequest(page, size, sort)));
+    }
+    
+    /**
+     * Best runs by efficiency, limited in SQL
+     */
+    @Transactional(readOnly = true)
+    public List<SimulationSummaryDTO> listTopPerforming(Double minEfficiency, int limit) {
+        return simulationRunRepository.findTopPerformingSummaries(
+            minEfficiency, PageRequest.of(0, clampSize(limit)));
+    }
+    
+    /**
+     * Pending optimization recommendations of a run, most urgent first
+     */
+    @Transactional(readOnly = true)
+    public List<OptimizationRecommendation> getPendingRecommendations(String simulationId) {
+        return recommendationRepository.findPendingRecommendationsByPriority(simulationId);
+    }
+    
+    /**
+     * Drop cached entries for a run whose status changed
+     */
+    public void evict(String simulationId) {
+        summaryCache.invalidate(simulationId);
+        aggregateCache.invalidate(simulationId);
+    }
+    
+    public List<CacheStatsDTO> getCacheStats() {
+        return List.of(summaryCache.stats(), aggregateCache.stats());
+    }
+    
+    @Scheduled(fixedDelayString = "${traffic.cache.completed-runs.purge-interval:60000}")
+    public void purgeExpiredEntries() {
+        summaryCache.purgeExpired();
+        aggregateCache.purgeExpired();
+    }
+    
+    /**
+     * Build a page request from "field,dir" sort syntax; unknown fields fall back to startTime
+     */
+    private Pageable pageRequest(int page, int size, String sort) {
+        String field = "startTime";
+        Sort.Direction direction = Sort.Direction.DESC;
+        
+        if (sort != null && !sort.isBlank()) {
+            String[] parts = sort.split(",");
+            if (SORTABLE_FIELDS.contains(parts[0].trim())) {
+                field = parts[0].trim();
+            }
+            if (parts.length > 1 && "asc".equalsIgnoreCase(parts[1].trim())) {
+                direction = Sort.Direction.ASC;
+            }
+        }
+        
+        return PageRequest.of(Math.max(0, page), clampSize(size), Sort.by(direction, field));
+    }
+    
+    private int clampSize(int size) {
+        return Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+    }
+    
+    private RunPageDTO toPage(Slice<SimulationSummaryDTO> slice) {
+        return RunPageDTO.builder()
+            .runs(slice.getContent())
+            .page(slice.getNumber())
+            .size(slice.getSize())
+            .hasNext(slice.hasNext())
+            .build();
+    }
+    
+    private Optional<RunAggregateStatsDTO> loadAggregateStats(String simulationId) {
+        RunAggregateStatsDTO stats = roadPerformanceRepository.calculateRunAggregates(simulationId);
+        stats.setSimulationId(simulationId);
+        stats.setEmergencyEvents(trafficEventRepository.countEmergencyEvents(simulationId));
+        log.debug("Loaded aggregate stats for simulation {} ({} snapshots)", simulationId, stats.getSnapshotCount());
+        return Optional.of(stats);
+    }
+}
@@ -0,0 +1,281 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.RetentionReportDTO;
+import com.smarttraffic.dto.RoadPerformanceRowDTO;
+import com.smarttraffic.model.RoadPerformanceRollup;
+import com.smarttraffic.model.TrafficEvent;
+import com.smarttraffic.repository.RoadPerformanceRepository;
+import com.smarttraffic.repository.RoadPerformanceRollupRepository;
+import com.smarttraffic.repository.TrafficEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Background retention for the telemetry tables.
+ *
+ * Raw road_performance snapshots older than {@code raw-days} are folded into
+ * hourly rollups and deleted; rollups older than {@code rollup-days} and
+ * traffic_events older than {@code event-days} are deleted. Work is done in
+ * small (timestamp, id) keyset chunks, each in its own short transaction, with
+ * a pause between chunks so the job never holds long locks or hogs the pool.
+ */
+@Service
+@Slf4j
+public class TelemetryRetentionService {
+    
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    private final RoadPerformanceRepository roadPerformanceRepository;
+    private final RoadPerformanceRollupRepository rollupRepository;
+    private final TrafficEventRepository trafficEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${traffic.retention.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${traffic.retention.raw-days:7}")
+    private int rawDays;
+    
+    @Value("${traffic.retention.rollup-days:365}")
+    private int rollupDays;
+    
+    @Value("${traffic.retention.event-days:90}")
+    private int eventDays;
+    
+    @Value("${traffic.retention.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${traffic.retention.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+    
+    @Value("${traffic.retention.max-run-seconds:300}")
+    private long maxRunSeconds;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile RetentionReportDTO lastReport;
+    
+    public TelemetryRetentionService(
+        RoadPerformanceRepository roadPerformanceRepository,
+        RoadPerformanceRollupRepository rollupRepository,
+        TrafficEventRepository trafficEventRepository,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.roadPerformanceRepository = roadPerformanceRepository;
+        this.rollupRepository = rollupRepository;
+        this.trafficEventRepository = trafficEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @Scheduled(initialDelayString = "${traffic.retention.initial-delay:60000}",
+               fixedDelayString = "${traffic.retention.interval:3600000}")
+    public void scheduledRun() {
+        if (enabled) {
+            runRetention();
+        }
+    }
+    
+    /**
+     * Run one retention pass; returns null if a pass is already in progress
+     */
+    public RetentionReportDTO runRetention() {
+        if (!running.compareAndSet(false, true)) {
+            log.debug("Retention pass already running, skipping");
+            return null;
+        }
+        
+        try {
+            RetentionRun run = new RetentionRun();
+            LocalDateTime now = LocalDateTime.now();
+            
+            rollUpAndPurgeSnapshots(now.minusDays(rawDays), run);
+            purgeRollups(now.minusDays(rollupDays), run);
+            purgeEvents(now.minusDays(eventDays), run);
+            
+            RetentionReportDTO report = run.toReport();
+            lastReport = report;
+            log.info("Retention pass finished in {} ms: {} snapshots rolled up and purged, {} rollups, {} events purged ({} chunks)",
+                report.getDurationMs(), report.getSnapshotsPurged(), report.getRollupsPurged(),
+                report.getEventsPurged(), report.getChunks());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    public Optional<RetentionReportDTO> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+    
+    private void rollUpAndPurgeSnapshots(LocalDateTime cutoff, RetentionRun run) {
+        LocalDateTime afterTimestamp = KEYSET_START;
+        String afterId = "";
+        
+        while (run.hasBudget()) {
+            List<RoadPerformanceRowDTO> chunk = roadPerformanceRepository.findExpiredChunk(
+                cutoff, afterTimestamp, afterId, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) break;
+            
+            Integer purged = transactionTemplate.execute(status -> {
+                mergeIntoRollups(chunk);
+                return roadPerformanceRepository.deleteByIdIn(ids(chunk, RoadPerformanceRowDTO::getId));
+            });
+            
+            run.snapshotsRolledUp += chunk.size();
+            run.snapshotsPurged += purged != null ? purged : 0;
+            RoadPerformanceRowDTO last = chunk.get(chunk.size() - 1);
+            afterTimestamp = last.getTimestamp();
+            afterId = last.getId();
+            
+            if (chunk.size() < chunkSize) break;
+            run.pause();
+        }
+    }
+    
+    private void purgeRollups(LocalDateTime cutoff, RetentionRun run) {
+        while (run.hasBudget()) {
+            List<String> ids = rollupRepository.findExpiredIds(cutoff, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) break;
+            
+            Integer purged = transactionTemplate.execute(status -> rollupRepository.deleteByIdIn(ids));
+            run.rollupsPurged += purged != null ? purged : 0;
+            
+            if (ids.size() < chunkSize) break;
+            run.pause();
+        }
+    }
+    
+    private void purgeEvents(LocalDateTime cutoff, RetentionRun run) {
+        LocalDateTime afterTimestamp = KEYSET_START;
+        String afterId = "";
+        
+        while (run.hasBudget()) {
+            List<TrafficEvent> chunk = trafficEventRepository.findExpiredChunk(
+                cutoff, afterTimestamp, afterId, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) break;
+            
+            Integer purged = transactionTemplate.execute(status ->
+                trafficEventRepository.deleteByIdIn(ids(chunk, TrafficEvent::getId)));
+            run.eventsPurged += purged != null ? purged : 0;
+            
+            TrafficEvent last = chunk.get(chunk.size() - 1);
+            afterTimestamp = last.getTimestamp();
+            afterId = last.getId();
+            
+            if (chunk.size() < chunkSize) break;
+            run.pause();
+        }
+    }
+    
+    /**
+     * Fold a chunk of raw snapshots into hourly rollups (weighted merge with existing buckets)
+     */
+    private void mergeIntoRollups(List<RoadPerformanceRowDTO> chunk) {
+        Map<String, RoadPerformanceRollup> buckets = new LinkedHashMap<>();
+        
+        for (RoadPerformanceRowDTO row : chunk) {
+            LocalDateTime bucketStart = row.getTimestamp().truncatedTo(ChronoUnit.HOURS);
+            String key = row.getSimulationId() + "|" + row.getRoadName() + "|" + bucketStart;
+            
+            RoadPerformanceRollup rollup = buckets.computeIfAbsent(key, k ->
+                rollupRepository.findBySimulationIdAndRoadNameAndBucketStart(
+                        row.getSimulationId(), row.getRoadName(), bucketStart)
+                    .orElseGet(() -> RoadPerformanceRollup.builder()
+                        .id(UUID.randomUUID().toString())
+                        .simulationId(row.getSimulationId())
+                        .roadName(row.getRoadName())
+                        .bucketStart(bucketStart)
+                        .samples(0L)
+                        .avgVehicles(0.0)
+                        .avgWaitTime(0.0)
+                        .avgQueueLength(0.0)
+                        .maxQueueLength(0)
+                        .avgEfficiency(0.0)
+                        .build()));
+            
+            long n = rollup.getSamples() + 1;
+            rollup.setAvgVehicles(runningMean(rollup.getAvgVehicles(), valueOf(row.getVehicles()), n));
+            rollup.setAvgWaitTime(runningMean(rollup.getAvgWaitTime(), valueOf(row.getWaitTime()), n));
+            rollup.setAvgQueueLength(runningMean(rollup.getAvgQueueLength(), valueOf(row.getQueueLength()), n));
+            rollup.setAvgEfficiency(runningMean(rollup.getAvgEfficiency(), valueOf(row.getEfficiency()), n));
+            rollup.setMaxQueueLength(Math.max(rollup.getMaxQueueLength(),
+                row.getQueueLength() != null ? row.getQueueLength() : 0));
+            rollup.setSamples(n);
+        }
+        
+        rollupRepository.saveAll(buckets.values());
+    }
+    
+    private static double runningMean(double mean, double value, long n) {
+        return mean + (value - mean) / n;
+    }
+    
+    private static double valueOf(Number number) {
+        return number != null ? number.doubleValue() : 0.0;
+    }
+    
+    private static <T> List<String> ids(List<T> rows, Function<T, String> id) {
+        List<String> ids = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            ids.add(id.apply(row));
+        }
+        return ids;
+    }
+    
+    /**
+     * Counters and time budget for one pass
+     */
+    private class RetentionRun {
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final long startNanos = System.nanoTime();
+        long snapshotsRolledUp;
+        long snapshotsPurged;
+        long rollupsPurged;
+        long eventsPurged;
+        int chunks;
+        boolean budgetExhausted;
+        
+        boolean hasBudget() {
+            if (budgetExhausted) return false;
+            if (System.nanoTime() - startNanos > maxRunSeconds * 1_000_000_000L) {
+                budgetExhausted = true;
+                return false;
+            }
+            chunks++;
+            return true;
+        }
+        
+        void pause() {
+            if (chunkPauseMs <= 0) return;
+            try {
+                Thread.sleep(chunkPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                budgetExhausted = true;
+            }
+        }
+        
+        RetentionReportDTO toReport() {
+            return RetentionReportDTO.builder()
+                .startedAt(startedAt)
+                .durationMs((System.nanoTime() - startNanos) / 1_000_000L)
+                .snapshotsRolledUp(snapshotsRolledUp)
+                .snapshotsPurged(snapshotsPurged)
+                .rollupsPurged(rollupsPurged)
+                .eventsPurged(eventsPurged)
+                .chunks(chunks)
+                .timeBudgetExhausted(budgetExhausted)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.JournalStatsDTO;
+import com.smarttraffic.dto.TrafficEventDTO;
+import com.smarttraffic.model.TrafficEvent;
+import com.smarttraffic.repository.SimulationRunRepository;
+import com.smarttraffic.repository.TrafficEventRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only journal for traffic events.
+ *
+ * {@link #append} only touches memory: the event goes into a fixed-size ring
+ * (for recent-event queries) and a bounded pending queue. A background flush
+ * drains the pending queue and inserts events in batches, bumping the
+ * emergency counters of the affected runs with one UPDATE per run.
+ *
+ * A batch that fails is retried row by row, so one bad event does not take the
+ * others with it; a row that still fails is queued again on the next flush (its run
+ * may not be committed yet) until {@code max-attempts}. Events stay queryable until
+ * they are persisted, also after they have left the ring.
+ */
+@Service
+@Slf4j
+public class TrafficEventJournal {
+    
+    private final TrafficEventRepository trafficEventRepository;
+    private final SimulationRunRepository simulationRunRepository;
+    private final SimulationHistoryService historyService;
+    private final TransactionTemplate transactionTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final TrafficEventDTO[] ring;
+    private long written; // total appended, guarded by ring
+    
+    private final BlockingQueue<TrafficEventDTO> pending;
+    private final Map<String, TrafficEventDTO> unflushed = new ConcurrentHashMap<>(); // appended, not yet persisted
+    private final Map<String, Integer> attempts = new HashMap<>(); // failed inserts per event, flush thread only
+    private final int batchSize;
+    private final int maxAttempts;
+    
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchNanos = new LongAdder();
+    
+    public TrafficEventJournal(
+        TrafficEventRepository trafficEventRepository,
+        SimulationRunRepository simulationRunRepository,
+        SimulationHistoryService historyService,
+        PlatformTransactionManager transactionManager,
+        @Value("${traffic.journal.ring-capacity:10000}") int ringCapacity,
+        @Value("${traffic.journal.pending-capacity:50000}") int pendingCapacity,
+        @Value("${traffic.journal.batch-size:200}") int batchSize,
+        @Value("${traffic.journal.max-attempts:5}") int maxAttempts
+    ) {
+        this.trafficEventRepository = trafficEventRepository;
+        this.simulationRunRepository = simulationRunRepository;
+        this.historyService = historyService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ring = new TrafficEventDTO[ringCapacity];
+        this.pending = new ArrayBlockingQueue<>(pendingCapacity);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+    
+    /**
+     * Append an event; never blocks and never touches the database
+     */
+    public TrafficEventDTO append(String simulationId, String eventType, String roadName,
+                                 String vehicleType, String description) {
+        TrafficEventDTO event = TrafficEventDTO.builder()
+            .id(UUID.randomUUID().toString())
+            .simulationId(simulationId)
+            .eventType(eventType)
+            .roadName(roadName)
+            .vehicleType(vehicleType)
+            .description(description)
+            .timestamp(LocalDateTime.now())
+            .build();
+        
+        synchronized (ring) {
+            ring[(int) (written % ring.length)] = event;
+            written++;
+        }
+        appended.increment();
+        
+        unflushed.put(event.getId(), event);
+        if (!pending.offer(event)) {
+            unflushed.remove(event.getId());
+            dropped.increment();
+            log.warn("Event journal backlog full, {} event for simulation {} will not be persisted",
+                eventType, simulationId);
+        }
+        return event;
+    }
+    
+    /**
+     * Query events of a simulation, newest first. Recent events come from the ring;
+     * anything older than the ring's oldest entry is read from the events not yet
+     * persisted and from the database.
+     */
+    public List<TrafficEventDTO> query(String simulationId, String eventType,
+                                       LocalDateTime from, LocalDateTime to, int limit) {
+        List<TrafficEventDTO> result = new ArrayList<>();
+        LocalDateTime oldestInRing = null;
+        boolean wrapped;
+        
+        synchronized (ring) {
+            wrapped = written > ring.length;
+            long count = Math.min(written, ring.length);
+            for (long i = 1; i <= count; i++) {
+                TrafficEventDTO event = ring[(int) ((written - i) % ring.length)];
+                oldestInRing = event.getTimestamp();
+                if (result.size() < limit && matches(event, simulationId, eventType, from, to)) {
+                    result.add(event);
+                }
+            }
+        }
+        
+        // Only what is older than the ring has to be looked up elsewhere (e.g. before a restart)
+        if (result.size() < limit) {
+            Set<String> seen = new HashSet<>();
+            result.forEach(event -> seen.add(event.getId()));
+            List<TrafficEventDTO> older = new ArrayList<>();
+            
+            // Events that have left the ring before the flush got to them
+            if (wrapped) {
+                for (TrafficEventDTO event : unflushed.values()) {
+                    if (!event.getTimestamp().isAfter(oldestInRing) && !seen.contains(event.getId())
+                        && matches(event, simulationId, eventType, from, to)) {
+                        seen.add(event.getId());
+                        older.add(event);
+                    }
+                }
+            }
+            
+            LocalDateTime start = from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0);
+            LocalDateTime end = oldestInRing != null ? oldestInRing : LocalDateTime.now();
+            if (to != null && to.isBefore(end)) {
+                end = to;
+            }
+            
+            if (start.isBefore(end)) {
+                PageRequest page = PageRequest.of(0, limit - result.size());
+                List<TrafficEventDTO> persistedEvents = eventType == null
+                    ? trafficEventRepository.findEventsBySimulationAndTimeRange(simulationId, start, end, page)
+                    : trafficEventRepository.findEventsBySimulationTypeAndTimeRange(simulationId, eventType, start, end, page);
+                
+                // The database truncates timestamps, so rows at the ring boundary may already be in the result,
+                // and an unflushed event may have been persisted meanwhile
+                persistedEvents.stream()
+                    .filter(event -> seen.add(event.getId()))
+                    .forEach(older::add);
+            }
+            
+            older.sort(Comparator.comparing(TrafficEventDTO::getTimestamp).reversed());
+            older.stream()
+                .limit(limit - result.size())
+                .forEach(result::add);
+        }
+        return result;
+    }
+    
+    /**
+     * Persist pending events in batches
+     */
+    @Scheduled(fixedDelayString = "${traffic.journal.flush-interval:500}")
+    public void flush() {
+        List<TrafficEventDTO> batch = new ArrayList<>(batchSize);
+        List<TrafficEventDTO> retry = new ArrayList<>();
+        while (pending.drainTo(batch, batchSize) > 0) {
+            persistBatch(batch, retry);
+            batch.clear();
+        }
+        
+        // Queued again only now, so they wait for the next flush
+        for (TrafficEventDTO event : retry) {
+            if (!pending.offer(event)) {
+                unflushed.remove(event.getId());
+                attempts.remove(event.getId());
+                dropped.increment();
+            }
+        }
+    }
+    
+    public JournalStatsDTO getStats() {
+        int ringSize;
+        synchronized (ring) {
+            ringSize = (int) Math.min(written, ring.length);
+        }
+        long batchCount = batches.sum();
+        
+        return JournalStatsDTO.builder()
+            .appended(appended.sum())
+            .persisted(persisted.sum())
+            .dropped(dropped.sum())
+            .failed(failed.sum())
+            .retried(retried.sum())
+            .pending(pending.size())
+            .ringSize(ringSize)
+            .ringCapacity(ring.length)
+            .batches(batchCount)
+            .avgBatchMillis(batchCount > 0 ? Math.round(batchNanos.sum() / 1_000.0 / batchCount) / 1_000.0 : 0.0)
+            .build();
+    }
+    
+    private void persistBatch(List<TrafficEventDTO> batch, List<TrafficEventDTO> retry) {
+        long start = System.nanoTime();
+        
+        try {
+            insert(batch);
+        } catch (Exception e) {
+            log.warn("Failed to persist {} journal events, retrying one by one: {}", batch.size(), e.getMessage());
+            for (TrafficEventDTO dto : batch) {
+                try {
+                    insert(List.of(dto));
+                } catch (Exception rowError) {
+                    int attempt = attempts.merge(dto.getId(), 1, Integer::sum);
+                    if (attempt < maxAttempts) {
+                        retried.increment();
+                        retry.add(dto);
+                    } else {
+                        attempts.remove(dto.getId());
+                        unflushed.remove(dto.getId());
+                        failed.increment();
+                        log.error("Giving up on {} event {} of simulation {} after {} attempts: {}",
+                            dto.getEventType(), dto.getId(), dto.getSimulationId(), attempt, rowError.getMessage());
+                    }
+                }
+            }
+        } finally {
+            batches.increment();
+            batchNanos.add(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Insert events in one transaction
+     */
+    private void insert(List<TrafficEventDTO> events) {
+        Map<String, Integer> emergencies = new HashMap<>();
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            for (TrafficEventDTO dto : events) {
+                // persist (not merge) so assigned ids do not trigger a SELECT per row
+                entityManager.persist(TrafficEvent.builder()
+                    .id(dto.getId())
+                    .simulationRun(simulationRunRepository.getReferenceById(dto.getSimulationId()))
+                    .eventType(dto.getEventType())
+                    .roadName(dto.getRoadName())
+                    .vehicleType(dto.getVehicleType())
+                    .description(dto.getDescription())
+                    .timestamp(dto.getTimestamp())
+                    .build());
+                
+                if ("emergency".equals(dto.getEventType())) {
+                    emergencies.merge(dto.getSimulationId(), 1, Integer::sum);
+                }
+            }
+            entityManager.flush();
+            emergencies.forEach(simulationRunRepository::incrementEmergencyEvents);
+        });
+        
+        persisted.add(events.size());
+        for (TrafficEventDTO dto : events) {
+            unflushed.remove(dto.getId());
+            attempts.remove(dto.getId());
+        }
+        emergencies.keySet().forEach(historyService::evict);
+    }
+    
+    private static boolean matches(TrafficEventDTO event, String simulationId, String eventType,
+                                   LocalDateTime from, LocalDateTime to) {
+        return event.getSimulationId().equals(simulationId)
+            && (eventType == null || eventType.equals(event.getEventType()))
+            && (from == null || !event.getTimestamp().isBefore(from))
+            && (to == null || event.getTimestamp().isBefore(to));
+    }
+}
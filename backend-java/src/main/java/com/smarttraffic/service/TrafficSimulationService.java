@@ -3,14 +3,21 @@ package com.smarttraffic.service;
 import com.smarttraffic.dto.*;
 import com.smarttraffic.model.*;
 import com.smarttraffic.repository.*;
+import com.smarttraffic.simulation.DiscreteEventEngine;
+import com.smarttraffic.simulation.NetworkTopology;
+import com.smarttraffic.simulation.RoadNetwork;
+import com.smarttraffic.simulation.RoadStateTimeline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -22,20 +29,87 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TrafficSimulationService {
     
+    /** Fixed-step engine: every road is re-evaluated on each tick */
+    public static final String MODE_TICK = "tick";
+    /** Discrete-event engine: a tick jumps from event to event (see {@link DiscreteEventEngine}) */
+    public static final String MODE_EVENT = "event";
+    /** Discrete-event engine tracking individual vehicles and their exact waits */
+    public static final String MODE_MICRO = "micro";
+    /** Multi-intersection network from a topology file (see {@link RoadNetwork}) */
+    public static final String MODE_NETWORK = "network";
+    
     private final SimulationRunRepository simulationRunRepository;
-    private final RoadPerformanceRepository roadPerformanceRepository;
-    private final TrafficEventRepository trafficEventRepository;
+    private final SimulationHistoryService historyService;
+    private final TrafficEventJournal eventJournal;
+    private final EmergencyLatencyMonitor emergencyLatencyMonitor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NetworkTopologyService topologyService;
+    private final DetectionWindowService windowService;
+    private final RoadSnapshotWriter snapshotWriter;
+    
+    @Value("${traffic.simulation.congestion-queue-threshold:25}")
+    private int congestionQueueThreshold;
+    
+    @Value("${traffic.journal.signal-change-events:true}")
+    private boolean signalChangeEvents;
+    
+    @Value("${traffic.journal.network-signal-change-events:false}")
+    private boolean networkSignalChangeEvents; // one event per intersection and change
+    
+    @Value("${traffic.simulation.emergency-override-duration:120}")
+    private double emergencyOverrideDuration;
+    
+    @Value("${traffic.simulation.event.arrival-rate:0.2}")
+    private double arrivalRate;
+    
+    @Value("${traffic.simulation.event.saturation-headway:2.0}")
+    private double saturationHeadway;
+    
+    @Value("${traffic.simulation.fork.max-horizon:3600}")
+    private double maxForkHorizon;
     
-    // Active simulations (in-memory state)
+    @Value("${traffic.network.parallelism:0}")
+    private int networkParallelism; // 0 = available processors
+    
+    @Value("${traffic.network.min-region-approaches:1024}")
+    private int minRegionApproaches;
+    
+    @Value("${traffic.timeline.max-frames:3600}")
+    private int timelineMaxFrames;
+    
+    @Value("${traffic.timeline.max-bytes:4194304}")
+    private long timelineMaxBytes; // per simulation
+    
+    // Active simulations (in-memory state); each state is mutated only while holding its monitor
     private final Map<String, SimulationState> activeSimulations = new ConcurrentHashMap<>();
     
+    private static final double TRANSITION_SECONDS = 3.0; // yellow light duration
+    private static final double MIN_FORK_CYCLE_LENGTH = 16.0; // 1s of green per phase of a 4-way intersection
+    
+    public static boolean isSupportedMode(String mode) {
+        return mode == null || MODE_TICK.equals(mode) || MODE_EVENT.equals(mode) || MODE_MICRO.equals(mode)
+            || MODE_NETWORK.equals(mode);
+    }
+    
     /**
      * Initialize a new simulation run
+     *
+     * @param mode {@link #MODE_TICK} (default), {@link #MODE_EVENT}, {@link #MODE_MICRO} or {@link #MODE_NETWORK}
+     * @param topology topology name, required for {@link #MODE_NETWORK}
      */
     @Transactional
-    public SimulationRun createSimulation(String userId, Double speed) {
+    public SimulationRun createSimulation(String userId, Double speed, String mode, String topology) {
         String simulationId = UUID.randomUUID().toString();
         
+        // Seeded per run like the event engine, so two runs of a topology draw different traffic
+        RoadNetwork network = null;
+        if (MODE_NETWORK.equals(mode)) {
+            NetworkTopology definition = topologyService.find(topology)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown topology " + topology));
+            network = RoadNetwork.build(definition, saturationHeadway, simulationId.hashCode());
+            network.partition(regionCount(network), ForkJoinPool.commonPool());
+        }
+        
         SimulationRun simulation = SimulationRun.builder()
             .id(simulationId)
             .userId(userId)
@@ -53,15 +127,35 @@ public class TrafficSimulationService {
         
         // Initialize in-memory state
         SimulationState state = new SimulationState();
-        state.roads = initializeRoads();
+        state.network = network;
+        state.roads = network != null ? network.createRoads() : initializeRoads();
         state.currentCycle = 0.0;
-        state.cycleLength = 60.0; // seconds
+        state.cycleLength = network != null ? network.getCycleLength(0) : 60.0; // seconds
         state.totalProcessed = 0;
         state.emergencyOverride = null;
+        state.congested = new boolean[state.roads.size()];
+        state.roadIndex = new HashMap<>();
+        state.windows = new WindowAggregator[state.roads.size()];
+        for (int i = 0; i < state.roads.size(); i++) {
+            state.roadIndex.put(state.roads.get(i).getName(), i);
+            state.windows[i] = windowService.newAggregator(state.roads.get(i).getName());
+        }
+        if (MODE_EVENT.equals(mode) || MODE_MICRO.equals(mode)) {
+            state.engine = new DiscreteEventEngine(state.roads, state.cycleLength, arrivalRate,
+                saturationHeadway, simulationId.hashCode(), MODE_MICRO.equals(mode));
+            state.engine.publish(state.roads);
+        }
+        state.timeline = new RoadStateTimeline(state.roads, timelineMaxBytes, timelineMaxFrames);
         
         activeSimulations.put(simulationId, state);
         
-        log.info("Created simulation {} for user {}", simulationId, userId);
+        if (network != null) {
+            log.info("Created network simulation {} for user {}: {} ({} intersections, {} approaches, {} regions)",
+                simulationId, userId, topology, network.getIntersectionCount(), network.getApproachCount(),
+                network.getRegionCount());
+        } else {
+            log.info("Created {} simulation {} for user {}", mode != null ? mode : MODE_TICK, simulationId, userId);
+        }
         return saved;
     }
     
@@ -101,20 +195,54 @@ public class TrafficSimulationService {
             return;
         }
         
-        state.currentCycle += deltaTime;
+        TrafficStatsDTO stats;
+        List<RoadDTO> snapshot = null;
+        double cycleLength;
         
-        if (state.emergencyOverride != null && state.emergencyOverride.getActive()) {
-            handleEmergencyOverride(state);
-        } else {
-            updateTrafficLights(state);
+        // The state lock only covers the in-memory step, so an emergency override
+        // never waits for the database writes below
+        synchronized (state) {
+            state.currentCycle += deltaTime;
+            
+            if (state.network != null) {
+                String[] previousLights = lights(state);
+                state.network.advance(deltaTime);
+                state.network.publish(state.roads);
+                state.totalProcessed = state.network.totalProcessed();
+                recordIntersectionSignalChanges(simulationId, state, previousLights);
+            } else if (state.engine != null) {
+                state.engine.advance(deltaTime, engineListener(simulationId, state));
+                state.engine.publish(state.roads);
+                state.totalProcessed = state.engine.totalProcessed();
+            } else {
+                String[] previousLights = lights(state);
+                
+                if (state.emergencyOverride != null && Boolean.TRUE.equals(state.emergencyOverride.getActive())) {
+                    handleEmergencyOverride(state);
+                } else {
+                    updateTrafficLights(state);
+                }
+                
+                recordSignalChanges(simulationId, state, previousLights);
+                simulateTraffic(state);
+            }
+            detectCongestion(simulationId, state);
+            updateStats(state);
+            state.timeline.record(state.currentCycle, state.totalProcessed, state.roads);
+            stats = state.stats;
+            cycleLength = state.cycleLength;
+            
+            // Save road performance snapshots every 10 seconds
+            if (state.currentCycle % 10 < deltaTime) {
+                snapshot = state.roads.stream().map(TrafficSimulationService::copy).toList();
+            }
         }
         
-        simulateTraffic(state);
-        updateStats(state, simulationId);
+        persistStats(simulationId, stats);
         
-        // Save road performance snapshots every 10 seconds
-        if (state.currentCycle % 10 < deltaTime) {
-            saveRoadPerformanceSnapshot(simulationId, state.roads);
+        if (snapshot != null) {
+            snapshotWriter.submit(simulationId, snapshot);
+            eventPublisher.publishEvent(RoadSnapshotEvent.of(simulationId, cycleLength, snapshot));
         }
     }
     
@@ -122,14 +250,13 @@ public class TrafficSimulationService {
      * Handle emergency override (give priority to emergency vehicles)
      */
     private void handleEmergencyOverride(SimulationState state) {
-        EmergencyOverrideDTO override = state.emergencyOverride;
-        Random random = new Random();
+        int emergencyRoad = roadIndex(state, state.emergencyOverride.getRoad());
+        applyEmergencyLights(state, emergencyRoad);
+        Random random = state.random;
         
-        for (RoadDTO road : state.roads) {
-            if (road.getDirection().equals(override.getRoad())) {
-                // Emergency road gets green light
-                road.setLight("green");
-                
+        for (int i = 0; i < state.roads.size(); i++) {
+            RoadDTO road = state.roads.get(i);
+            if (i == emergencyRoad) {
                 // Clear emergency road faster
                 if (road.getVehicles() > 0) {
                     road.setVehicles(Math.max(0, road.getVehicles() - 2));
@@ -138,9 +265,6 @@ public class TrafficSimulationService {
                     road.setQueue(Math.max(0, road.getQueue() - 2));
                 }
             } else {
-                // Other roads stay red
-                road.setLight("red");
-                
                 // Build up on other roads
                 if (random.nextDouble() > 0.7) {
                     road.setVehicles(road.getVehicles() + 1);
@@ -150,18 +274,35 @@ public class TrafficSimulationService {
         }
     }
     
+    /**
+     * Emergency road gets green light, other roads stay red
+     */
+    private static void applyEmergencyLights(SimulationState state, int emergencyRoad) {
+        for (int i = 0; i < state.roads.size(); i++) {
+            state.roads.get(i).setLight(i == emergencyRoad ? "green" : "red");
+        }
+    }
+    
     /**
      * Update traffic lights based on cycle position
      */
     private void updateTrafficLights(SimulationState state) {
-        double cyclePosition = state.currentCycle % state.cycleLength;
+        double[] extension = state.greenExtension;
+        double cycle = state.cycleLength;
+        if (extension != null) {
+            for (double seconds : extension) cycle += seconds;
+        }
+        double cyclePosition = state.currentCycle % cycle;
         double quarterCycle = state.cycleLength / 4.0;
-        double transitionTime = 3.0; // yellow light duration
+        double transitionTime = TRANSITION_SECONDS;
+        double extended = 0.0; // extensions of the roads before this one
         
         for (int i = 0; i < state.roads.size(); i++) {
             RoadDTO road = state.roads.get(i);
-            double roadStart = i * quarterCycle;
-            double roadEnd = roadStart + quarterCycle;
+            double roadExtension = extension != null ? extension[i] : 0.0;
+            double roadStart = i * quarterCycle + extended;
+            double roadEnd = roadStart + quarterCycle + roadExtension;
+            extended += roadExtension;
             
             if (cyclePosition >= roadStart && cyclePosition < roadEnd - transitionTime) {
                 road.setLight("green");
@@ -177,7 +318,7 @@ public class TrafficSimulationService {
      * Simulate traffic flow (vehicles entering/leaving)
      */
     private void simulateTraffic(SimulationState state) {
-        Random random = new Random();
+        Random random = state.random;
         
         for (RoadDTO road : state.roads) {
             if ("green".equals(road.getLight())) {
@@ -209,10 +350,97 @@ public class TrafficSimulationService {
         }
     }
     
+    /**
+     * Journal a signal_change event for every road whose light changed this tick
+     */
+    private void recordSignalChanges(String simulationId, SimulationState state, String[] previousLights) {
+        if (!signalChangeEvents) return;
+        
+        for (int i = 0; i < state.roads.size(); i++) {
+            RoadDTO road = state.roads.get(i);
+            if (!road.getLight().equals(previousLights[i])) {
+                eventJournal.append(simulationId, "signal_change", road.getName(), null,
+                    previousLights[i] + " -> " + road.getLight());
+            }
+        }
+    }
+    
+    /**
+     * Journal one signal_change event per network intersection whose lights changed this tick,
+     * listing its changed approaches; the intersection id is the event's road
+     */
+    private void recordIntersectionSignalChanges(String simulationId, SimulationState state, String[] previousLights) {
+        if (!networkSignalChangeEvents) return;
+        
+        // Approaches of an intersection are consecutive
+        String intersection = null;
+        StringBuilder changes = new StringBuilder();
+        for (int a = 0; a < state.roads.size(); a++) {
+            RoadDTO road = state.roads.get(a);
+            if (road.getLight().equals(previousLights[a])) continue;
+            
+            String id = state.network.getIntersectionId(a);
+            if (!id.equals(intersection)) {
+                if (intersection != null) {
+                    eventJournal.append(simulationId, "signal_change", intersection, null, changes.toString());
+                }
+                intersection = id;
+                changes.setLength(0);
+            } else {
+                changes.append(", ");
+            }
+            changes.append(road.getName()).append(' ').append(previousLights[a]).append(" -> ").append(road.getLight());
+        }
+        if (intersection != null) {
+            eventJournal.append(simulationId, "signal_change", intersection, null, changes.toString());
+        }
+    }
+    
+    /**
+     * Journals the signal changes and emergency expiry of an event-mode simulation as they happen
+     */
+    private DiscreteEventEngine.Listener engineListener(String simulationId, SimulationState state) {
+        return new DiscreteEventEngine.Listener() {
+            @Override
+            public void signalChanged(int road, String previous, String light) {
+                if (signalChangeEvents) {
+                    eventJournal.append(simulationId, "signal_change", state.roads.get(road).getName(), null,
+                        previous + " -> " + light);
+                }
+            }
+            
+            @Override
+            public void emergencyExpired(int road) {
+                EmergencyOverrideDTO override = state.emergencyOverride;
+                state.emergencyOverride = null;
+                eventJournal.append(simulationId, "emergency_cleared", state.roads.get(road).getDirection(),
+                    override != null ? override.getVehicleType() : null,
+                    String.format("Emergency override expired after %.0fs", emergencyOverrideDuration));
+            }
+        };
+    }
+    
+    /**
+     * Journal a congestion event when a road's queue rises above the threshold
+     * (re-armed once the queue drops below half of it)
+     */
+    private void detectCongestion(String simulationId, SimulationState state) {
+        for (int i = 0; i < state.roads.size(); i++) {
+            RoadDTO road = state.roads.get(i);
+            if (!state.congested[i] && road.getQueue() > congestionQueueThreshold) {
+                state.congested[i] = true;
+                eventJournal.append(simulationId, "congestion", road.getName(), null,
+                    "Queue length " + road.getQueue() + " exceeds " + congestionQueueThreshold);
+            } else if (state.congested[i] && road.getQueue() < congestionQueueThreshold / 2) {
+                state.congested[i] = false;
+            }
+        }
+    }
+    
     /**
      * Update overall statistics
      */
-    private void updateStats(SimulationState state, String simulationId) {
+    private void updateStats(SimulationState state) {
         double totalWaitTime = state.roads.stream()
             .mapToDouble(RoadDTO::getWaitTime)
             .sum();
@@ -232,44 +460,65 @@ public class TrafficSimulationService {
             .throughput(throughput)
             .efficiency(Math.round(avgPerformance * 100.0) / 100.0)
             .build();
-        
-        // Update database
+    }
+    
+    /**
+     * Write the latest statistics to the run
+     */
+    private void persistStats(String simulationId, TrafficStatsDTO stats) {
         SimulationRun simulation = simulationRunRepository.findById(simulationId).orElse(null);
         if (simulation != null) {
-            simulation.setTotalProcessed(state.totalProcessed);
-            simulation.setAvgWaitTime(state.stats.getAvgWaitTime());
-            simulation.setEfficiency(state.stats.getEfficiency());
+            simulation.setTotalProcessed(stats.getTotalProcessed());
+            simulation.setAvgWaitTime(stats.getAvgWaitTime());
+            simulation.setEfficiency(stats.getEfficiency());
             simulationRunRepository.save(simulation);
         }
     }
     
     /**
-     * Set emergency override
+     * Set emergency override. The lights switch immediately instead of at the next tick;
+     * the event is journaled and persisted in the background.
+     *
+     * @param requestedAt {@link System#nanoTime()} when the request arrived, for request-to-green latency
      */
-    @Transactional
-    public void setEmergencyOverride(String simulationId, EmergencyOverrideDTO override) {
+    public void setEmergencyOverride(String simulationId, EmergencyOverrideDTO override, long requestedAt) {
         SimulationState state = activeSimulations.get(simulationId);
         if (state != null) {
-            state.emergencyOverride = override;
-            
-            // Log event
-            SimulationRun simulation = simulationRunRepository.findById(simulationId).orElse(null);
-            if (simulation != null) {
-                TrafficEvent event = TrafficEvent.builder()
-                    .id(UUID.randomUUID().toString())
-                    .simulationRun(simulation)
-                    .eventType("emergency")
-                    .roadName(override.getRoad())
-                    .vehicleType(override.getVehicleType())
-                    .description("Emergency override activated for " + override.getVehicleType())
-                    .timestamp(LocalDateTime.now())
-                    .build();
-                
-                trafficEventRepository.save(event);
-                
-                simulation.setEmergencyEvents(simulation.getEmergencyEvents() + 1);
-                simulationRunRepository.save(simulation);
+            // Unknown roads are rejected before the lock (IllegalArgumentException)
+            int engineRoad = roadIndex(state, override.getRoad());
+            if (!Boolean.TRUE.equals(override.getActive())) {
+                // An inactive override ends the running one in every mode, as DELETE does
+                clearEmergencyOverride(simulationId);
+                return;
             }
+            long greenAt = 0;
+            synchronized (state) {
+                String[] previousLights = lights(state);
+                if (state.network != null && state.emergencyOverride != null) {
+                    state.network.endEmergency(roadIndex(state, state.emergencyOverride.getRoad()));
+                }
+                state.emergencyOverride = override;
+                if (state.network != null) {
+                    state.network.startEmergency(engineRoad);
+                    state.network.publish(state.roads);
+                } else if (state.engine != null) {
+                    state.engine.startEmergency(engineRoad, emergencyOverrideDuration, DiscreteEventEngine.Listener.NONE);
+                    state.engine.publish(state.roads);
+                } else {
+                    applyEmergencyLights(state, engineRoad);
+                }
+                // A road that was green already changed nothing, so there is no latency to record
+                if (!Arrays.equals(previousLights, lights(state))) {
+                    greenAt = System.nanoTime();
+                }
+                recordSignalChanges(simulationId, state, previousLights);
+            }
+            if (greenAt != 0) {
+                emergencyLatencyMonitor.record(simulationId, override.getRoad(), greenAt - requestedAt);
+            }
+            
+            eventJournal.append(simulationId, "emergency", override.getRoad(), override.getVehicleType(),
+                "Emergency override activated for " + override.getVehicleType());
             
             log.info("Emergency override set for simulation {}: {} on {}", 
                 simulationId, override.getVehicleType(), override.getRoad());
@@ -277,16 +526,42 @@ public class TrafficSimulationService {
     }
     
     /**
-     * Clear emergency override
+     * Clear emergency override; the lights return to the cycle plan immediately
      */
     public void clearEmergencyOverride(String simulationId) {
         SimulationState state = activeSimulations.get(simulationId);
         if (state != null) {
-            state.emergencyOverride = null;
+            EmergencyOverrideDTO override;
+            synchronized (state) {
+                String[] previousLights = lights(state);
+                override = state.emergencyOverride;
+                state.emergencyOverride = null;
+                if (state.network != null) {
+                    if (override != null) {
+                        state.network.endEmergency(roadIndex(state, override.getRoad()));
+                        state.network.publish(state.roads);
+                    }
+                } else if (state.engine != null) {
+                    state.engine.endEmergency(DiscreteEventEngine.Listener.NONE);
+                    state.engine.publish(state.roads);
+                } else {
+                    updateTrafficLights(state);
+                }
+                recordSignalChanges(simulationId, state, previousLights);
+            }
+            
+            if (override != null) {
+                eventJournal.append(simulationId, "emergency_cleared", override.getRoad(), override.getVehicleType(),
+                    "Emergency override cleared for " + override.getVehicleType());
+            }
             log.info("Emergency override cleared for simulation {}", simulationId);
         }
     }
     
+    public boolean isActive(String simulationId) {
+        return activeSimulations.containsKey(simulationId);
+    }
+    
     /**
      * Get current roads state
      */
@@ -309,25 +584,308 @@ public class TrafficSimulationService {
     }
     
     /**
-     * Update road data from video analytics (AI-driven adaptive timing)
+     * What-if analysis: copy the live state and fast-forward it twice for {@code horizon}
+     * seconds, unchanged (baseline) and with the changed signal timing (projected), both
+     * with the same random seed so differences come from the changes, not from chance.
+     * The live run is only locked while its state is copied; copies share everything
+     * immutable with it (network topology, scheduled events, vehicle buffers until written).
+     *
+     * @param cycleLength new base cycle length, or null to keep the current one
+     * @param greenExtensions seconds added to (negative: taken from) a road's green, by road name or direction
+     * @return empty if the simulation is not active
+     */
+    public Optional<SimulationForkDTO> fork(String simulationId, double horizon, Double cycleLength,
+                                            Map<String, Double> greenExtensions, long seed) {
+        SimulationState live = activeSimulations.get(simulationId);
+        if (live == null) return Optional.empty();
+        
+        if (horizon <= 0 || horizon > maxForkHorizon) {
+            throw new IllegalArgumentException("Horizon must be within (0, " + maxForkHorizon + "] seconds");
+        }
+        if (cycleLength != null && cycleLength < MIN_FORK_CYCLE_LENGTH) {
+            throw new IllegalArgumentException("Cycle length must be at least " + MIN_FORK_CYCLE_LENGTH + " seconds");
+        }
+        
+        long start = System.nanoTime();
+        SimulationState baseline;
+        SimulationState variant;
+        synchronized (live) {
+            baseline = fork(live, seed);
+            variant = fork(live, seed);
+        }
+        applyWhatIf(variant, cycleLength, greenExtensions != null ? greenExtensions : Map.of());
+        
+        SimulationForkDTO.Projection baselineProjection = fastForward(baseline, horizon);
+        SimulationForkDTO.Projection projected = fastForward(variant, horizon);
+        
+        return Optional.of(SimulationForkDTO.builder()
+            .simulationId(simulationId)
+            .horizon(horizon)
+            .seed(seed)
+            .cycleLength(cycleLength)
+            .greenExtensions(greenExtensions)
+            .baseline(baselineProjection)
+            .projected(projected)
+            .computeMillis(Math.round((System.nanoTime() - start) / 1_000.0) / 1_000.0)
+            .build());
+    }
+    
+    /**
+     * Copy of the simulation state for a fork; only what the fork mutates is copied
+     */
+    private static SimulationState fork(SimulationState live, long seed) {
+        SimulationState fork = new SimulationState();
+        fork.random = new Random(seed);
+        fork.currentCycle = live.currentCycle;
+        fork.cycleLength = live.cycleLength;
+        fork.emergencyOverride = live.emergencyOverride;
+        fork.totalProcessed = live.totalProcessed;
+        fork.greenExtension = live.greenExtension;
+        fork.roadIndex = live.roadIndex; // never changes after the run is created
+        
+        if (live.network != null) {
+            fork.network = live.network.fork(seed);
+            // Roads are created from the fork's network once it has run
+        } else if (live.engine != null) {
+            fork.engine = live.engine.fork(seed);
+            fork.roads = live.roads.stream()
+                .map(road -> RoadDTO.builder().name(road.getName()).direction(road.getDirection()).build())
+                .collect(Collectors.toList());
+        } else {
+            // Tick mode: the four roads are the state
+            fork.roads = live.roads.stream().map(TrafficSimulationService::copy).collect(Collectors.toList());
+        }
+        return fork;
+    }
+    
+    private static void applyWhatIf(SimulationState state, Double cycleLength, Map<String, Double> greenExtensions) {
+        if (cycleLength != null) {
+            state.cycleLength = cycleLength;
+            if (state.network != null) state.network.setCycleLength(cycleLength);
+            if (state.engine != null) state.engine.setCycleLength(cycleLength);
+        }
+        
+        for (Map.Entry<String, Double> entry : greenExtensions.entrySet()) {
+            double seconds = entry.getValue() != null ? entry.getValue() : 0.0;
+            if (state.network != null) {
+                int approach = state.network.approachIndex(entry.getKey());
+                if (approach < 0) throw new IllegalArgumentException("Unknown road " + entry.getKey());
+                state.network.setGreenExtension(approach, seconds);
+            } else {
+                int road = roadIndex(state, entry.getKey());
+                if (state.engine != null) {
+                    state.engine.setGreenExtension(road, seconds);
+                } else {
+                    if (state.cycleLength / 4.0 + seconds - TRANSITION_SECONDS < 1.0) {
+                        throw new IllegalArgumentException("Green of " + entry.getKey() + " would be shorter than 1 second");
+                    }
+                    // Copy on write: the array may still be shared with the live state
+                    state.greenExtension = state.greenExtension != null ? state.greenExtension.clone() : new double[state.roads.size()];
+                    state.greenExtension[road] = seconds;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Run a forked state for {@code horizon} seconds without journaling or persisting anything.
+     * Stats cover the horizon only; the mean wait is the queue-length integral over the
+     * vehicles served (Little's law).
+     */
+    private SimulationForkDTO.Projection fastForward(SimulationState state, double horizon) {
+        int processedBefore = state.totalProcessed;
+        double queueArea;
+        
+        if (state.network != null) {
+            double areaBefore = state.network.totalQueueArea();
+            state.network.advance(horizon);
+            queueArea = state.network.totalQueueArea() - areaBefore;
+            state.roads = state.network.createRoads();
+            state.totalProcessed = state.network.totalProcessed();
+        } else if (state.engine != null) {
+            double areaBefore = state.engine.totalQueueArea();
+            state.engine.advance(horizon, DiscreteEventEngine.Listener.NONE);
+            queueArea = state.engine.totalQueueArea() - areaBefore;
+            state.engine.publish(state.roads);
+            state.totalProcessed = state.engine.totalProcessed();
+        } else {
+            queueArea = 0.0;
+            for (double elapsed = 0.0; elapsed < horizon; elapsed += 1.0) {
+                double deltaTime = Math.min(1.0, horizon - elapsed);
+                state.currentCycle += deltaTime;
+                if (state.emergencyOverride != null && Boolean.TRUE.equals(state.emergencyOverride.getActive())) {
+                    handleEmergencyOverride(state);
+                } else {
+                    updateTrafficLights(state);
+                }
+                simulateTraffic(state);
+                for (RoadDTO road : state.roads) queueArea += road.getQueue() * deltaTime;
+            }
+        }
+        
+        int processed = state.totalProcessed - processedBefore;
+        double efficiency = state.roads.stream().mapToDouble(RoadDTO::getPerformance).average().orElse(0.0);
+        TrafficStatsDTO stats = TrafficStatsDTO.builder()
+            .totalProcessed(processed)
+            .avgWaitTime(processed > 0 ? Math.round(queueArea / processed * 100.0) / 100.0 : 0.0)
+            .throughput((int) Math.round(processed / (horizon / 60.0)))
+            .efficiency(Math.round(efficiency * 100.0) / 100.0)
+            .build();
+        return SimulationForkDTO.Projection.builder().stats(stats).roads(state.roads).build();
+    }
+    
+    /**
+     * Headless microscopic model of a single-intersection simulation for timing searches:
+     * a fork of the live engine in micro mode, otherwise a micro engine started from the
+     * current queues with Poisson arrivals at {@code traffic.simulation.event.arrival-rate}
+     *
+     * @return empty if the simulation is not active
+     */
+    public Optional<DiscreteEventEngine> timingModel(String simulationId, long seed) {
+        SimulationState state = activeSimulations.get(simulationId);
+        if (state == null) return Optional.empty();
+        if (state.network != null) {
+            throw new IllegalArgumentException("Timing models cover single-intersection simulations");
+        }
+        
+        List<RoadDTO> roads;
+        double cycleLength;
+        synchronized (state) {
+            if (state.engine != null && state.engine.isMicroscopic()) {
+                return Optional.of(state.engine.fork(seed));
+            }
+            roads = state.roads.stream().map(TrafficSimulationService::copy).toList();
+            cycleLength = state.cycleLength;
+        }
+        return Optional.of(new DiscreteEventEngine(roads, cycleLength, arrivalRate, saturationHeadway, seed, true));
+    }
+    
+    /**
+     * What the in-memory timeline of an active simulation holds
+     *
+     * @return empty if the simulation is not active
+     */
+    public Optional<TimelineInfoDTO> getTimelineInfo(String simulationId) {
+        SimulationState state = activeSimulations.get(simulationId);
+        return state != null ? Optional.of(state.timeline.info()) : Optional.empty();
+    }
+    
+    /**
+     * Recorded ticks between {@code from} and {@code to} simulated seconds (null: open),
+     * evenly thinned to at most {@code limit} frames. Reads memory only, never the database.
+     *
+     * @param roads road names to include, or null for all
+     * @return empty if the simulation is not active
+     */
+    public Optional<List<TimelineFrameDTO>> getTimelineFrames(String simulationId, Double from, Double to,
+                                                              List<String> roads, int limit) {
+        SimulationState state = activeSimulations.get(simulationId);
+        return state != null ? Optional.of(state.timeline.read(from, to, roads, limit)) : Optional.empty();
+    }
+    
+    /**
+     * Measured per-vehicle wait distribution of each road; empty unless the simulation
+     * is active and runs in microscopic mode
+     */
+    public Optional<List<RoadWaitDistributionDTO>> getWaitDistribution(String simulationId) {
+        SimulationState state = activeSimulations.get(simulationId);
+        if (state == null || state.engine == null || !state.engine.isMicroscopic()) {
+            return Optional.empty();
+        }
+        
+        synchronized (state) {
+            List<RoadWaitDistributionDTO> distribution = new ArrayList<>();
+            for (int i = 0; i < state.roads.size(); i++) {
+                distribution.add(state.engine.waitDistribution(i, state.roads.get(i)));
+            }
+            return Optional.of(distribution);
+        }
+    }
+    
+    /**
+     * Update road data from video analytics (AI-driven adaptive timing). The frame goes into
+     * the road's detection windows; the road and the timing follow the control window.
      */
     public void updateRoadFromVideo(String simulationId, String roadName, VideoAnalyticsDTO videoData) {
+        updateRoadFromVideo(simulationId, roadName, videoData, eventTime(videoData));
+    }
+    
+    /**
+     * Update road data from video analytics detected at {@code eventTime}, which the road's
+     * windows go by; for a replay that is the recorded time, not the frame's retimed one
+     */
+    public void updateRoadFromVideo(String simulationId, String roadName, VideoAnalyticsDTO videoData, long eventTime) {
         SimulationState state = activeSimulations.get(simulationId);
         if (state == null) return;
         
-        RoadDTO road = state.roads.stream()
-            .filter(r -> r.getName().equals(roadName))
-            .findFirst()
-            .orElse(null);
+        synchronized (state) {
+            Integer road = state.roadIndex.get(roadName);
+            if (road == null) return;
+            applyVideoUpdate(state, road, videoData, eventTime);
+        }
         
-        if (road == null) return;
+        log.debug("Updated {} from video analytics: {} vehicles, {} queue", 
+            roadName, videoData.getVehicleCount(), videoData.getQueueLength());
+    }
+    
+    /**
+     * Apply a batch of video analytics updates in order under a single acquisition of the state lock
+     *
+     * @return per update whether its road exists (updates for unknown roads are skipped),
+     *         or empty if the simulation is not active
+     */
+    public Optional<boolean[]> updateRoadsFromVideo(String simulationId, List<VideoAnalyticsDTO> updates) {
+        SimulationState state = activeSimulations.get(simulationId);
+        if (state == null) return Optional.empty();
         
-        // Use AI-detected vehicle and queue data
-        road.setVehicles(videoData.getVehicleCount());
-        road.setQueue(videoData.getQueueLength());
+        boolean[] applied = new boolean[updates.size()];
+        synchronized (state) {
+            for (int i = 0; i < applied.length; i++) {
+                Integer road = state.roadIndex.get(updates.get(i).getRoadName());
+                if (road != null) {
+                    applyVideoUpdate(state, road, updates.get(i), eventTime(updates.get(i)));
+                    applied[i] = true;
+                }
+            }
+        }
+        return Optional.of(applied);
+    }
+    
+    private void applyVideoUpdate(SimulationState state, int index, VideoAnalyticsDTO videoData, long eventTime) {
+        RoadDTO road = state.roads.get(index);
+        WindowAggregator windows = state.windows[index];
+        String controlWindow = windowService.getControlWindowName();
+        windows.add(videoData, eventTime, window -> {
+            if (window.getWindow().equals(controlWindow)) {
+                adaptCycleLength(state, window.getAverageVehicles(), window.getAverageQueue());
+            }
+        });
+        
+        // Use AI-detected vehicle and queue data, averaged over the control window
+        double vehicles = windows.averageVehicles(windowService.getControlWindow());
+        double queue = windows.averageQueue(windowService.getControlWindow());
+        road.setVehicles((int) Math.round(vehicles));
+        road.setQueue((int) Math.round(queue));
+        
+        // The engines reconcile their own queue with what the camera sees now, not with an average
+        if (state.engine != null) {
+            state.engine.observeQueue(index, videoData.getQueueLength());
+        }
+        if (state.network != null) {
+            state.network.observeQueue(index, videoData.getQueueLength());
+        }
         
-        // Dynamically adjust cycle length based on traffic density
-        int trafficDensity = videoData.getVehicleCount() + (videoData.getQueueLength() * 2);
+        // Update performance based on real-time data
+        double queuePenalty = Math.min(queue * 2.0, 30.0);
+        double densityPenalty = Math.min(vehicles, 20.0);
+        road.setPerformance(Math.max(50.0, Math.min(98.0, 100.0 - queuePenalty - densityPenalty)));
+    }
+    
+    /**
+     * Dynamically adjust cycle length based on a road's traffic density, once per control window result
+     */
+    private static void adaptCycleLength(SimulationState state, double vehicles, double queue) {
+        double trafficDensity = vehicles + (queue * 2);
         
         if (trafficDensity > 20) {
             // Critical density - extend cycle
@@ -336,14 +894,25 @@ public class TrafficSimulationService {
             // Low density - reduce cycle
             state.cycleLength = Math.max(45.0, state.cycleLength - 1.0);
         }
+        if (state.engine != null) {
+            state.engine.setCycleLength(state.cycleLength);
+        }
+    }
+    
+    /**
+     * The open detection windows of every road; empty if the simulation is not active
+     */
+    public Optional<List<DetectionWindowDTO>> getDetectionWindows(String simulationId) {
+        SimulationState state = activeSimulations.get(simulationId);
+        if (state == null || state.windows == null) return Optional.empty();
         
-        // Update performance based on real-time data
-        double queuePenalty = Math.min(videoData.getQueueLength() * 2.0, 30.0);
-        double densityPenalty = Math.min(videoData.getVehicleCount(), 20.0);
-        road.setPerformance(Math.max(50.0, Math.min(98.0, 100.0 - queuePenalty - densityPenalty)));
-        
-        log.debug("Updated {} from video analytics: {} vehicles, {} queue", 
-            roadName, videoData.getVehicleCount(), videoData.getQueueLength());
+        synchronized (state) {
+            List<DetectionWindowDTO> windows = new ArrayList<>();
+            for (WindowAggregator aggregator : state.windows) {
+                windows.addAll(aggregator.current());
+            }
+            return Optional.of(windows);
+        }
     }
     
     /**
@@ -355,6 +924,7 @@ public class TrafficSimulationService {
         if (simulation != null) {
             simulation.setStatus("paused");
             simulationRunRepository.save(simulation);
+            historyService.evict(simulationId);
             log.info("Simulation {} paused", simulationId);
         }
     }
@@ -368,6 +938,7 @@ public class TrafficSimulationService {
         if (simulation != null) {
             simulation.setStatus("running");
             simulationRunRepository.save(simulation);
+            historyService.evict(simulationId);
             log.info("Simulation {} resumed", simulationId);
         }
     }
@@ -382,6 +953,7 @@ public class TrafficSimulationService {
             simulation.setStatus("completed");
             simulation.setEndTime(LocalDateTime.now());
             simulationRunRepository.save(simulation);
+            historyService.evict(simulationId);
             
             // Remove from active simulations
             activeSimulations.remove(simulationId);
@@ -390,29 +962,42 @@ public class TrafficSimulationService {
     }
     
     /**
-     * Save road performance snapshot to database
+     * Regions a network is stepped in: one per core, but none smaller than min-region-approaches
      */
-    @Transactional
-    private void saveRoadPerformanceSnapshot(String simulationId, List<RoadDTO> roads) {
-        SimulationRun simulation = simulationRunRepository.findById(simulationId).orElse(null);
-        if (simulation == null) return;
-        
-        for (RoadDTO road : roads) {
-            RoadPerformance performance = RoadPerformance.builder()
-                .id(UUID.randomUUID().toString())
-                .simulationRun(simulation)
-                .roadName(road.getName())
-                .roadDirection(road.getDirection())
-                .vehicles(road.getVehicles())
-                .waitTime(road.getWaitTime())
-                .queueLength(road.getQueue())
-                .efficiency(road.getPerformance())
-                .signalState(road.getLight())
-                .timestamp(LocalDateTime.now())
-                .build();
-            
-            roadPerformanceRepository.save(performance);
+    private int regionCount(RoadNetwork network) {
+        int parallelism = networkParallelism > 0 ? networkParallelism : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(parallelism, network.getApproachCount() / Math.max(1, minRegionApproaches)));
+    }
+    
+    private static long eventTime(VideoAnalyticsDTO videoData) {
+        return videoData.getTimestamp() != null ? videoData.getTimestamp() : System.currentTimeMillis();
+    }
+    
+    private static String[] lights(SimulationState state) {
+        return state.roads.stream().map(RoadDTO::getLight).toArray(String[]::new);
+    }
+    
+    /**
+     * Road index by name (network approaches, or a single intersection's roads) or by direction
+     */
+    private static int roadIndex(SimulationState state, String road) {
+        if (state.network != null) {
+            int index = state.network.approachIndex(road);
+            if (index >= 0) return index;
         }
+        if (state.roadIndex != null) {
+            Integer index = state.roadIndex.get(road);
+            if (index != null) return index;
+        }
+        for (int i = 0; i < state.roads.size(); i++) {
+            if (state.roads.get(i).getDirection().equals(road)) return i;
+        }
+        throw new IllegalArgumentException("Unknown road " + road);
+    }
+    
+    private static RoadDTO copy(RoadDTO road) {
+        return new RoadDTO(road.getName(), road.getDirection(), road.getLight(), road.getVehicles(),
+            road.getQueue(), road.getWaitTime(), road.getPerformance());
     }
     
     /**
@@ -425,5 +1010,13 @@ public class TrafficSimulationService {
         EmergencyOverrideDTO emergencyOverride;
         Integer totalProcessed;
         TrafficStatsDTO stats;
+        boolean[] congested;
+        DiscreteEventEngine engine; // event and micro modes
+        RoadNetwork network; // network mode
+        Random random = new Random(); // tick mode; seeded in forks
+        double[] greenExtension; // tick mode, what-if forks only: seconds added to each road's green
+        RoadStateTimeline timeline; // recent ticks, live simulations only
+        Map<String, Integer> roadIndex; // road name -> index in roads, shared with forks
+        WindowAggregator[] windows; // per road, over its video analytics; live simulations only
     }
 }
@@ -1,12 +1,19 @@
 package com.smarttraffic.service;
 
+import com.smarttraffic.dto.AnalyticsReplayDTO;
 import com.smarttraffic.dto.DetectedVehicleDTO;
 import com.smarttraffic.dto.DetectedVehicleDTO.BoundingBoxDTO;
+import com.smarttraffic.dto.DetectionWindowDTO;
 import com.smarttraffic.dto.VideoAnalyticsDTO;
+import com.smarttraffic.export.AnalyticsLogReader;
 import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -18,9 +25,15 @@ import java.util.concurrent.*;
  */
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class VehicleDetectionService {
     
-    private final Map<String, ScheduledFuture<?>> detectionTasks = new ConcurrentHashMap<>();
+    private final AnalyticsRecordingService recordingService;
+    private final DetectionWindowService windowService;
+    private final DetectionSamplingService samplingService;
+    
+    private final Map<String, LiveFeed> detectionTasks = new ConcurrentHashMap<>();
+    private final Map<String, Replay> replays = new ConcurrentHashMap<>(); // latest replay per road
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
     
     // Vehicle type probabilities (50% cars, 20% trucks, 10% bus, 20% motorcycle/bicycle)
@@ -33,88 +46,141 @@ public class VehicleDetectionService {
     
     private final Random random = new Random();
     
+    @Value("${traffic.detection.scene.arrival-rate:0.3}")
+    private double sceneArrivalRate; // vehicles/s entering a simulated camera's view
+    
+    @Value("${traffic.detection.tracking.frame-height-meters:40}")
+    private double frameHeightMeters;
+    
+    @Value("${traffic.detection.tracking.counting-line:0.6}")
+    private double countingLine;
+    
+    @Value("${traffic.detection.tracking.min-overlap:0.1}")
+    private double minOverlap;
+    
+    @Value("${traffic.detection.tracking.max-speed-difference:15}")
+    private double maxSpeedDifference;
+    
+    @Value("${traffic.detection.tracking.max-misses:2}")
+    private int maxMisses;
+    
+    @Value("${traffic.detection.tracking.grid-cells:10}")
+    private int gridCells;
+    
+    @Value("${traffic.detection.tracking.flow-window-seconds:60}")
+    private long flowWindowSeconds;
+    
     /**
      * Start real-time vehicle detection for a road
-     * Simulates 2 FPS processing (every 500ms)
+     * Simulates video processing at the rate {@link DetectionSamplingService} sets for the feed
      */
     public void startDetection(String roadName, DetectionCallback callback) {
         // Stop existing detection if running
         stopDetection(roadName);
         
-        // Run detection every 500ms (2 FPS)
-        ScheduledFuture<?> task = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                VideoAnalyticsDTO analytics = detectVehicles(roadName);
-                callback.onAnalytics(analytics);
-            } catch (Exception e) {
-                log.error("Error in vehicle detection for {}: {}", roadName, e.getMessage());
-            }
-        }, 0, 500, TimeUnit.MILLISECONDS);
-        
-        detectionTasks.put(roadName, task);
+        LiveFeed feed = new LiveFeed(roadName, callback);
+        detectionTasks.put(roadName, feed);
+        scheduler.execute(feed);
         log.info("Started vehicle detection for {}", roadName);
     }
     
     /**
-     * Stop detection for a specific road
+     * Feed a recorded analytics log to a road instead of live detection, at {@code speed}
+     * times the recorded pace ({@link Double#POSITIVE_INFINITY} for as fast as the callback
+     * takes them). Frames keep their recorded detections and go through a fresh tracker and
+     * detection windows on recorded time, so ids, flow and windows do not depend on the speed;
+     * road name and timestamps are then rewritten as if detected now on {@code roadName}.
+     *
+     * @param simulationId reported in the progress only; the callback does the feeding
+     * @throws IllegalArgumentException if the recording does not exist or cannot be read
+     */
+    public AnalyticsReplayDTO startReplay(String roadName, String recording, double speed, String simulationId,
+                                          DetectionCallback callback) throws IOException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Replay speed must be positive");
+        }
+        AnalyticsLogReader reader = recordingService.open(recording);
+        stopDetection(roadName);
+        
+        Replay replay = new Replay(roadName, recording, speed, simulationId, reader, callback);
+        replays.put(roadName, replay);
+        log.info("Starting replay of {} on {} at {}", recording, roadName,
+            speed != Double.POSITIVE_INFINITY ? speed + "x" : "max speed");
+        scheduler.execute(replay);
+        return replay.toDTO();
+    }
+    
+    /**
+     * Progress of the latest replay on a road
+     */
+    public Optional<AnalyticsReplayDTO> getReplay(String roadName) {
+        return Optional.ofNullable(replays.get(roadName)).map(Replay::toDTO);
+    }
+    
+    /**
+     * Stop detection or replay for a specific road
      */
     public void stopDetection(String roadName) {
-        ScheduledFuture<?> task = detectionTasks.remove(roadName);
-        if (task != null) {
-            task.cancel(false);
+        LiveFeed feed = detectionTasks.remove(roadName);
+        if (feed != null) {
+            feed.stop();
             log.info("Stopped vehicle detection for {}", roadName);
         }
+        Replay replay = replays.get(roadName);
+        if (replay != null && replay.stop()) {
+            log.info("Stopped replay of {} on {}", replay.recording, roadName);
+        }
     }
     
     /**
-     * Stop all detections
+     * Stop all detections and replays
      */
     public void stopAllDetections() {
-        detectionTasks.forEach((roadName, task) -> task.cancel(false));
+        detectionTasks.values().forEach(LiveFeed::stop);
         detectionTasks.clear();
+        replays.values().forEach(Replay::stop);
+        replays.clear();
         log.info("Stopped all vehicle detections");
     }
     
     /**
-     * Simulate YOLO detection on current video frame
+     * Simulate YOLO detection on the current video frame of a road's scene. Vehicle ids and
+     * flow rate are left to the tracker.
      */
-    private VideoAnalyticsDTO detectVehicles(String roadName) {
-        long timestamp = System.currentTimeMillis();
-        
-        // Simulate varying traffic density (0-15 vehicles per frame)
-        int vehicleCount = random.nextInt(16);
+    private VideoAnalyticsDTO detectVehicles(Scene scene, long timestamp) {
+        scene.advance(timestamp, sceneArrivalRate, random);
         
         List<DetectedVehicleDTO> detectedVehicles = new ArrayList<>();
         
-        for (int i = 0; i < vehicleCount; i++) {
-            // Random vehicle type
-            String type = vehicleTypes[random.nextInt(vehicleTypes.length)];
+        for (SceneVehicle vehicle : scene.vehicles) {
+            // The detector misses a vehicle now and then
+            if (random.nextDouble() < 0.05) continue;
             
-            // Random bounding box (normalized coordinates 0-1)
+            // Detected box (normalized coordinates 0-1) with a little localization noise
             BoundingBoxDTO bbox = BoundingBoxDTO.builder()
-                .x(random.nextDouble() * 0.8)
-                .y(random.nextDouble() * 0.8)
-                .width(0.05 + random.nextDouble() * 0.15)  // 5-20% of frame width
-                .height(0.05 + random.nextDouble() * 0.15) // 5-20% of frame height
+                .x(vehicle.x + random.nextGaussian() * 0.003)
+                .y(vehicle.y + random.nextGaussian() * 0.003)
+                .width(vehicle.width)
+                .height(vehicle.height)
                 .build();
             
             // YOLO confidence score (0.5-0.99)
             double confidence = 0.5 + random.nextDouble() * 0.49;
             
-            // Simulated speed (0-80 km/h)
-            double speed = random.nextDouble() * 80.0;
+            // Estimated speed, within a few percent of the true one
+            double speed = Math.max(0.0, vehicle.speed * (1.0 + random.nextGaussian() * 0.03));
             
-            DetectedVehicleDTO vehicle = DetectedVehicleDTO.builder()
-                .id(String.format("%s-vehicle-%d-%d", roadName, timestamp, i))
-                .type(type)
+            DetectedVehicleDTO detected = DetectedVehicleDTO.builder()
+                .type(vehicle.type)
                 .confidence(confidence)
                 .bbox(bbox)
                 .speed(speed)
                 .timestamp(timestamp)
                 .build();
             
-            detectedVehicles.add(vehicle);
+            detectedVehicles.add(detected);
         }
+        int vehicleCount = detectedVehicles.size();
         
         // Calculate queue length (vehicles with low speed < 10 km/h)
         int queueLength = (int) detectedVehicles.stream()
@@ -129,20 +195,21 @@ public class VehicleDetectionService {
                 .orElse(0.0)
             : 0.0;
         
-        // Flow rate: vehicles per minute (extrapolate from current detection)
-        double flowRate = vehicleCount * 2.0 * 60.0; // 2 detections per second * 60 seconds
-        
         return VideoAnalyticsDTO.builder()
-            .roadName(roadName)
+            .roadName(scene.roadName)
             .vehicleCount(vehicleCount)
             .queueLength(queueLength)
             .averageSpeed(Math.round(averageSpeed * 100.0) / 100.0)
             .detectedVehicles(detectedVehicles)
             .timestamp(timestamp)
-            .flowRate(flowRate)
             .build();
     }
     
+    private VehicleTracker newTracker(String roadName) {
+        return new VehicleTracker(roadName, new VehicleTracker.Settings(frameHeightMeters, countingLine, minOverlap,
+            maxSpeedDifference, maxMisses, gridCells, flowWindowSeconds * 1000L));
+    }
+    
     /**
      * Analyze traffic density and recommend signal timing
      */
@@ -179,12 +246,337 @@ public class VehicleDetectionService {
         return new TrafficDensityAnalysis(density, recommendedGreenTime, urgency);
     }
     
+    /**
+     * What a simulated camera sees: vehicles entering at the top of the frame in one of four
+     * lanes and driving down at their own speed, held up by slower vehicles ahead in the lane
+     */
+    private final class Scene {
+        private static final int MAX_VEHICLES = 15;
+        private static final double[] LANES = {0.1, 0.3, 0.5, 0.7}; // lane centres
+        private static final double GAP = 0.01; // frame heights kept to the vehicle ahead
+        private static final double ACCELERATION = 2.0; // m/s^2
+        private static final double BRAKING = 4.0; // m/s^2
+        
+        private final String roadName;
+        private final double frameHeightMeters;
+        private final List<SceneVehicle> vehicles = new ArrayList<>();
+        private long lastTimestamp = Long.MIN_VALUE;
+        
+        Scene(String roadName, double frameHeightMeters) {
+            this.roadName = roadName;
+            this.frameHeightMeters = frameHeightMeters;
+        }
+        
+        /**
+         * Run a minute of traffic so detection does not start on an empty road
+         */
+        void warmUp(double arrivalRate, Random random) {
+            for (int i = 0; i < 120; i++) {
+                step(0.5, arrivalRate, random);
+            }
+        }
+        
+        void advance(long timestamp, double arrivalRate, Random random) {
+            double seconds = lastTimestamp == Long.MIN_VALUE ? 0.5 : (timestamp - lastTimestamp) / 1000.0;
+            lastTimestamp = timestamp;
+            step(seconds, arrivalRate, random);
+        }
+        
+        private void step(double seconds, double arrivalRate, Random random) {
+            // Front vehicles first, so each one knows where the vehicle ahead ends up
+            vehicles.sort((a, b) -> Double.compare(b.y, a.y));
+            double[] laneLimit = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+            double[] laneSpeed = new double[LANES.length];
+            for (SceneVehicle vehicle : vehicles) {
+                // Bounded acceleration and braking like real traffic, never faster than lets
+                // the vehicle stop behind the one ahead should that one brake too
+                double limit = laneLimit[vehicle.lane] - vehicle.height - GAP;
+                double gapMeters = Math.max(0.0, limit - vehicle.y) * frameHeightMeters;
+                double safeSpeed = safeSpeed(gapMeters, laneSpeed[vehicle.lane], seconds);
+                double target = Math.min(vehicle.desiredSpeed, safeSpeed);
+                vehicle.speed = Math.max(Math.max(0.0, vehicle.speed - BRAKING * 3.6 * seconds),
+                    Math.min(vehicle.speed + ACCELERATION * 3.6 * seconds, target));
+                
+                double y = vehicle.y + vehicle.speed / 3.6 / frameHeightMeters * seconds;
+                if (y > limit) {
+                    // Could not brake in time: stop behind it
+                    y = Math.max(vehicle.y, limit);
+                    vehicle.speed = Math.max(0.0, (y - vehicle.y) * frameHeightMeters * 3.6 / seconds);
+                }
+                vehicle.y = y;
+                laneLimit[vehicle.lane] = vehicle.y;
+                laneSpeed[vehicle.lane] = vehicle.speed;
+            }
+            vehicles.removeIf(vehicle -> vehicle.y > 1.0);
+            
+            // Poisson arrivals into a random lane with room at the top
+            if (vehicles.size() < MAX_VEHICLES && random.nextDouble() < 1.0 - Math.exp(-arrivalRate * seconds)) {
+                SceneVehicle vehicle = SceneVehicle.random(vehicleTypes[random.nextInt(vehicleTypes.length)],
+                    random.nextInt(LANES.length), frameHeightMeters, random);
+                double gapMeters = (laneLimit[vehicle.lane] - vehicle.y - vehicle.height - GAP) * frameHeightMeters;
+                if (gapMeters > 0) {
+                    // Enter no faster than the vehicle ahead allows
+                    vehicle.speed = Math.min(vehicle.desiredSpeed, safeSpeed(gapMeters, laneSpeed[vehicle.lane], 0.5));
+                    vehicle.x = LANES[vehicle.lane] - vehicle.width / 2;
+                    vehicles.add(vehicle);
+                }
+            }
+        }
+        
+        /**
+         * Highest speed (km/h) from which, after moving for {@code seconds}, the vehicle can
+         * still stop behind a leader {@code gapMeters} ahead that brakes from {@code leaderSpeed}
+         */
+        private static double safeSpeed(double gapMeters, double leaderSpeed, double seconds) {
+            double leader = leaderSpeed / 3.6;
+            double reaction = BRAKING * seconds;
+            return (Math.sqrt(reaction * reaction + 2 * BRAKING * gapMeters + leader * leader) - reaction) * 3.6;
+        }
+    }
+    
+    private static final class SceneVehicle {
+        private String type;
+        private int lane;
+        private double x;
+        private double y; // top of the box
+        private double width;
+        private double height;
+        private double desiredSpeed; // km/h
+        private double speed; // km/h in the last step
+        
+        static SceneVehicle random(String type, int lane, double frameHeightMeters, Random random) {
+            double length = switch (type) {
+                case "truck" -> 10.0;
+                case "bus" -> 12.0;
+                case "motorcycle", "bicycle" -> 2.0;
+                default -> 4.5;
+            };
+            double width = switch (type) {
+                case "truck", "bus" -> 0.15;
+                case "motorcycle", "bicycle" -> 0.05;
+                default -> 0.1;
+            };
+            
+            SceneVehicle vehicle = new SceneVehicle();
+            vehicle.type = type;
+            vehicle.lane = lane;
+            vehicle.width = width * (0.9 + random.nextDouble() * 0.2);
+            vehicle.height = length / frameHeightMeters * (0.9 + random.nextDouble() * 0.2);
+            vehicle.y = -vehicle.height / 2; // entering the frame
+            // A quarter of motor vehicles crawl (turning, parking, held up downstream)
+            vehicle.desiredSpeed = "bicycle".equals(type) ? 10.0 + random.nextDouble() * 10.0
+                : random.nextDouble() < 0.25 ? 2.0 + random.nextDouble() * 8.0
+                : 25.0 + random.nextDouble() * 35.0;
+            vehicle.speed = vehicle.desiredSpeed;
+            return vehicle;
+        }
+    }
+    
+    /**
+     * Frame as if detected now on {@code roadName}
+     */
+    private static VideoAnalyticsDTO retime(VideoAnalyticsDTO frame, String roadName, long now) {
+        long shift = now - frame.getTimestamp();
+        frame.setRoadName(roadName);
+        frame.setTimestamp(now);
+        if (frame.getDetectedVehicles() != null) {
+            for (DetectedVehicleDTO vehicle : frame.getDetectedVehicles()) {
+                vehicle.setTimestamp(vehicle.getTimestamp() + shift);
+            }
+        }
+        return frame;
+    }
+    
+    /**
+     * Live detection of one road: each frame schedules the next after the delay its sampling
+     * rate asks for
+     */
+    private final class LiveFeed implements Runnable {
+        private final String roadName;
+        private final DetectionCallback callback;
+        private final Scene scene;
+        private final VehicleTracker tracker;
+        private final WindowAggregator windows;
+        private final DetectionSamplingService.Feed rate;
+        
+        private volatile ScheduledFuture<?> next;
+        private volatile boolean stopped;
+        
+        LiveFeed(String roadName, DetectionCallback callback) {
+            this.roadName = roadName;
+            this.callback = callback;
+            this.scene = new Scene(roadName, frameHeightMeters);
+            this.scene.warmUp(sceneArrivalRate, random);
+            this.tracker = newTracker(roadName);
+            this.windows = windowService.newAggregator(roadName);
+            this.rate = samplingService.register(roadName);
+        }
+        
+        @Override
+        public void run() {
+            if (stopped) return;
+            long delay = 500;
+            try {
+                long start = System.nanoTime();
+                VideoAnalyticsDTO analytics = detectVehicles(scene, System.currentTimeMillis());
+                tracker.track(analytics);
+                recordingService.record(analytics);
+                windows.add(analytics, callback::onWindow);
+                callback.onAnalytics(analytics);
+                delay = rate.next(analytics, System.nanoTime() - start);
+            } catch (Exception e) {
+                log.error("Error in vehicle detection for {}: {}", roadName, e.getMessage());
+            }
+            synchronized (this) {
+                if (!stopped) next = scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        
+        synchronized void stop() {
+            stopped = true;
+            if (next != null) next.cancel(false);
+            rate.close();
+        }
+    }
+    
+    /**
+     * A recorded log being fed to a road. Each run delivers every frame that is due and
+     * reschedules itself for the next one; due times are measured from the start of the
+     * replay, so delays in delivery do not accumulate.
+     */
+    private final class Replay implements Runnable {
+        private final String roadName;
+        private final String recording;
+        private final double speed;
+        private final String simulationId;
+        private final AnalyticsLogReader reader;
+        private final DetectionCallback callback;
+        private final VehicleTracker tracker;
+        private final WindowAggregator windows;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        
+        private volatile ScheduledFuture<?> next;
+        private volatile boolean stopped;
+        private volatile String status = "running";
+        private volatile long frames;
+        private volatile long endNanos;
+        private volatile long maxLagNanos;
+        private long firstTimestamp = Long.MIN_VALUE;
+        private VideoAnalyticsDTO pending;
+        
+        Replay(String roadName, String recording, double speed, String simulationId,
+               AnalyticsLogReader reader, DetectionCallback callback) {
+            this.roadName = roadName;
+            this.recording = recording;
+            this.speed = speed;
+            this.simulationId = simulationId;
+            this.reader = reader;
+            this.callback = callback;
+            this.tracker = newTracker(roadName);
+            this.windows = windowService.newAggregator(roadName);
+        }
+        
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    if (pending == null) {
+                        pending = reader.next();
+                        if (pending == null) {
+                            finish("completed");
+                            return;
+                        }
+                        if (firstTimestamp == Long.MIN_VALUE) firstTimestamp = pending.getTimestamp();
+                    }
+                    
+                    long due = startNanos + (long) ((pending.getTimestamp() - firstTimestamp) * 1e6 / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        next = scheduler.schedule(this, wait, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    if (speed != Double.POSITIVE_INFINITY) maxLagNanos = Math.max(maxLagNanos, -wait);
+                    
+                    tracker.track(pending);
+                    windows.add(pending, callback::onWindow);
+                    long recordedAt = pending.getTimestamp();
+                    VideoAnalyticsDTO frame = retime(pending, roadName, System.currentTimeMillis());
+                    pending = null;
+                    callback.onReplayed(frame, recordedAt);
+                    frames++;
+                }
+                finish("stopped");
+            } catch (Exception e) {
+                log.error("Replay of {} on {} failed: {}", recording, roadName, e.getMessage());
+                finish("failed");
+            }
+        }
+        
+        /**
+         * @return false if the replay had already ended
+         */
+        boolean stop() {
+            if (!"running".equals(status)) return false;
+            stopped = true;
+            ScheduledFuture<?> scheduled = next;
+            if (scheduled != null && scheduled.cancel(false)) {
+                // Will not run again to notice the flag itself
+                finish("stopped");
+            }
+            return true;
+        }
+        
+        private synchronized void finish(String result) {
+            if (!"running".equals(status)) return;
+            status = result;
+            endNanos = System.nanoTime();
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.warn("Could not close recording {}: {}", recording, e.getMessage());
+            }
+            log.info("Replay of {} on {} {}: {} frames", recording, roadName, result, frames);
+        }
+        
+        AnalyticsReplayDTO toDTO() {
+            long end = "running".equals(status) ? System.nanoTime() : endNanos;
+            return AnalyticsReplayDTO.builder()
+                .roadName(roadName)
+                .recording(recording)
+                .speed(speed != Double.POSITIVE_INFINITY ? speed : null)
+                .simulationId(simulationId)
+                .status(status)
+                .frames(frames)
+                .elapsedMillis((end - startNanos) / 1e6)
+                .maxLagMillis(maxLagNanos / 1e6)
+                .truncated(reader.isTruncated())
+                .startedAt(startedAt)
+                .build();
+        }
+    }
+    
     /**
      * Callback interface for detection results
      */
     @FunctionalInterface
     public interface DetectionCallback {
         void onAnalytics(VideoAnalyticsDTO analytics);
+        
+        /**
+         * A detection window of the road closed (see {@link WindowAggregator}); called before the
+         * frame that closed it is passed to {@link #onAnalytics}
+         */
+        default void onWindow(DetectionWindowDTO window) {
+        }
+        
+        /**
+         * A replayed frame, retimed to now; {@code recordedAt} is when it was detected, which
+         * windows over the stream should go by so they do not depend on the replay speed
+         */
+        default void onReplayed(VideoAnalyticsDTO analytics, long recordedAt) {
+            onAnalytics(analytics);
+        }
     }
     
     /**
@@ -0,0 +1,267 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.DetectedVehicleDTO;
+import com.smarttraffic.dto.DetectedVehicleDTO.BoundingBoxDTO;
+import com.smarttraffic.dto.VideoAnalyticsDTO;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Associates the detections of one camera feed across frames, so vehicles keep a stable
+ * id and flow is counted from vehicles actually crossing a counting line instead of
+ * being extrapolated from a single frame.
+ *
+ * Traffic moves down the frame (increasing y). Each frame, every track's box is moved
+ * ahead by its last reported speed and indexed in a uniform grid over the frame; a
+ * detection is only compared with the tracks in the cells its box overlaps, so matching
+ * stays near-linear in the number of vehicles. Candidate pairs need enough box overlap
+ * and similar speeds, and are matched greedily, best score first. Unmatched detections
+ * start new tracks; tracks missed for more than {@code maxMisses} frames are dropped.
+ *
+ * Not thread-safe: one tracker per feed, fed by one thread at a time.
+ */
+public class VehicleTracker {
+    
+    /**
+     * @param frameHeightMeters road length the camera's frame height covers
+     * @param countingLine y (0 top, 1 bottom) whose crossing counts a vehicle
+     * @param minOverlap smallest intersection-over-union of predicted and detected box to match
+     * @param maxSpeedDifference km/h beyond which a detection cannot continue a track
+     * @param maxMisses frames a track survives without a matching detection
+     * @param gridCells cells per side of the matching grid
+     * @param flowWindowMillis crossings counted into the flow rate
+     */
+    public record Settings(double frameHeightMeters, double countingLine, double minOverlap,
+                           double maxSpeedDifference, int maxMisses, int gridCells, long flowWindowMillis) {
+    }
+    
+    private final String roadName;
+    private final Settings settings;
+    private final List<Track> tracks = new ArrayList<>();
+    private final ArrayDeque<Long> crossingTimes = new ArrayDeque<>(); // within the flow window
+    private long nextTrackId = 1;
+    private long crossings;
+    private long firstTimestamp = Long.MIN_VALUE;
+    private long lastTimestamp;
+    
+    // Grid of predicted track boxes as linked lists of entries, reused across frames
+    private final int[] cellHead;
+    private int[] entryNext = new int[64];
+    private int[] entryTrack = new int[64];
+    private int[] seen = new int[16]; // per track, 1 + the last detection that scored it
+    private double[] candidateScore = new double[64];
+    private int[] candidateTrack = new int[64];
+    private int[] candidateDetection = new int[64];
+    
+    public VehicleTracker(String roadName, Settings settings) {
+        this.roadName = roadName;
+        this.settings = settings;
+        this.cellHead = new int[settings.gridCells() * settings.gridCells()];
+    }
+    
+    /**
+     * Replace the frame's vehicle ids with track ids and its flow rate with counted crossings
+     * per minute over the flow window (or over the time tracked so far, if shorter)
+     */
+    public void track(VideoAnalyticsDTO frame) {
+        long timestamp = frame.getTimestamp();
+        if (firstTimestamp == Long.MIN_VALUE) {
+            firstTimestamp = timestamp;
+            lastTimestamp = timestamp;
+        }
+        double seconds = Math.max(0, timestamp - lastTimestamp) / 1000.0;
+        lastTimestamp = timestamp;
+        
+        List<DetectedVehicleDTO> detections = frame.getDetectedVehicles() != null
+            ? frame.getDetectedVehicles() : List.of();
+        predict(seconds);
+        int[] assignment = associate(detections);
+        
+        for (int d = 0; d < detections.size(); d++) {
+            DetectedVehicleDTO detection = detections.get(d);
+            Track track;
+            if (assignment[d] >= 0) {
+                track = tracks.get(assignment[d]);
+            } else {
+                track = new Track(roadName + "-track-" + nextTrackId++);
+                tracks.add(track);
+            }
+            track.update(detection);
+            detection.setId(track.id);
+            
+            if (!track.counted && track.previousCenter < settings.countingLine()
+                && track.center >= settings.countingLine()) {
+                track.counted = true;
+                crossings++;
+                crossingTimes.addLast(timestamp);
+            }
+        }
+        tracks.removeIf(track -> track.misses > settings.maxMisses() || track.y > 1.0);
+        
+        while (!crossingTimes.isEmpty() && crossingTimes.peekFirst() <= timestamp - settings.flowWindowMillis()) {
+            crossingTimes.pollFirst();
+        }
+        frame.setFlowRate(flowRate(timestamp));
+    }
+    
+    /**
+     * Vehicles counted since the tracker started
+     */
+    public long getCrossings() {
+        return crossings;
+    }
+    
+    public int getActiveTracks() {
+        return tracks.size();
+    }
+    
+    private double flowRate(long timestamp) {
+        // Until a full window has been tracked, rate over the time seen (at least one second)
+        long window = Math.min(settings.flowWindowMillis(), Math.max(1000L, timestamp - firstTimestamp));
+        return Math.round(crossingTimes.size() * 60_000.0 / window * 100.0) / 100.0;
+    }
+    
+    /**
+     * Move every track ahead by its speed and mark it missed until a detection claims it
+     */
+    private void predict(double seconds) {
+        for (Track track : tracks) {
+            track.y += track.speed / 3.6 / settings.frameHeightMeters() * seconds;
+            track.misses++;
+        }
+    }
+    
+    /**
+     * Index of the track each detection continues, or -1 for a new vehicle
+     */
+    private int[] associate(List<DetectedVehicleDTO> detections) {
+        int[] assignment = new int[detections.size()];
+        Arrays.fill(assignment, -1);
+        if (tracks.isEmpty() || detections.isEmpty()) return assignment;
+        
+        indexTracks();
+        int candidates = 0;
+        for (int d = 0; d < detections.size(); d++) {
+            BoundingBoxDTO box = detections.get(d).getBbox();
+            if (box == null) continue;
+            double x = box.getX(), y = box.getY(), w = box.getWidth(), h = box.getHeight();
+            double speed = detections.get(d).getSpeed() != null ? detections.get(d).getSpeed() : 0.0;
+            
+            for (int cy = cell(y); cy <= cell(y + h); cy++) {
+                for (int cx = cell(x); cx <= cell(x + w); cx++) {
+                    for (int e = cellHead[cy * settings.gridCells() + cx]; e >= 0; e = entryNext[e]) {
+                        int t = entryTrack[e];
+                        if (seen[t] == d + 1) continue; // already scored through another cell
+                        seen[t] = d + 1;
+                        
+                        Track track = tracks.get(t);
+                        double speedDifference = Math.abs(track.speed - speed);
+                        if (speedDifference > settings.maxSpeedDifference()) continue;
+                        double overlap = overlap(track, x, y, w, h);
+                        if (overlap < settings.minOverlap()) continue;
+                        
+                        if (candidates == candidateScore.length) growCandidates();
+                        candidateScore[candidates] = overlap * (1.0 - speedDifference / (2 * settings.maxSpeedDifference()));
+                        candidateTrack[candidates] = t;
+                        candidateDetection[candidates] = d;
+                        candidates++;
+                    }
+                }
+            }
+        }
+        
+        // Greedy: best-scoring pairs first, each track and detection used once
+        Integer[] order = new Integer[candidates];
+        for (int i = 0; i < candidates; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(candidateScore[b], candidateScore[a]));
+        boolean[] trackTaken = new boolean[tracks.size()];
+        for (int i : order) {
+            int t = candidateTrack[i];
+            int d = candidateDetection[i];
+            if (trackTaken[t] || assignment[d] >= 0) continue;
+            trackTaken[t] = true;
+            assignment[d] = t;
+        }
+        return assignment;
+    }
+    
+    private void indexTracks() {
+        Arrays.fill(cellHead, -1);
+        if (seen.length < tracks.size()) seen = new int[tracks.size() * 2];
+        Arrays.fill(seen, 0, tracks.size(), 0);
+        
+        int entries = 0;
+        for (int t = 0; t < tracks.size(); t++) {
+            Track track = tracks.get(t);
+            for (int cy = cell(track.y); cy <= cell(track.y + track.height); cy++) {
+                for (int cx = cell(track.x); cx <= cell(track.x + track.width); cx++) {
+                    if (entries == entryNext.length) {
+                        entryNext = Arrays.copyOf(entryNext, entries * 2);
+                        entryTrack = Arrays.copyOf(entryTrack, entries * 2);
+                    }
+                    int c = cy * settings.gridCells() + cx;
+                    entryTrack[entries] = t;
+                    entryNext[entries] = cellHead[c];
+                    cellHead[c] = entries++;
+                }
+            }
+        }
+    }
+    
+    private int cell(double coordinate) {
+        int cells = settings.gridCells();
+        return Math.max(0, Math.min(cells - 1, (int) (coordinate * cells)));
+    }
+    
+    private void growCandidates() {
+        int size = candidateScore.length * 2;
+        candidateScore = Arrays.copyOf(candidateScore, size);
+        candidateTrack = Arrays.copyOf(candidateTrack, size);
+        candidateDetection = Arrays.copyOf(candidateDetection, size);
+    }
+    
+    private static double overlap(Track track, double x, double y, double w, double h) {
+        double ix = Math.min(track.x + track.width, x + w) - Math.max(track.x, x);
+        double iy = Math.min(track.y + track.height, y + h) - Math.max(track.y, y);
+        if (ix <= 0 || iy <= 0) return 0.0;
+        double intersection = ix * iy;
+        return intersection / (track.width * track.height + w * h - intersection);
+    }
+    
+    /**
+     * A vehicle followed across frames; the box is where it is expected in the current frame
+     */
+    private static final class Track {
+        private final String id;
+        private double x;
+        private double y;
+        private double width;
+        private double height;
+        private double speed; // km/h, as last reported
+        private double center = Double.NaN; // y of the box centre when last detected
+        private double previousCenter = Double.NaN;
+        private int misses;
+        private boolean counted;
+        
+        Track(String id) {
+            this.id = id;
+        }
+        
+        void update(DetectedVehicleDTO detection) {
+            BoundingBoxDTO box = detection.getBbox();
+            if (box != null) {
+                x = box.getX();
+                y = box.getY();
+                width = box.getWidth();
+                height = box.getHeight();
+            }
+            speed = detection.getSpeed() != null ? detection.getSpeed() : 0.0;
+            previousCenter = center;
+            center = y + height / 2;
+            misses = 0;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.smarttraffic.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.smarttraffic.dto.VideoAnalyticsDTO;
+import com.smarttraffic.dto.VideoIngestResultDTO;
+import com.smarttraffic.dto.VideoIngestStatsDTO;
+import com.smarttraffic.dto.VideoUpdateDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulk ingest of newline-delimited video analytics (one {@link VideoUpdateDTO} per line) for
+ * many simulations and roads in one request.
+ *
+ * The body is read and parsed line by line on the calling (request) thread, so an upload is
+ * never held in memory and a slow client never ties up a detection thread. Every
+ * {@code traffic.ingest.batch-size} lines the pending updates are grouped by simulation and
+ * each group is applied on the detection bulkhead, under a single acquisition of that
+ * simulation's lock. A bad line is rejected on its own and counted by reason; the rest of the
+ * upload still applies. A group the bulkhead has no room for is rejected as {@link #OVERLOADED},
+ * so the client knows which lines to send again.
+ */
+@Service
+@Slf4j
+public class VideoIngestService {
+    
+    public static final String MALFORMED = "malformed";
+    public static final String MISSING_FIELD = "missing_field";
+    public static final String UNKNOWN_SIMULATION = "unknown_simulation";
+    public static final String UNKNOWN_ROAD = "unknown_road";
+    public static final String OVERLOADED = "overloaded";
+    
+    private final TrafficSimulationService simulationService;
+    private final Bulkheads bulkheads;
+    private final ObjectReader lineReader;
+    private final int batchSize;
+    private final int maxErrors;
+    
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final Map<String, LongAdder> rejected = new ConcurrentHashMap<>();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    
+    public VideoIngestService(
+        TrafficSimulationService simulationService,
+        Bulkheads bulkheads,
+        ObjectMapper objectMapper,
+        @Value("${traffic.ingest.batch-size:500}") int batchSize,
+        @Value("${traffic.ingest.max-errors:20}") int maxErrors
+    ) {
+        this.simulationService = simulationService;
+        this.bulkheads = bulkheads;
+        this.lineReader = objectMapper.readerFor(VideoUpdateDTO.class);
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+    
+    /**
+     * Read, validate and apply every line of {@code body}
+     */
+    public VideoIngestResultDTO ingest(InputStream body) throws IOException {
+        long start = System.nanoTime();
+        Upload upload = new Upload();
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        for (String line; (line = reader.readLine()) != null; ) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            upload.lines++;
+            
+            // Only an object is an update; `null` would read as a null update, other values would be coerced
+            VideoUpdateDTO update;
+            try {
+                update = line.strip().startsWith("{") ? lineReader.readValue(line) : null;
+            } catch (IOException e) {
+                update = null;
+            }
+            if (update == null) {
+                upload.reject(lineNumber, MALFORMED);
+                continue;
+            }
+            VideoAnalyticsDTO analytics = update.getAnalytics();
+            if (update.getSimulationId() == null || analytics == null || analytics.getRoadName() == null
+                || analytics.getVehicleCount() == null || analytics.getQueueLength() == null) {
+                upload.reject(lineNumber, MISSING_FIELD);
+                continue;
+            }
+            
+            upload.pending.computeIfAbsent(update.getSimulationId(), id -> new Batch()).add(lineNumber, analytics);
+            if (++upload.pendingLines >= batchSize) {
+                upload.flush();
+            }
+        }
+        upload.flush();
+        
+        long elapsed = System.nanoTime() - start;
+        requests.increment();
+        requestLatency.recordNanos(elapsed);
+        lines.add(upload.lines);
+        accepted.add(upload.accepted);
+        upload.rejectedByReason.forEach((reason, count) ->
+            rejected.computeIfAbsent(reason, r -> new LongAdder()).add(count));
+        
+        long rejectedLines = upload.rejectedByReason.values().stream().mapToLong(Long::longValue).sum();
+        log.debug("Ingested {} video updates in {} batches ({} rejected)", upload.accepted, upload.batches, rejectedLines);
+        return VideoIngestResultDTO.builder()
+            .lines(upload.lines)
+            .accepted(upload.accepted)
+            .rejected(rejectedLines)
+            .rejectedByReason(upload.rejectedByReason)
+            .errors(upload.errors)
+            .batches(upload.batches)
+            .elapsedMillis(round(elapsed / 1e6))
+            .build();
+    }
+    
+    public VideoIngestStatsDTO getStats() {
+        Map<String, Long> rejectedByReason = new TreeMap<>();
+        rejected.forEach((reason, count) -> rejectedByReason.put(reason, count.sum()));
+        
+        return VideoIngestStatsDTO.builder()
+            .requests(requests.sum())
+            .lines(lines.sum())
+            .accepted(accepted.sum())
+            .rejected(rejectedByReason.values().stream().mapToLong(Long::longValue).sum())
+            .rejectedByReason(rejectedByReason)
+            .batches(batches.sum())
+            .batchP50Millis(round(batchLatency.percentileMillis(0.50)))
+            .batchP99Millis(round(batchLatency.percentileMillis(0.99)))
+            .batchMaxMillis(round(batchLatency.maxMillis()))
+            .requestP50Millis(round(requestLatency.percentileMillis(0.50)))
+            .requestP99Millis(round(requestLatency.percentileMillis(0.99)))
+            .requestMaxMillis(round(requestLatency.maxMillis()))
+            .build();
+    }
+    
+    private static double round(double millis) {
+        return Math.round(millis * 1_000.0) / 1_000.0;
+    }
+    
+    /**
+     * Updates of one simulation waiting to be applied, in upload order
+     */
+    private static final class Batch {
+        private final List<Long> lineNumbers = new ArrayList<>();
+        private final List<VideoAnalyticsDTO> updates = new ArrayList<>();
+        
+        void add(long lineNumber, VideoAnalyticsDTO update) {
+            lineNumbers.add(lineNumber);
+            updates.add(update);
+        }
+    }
+    
+    /**
+     * Progress of one request
+     */
+    private final class Upload {
+        private final Map<String, Batch> pending = new LinkedHashMap<>();
+        private final Map<String, Long> rejectedByReason = new TreeMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private int pendingLines;
+        private long lines;
+        private long accepted;
+        private int batches;
+        
+        void flush() {
+            for (Map.Entry<String, Batch> entry : pending.entrySet()) {
+                Batch batch = entry.getValue();
+                long start = System.nanoTime();
+                Optional<boolean[]> applied;
+                try {
+                    applied = bulkheads.detection()
+                        .submit(() -> simulationService.updateRoadsFromVideo(entry.getKey(), batch.updates))
+                        .join();
+                } catch (BulkheadFullException e) {
+                    batch.lineNumbers.forEach(lineNumber -> reject(lineNumber, OVERLOADED));
+                    continue;
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+                batchLatency.recordNanos(System.nanoTime() - start);
+                batches++;
+                VideoIngestService.this.batches.increment();
+                
+                for (int i = 0; i < batch.updates.size(); i++) {
+                    if (applied.isEmpty()) {
+                        reject(batch.lineNumbers.get(i), UNKNOWN_SIMULATION);
+                    } else if (!applied.get()[i]) {
+                        reject(batch.lineNumbers.get(i), UNKNOWN_ROAD);
+                    } else {
+                        accepted++;
+                    }
+                }
+            }
+            pending.clear();
+            pendingLines = 0;
+        }
+        
+        void reject(long lineNumber, String reason) {
+            rejectedByReason.merge(reason, 1L, Long::sum);
+            if (errors.size() < maxErrors) {
+                errors.add("line " + lineNumber + ": " + reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.dto.DetectedVehicleDTO;
+import com.smarttraffic.dto.DetectionWindowDTO;
+import com.smarttraffic.dto.VideoAnalyticsDTO;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Tumbling and sliding window aggregates of one road's detection stream: vehicles, queue,
+ * speed, flow and vehicle type mix, so decisions need not rest on a single noisy frame.
+ *
+ * Each window is split into panes one slide long, held in a ring of per-pane sums next to
+ * the sums of the whole window. A frame is added to the current pane and to the window;
+ * closing a pane emits the window and subtracts the pane falling out of it. The work per
+ * frame is the same whatever the window length.
+ *
+ * Windows are aligned to multiples of their slide in event time (the frames' timestamps),
+ * so a replay at any speed gives the same results. A late frame counts towards the current
+ * pane; a frame older than a whole window (the stream's clock went back, e.g. a replay of an
+ * earlier recording took over the road) starts the window afresh.
+ *
+ * Not thread-safe: one aggregator per feed, fed by one thread at a time.
+ */
+public class WindowAggregator {
+    
+    /**
+     * @param name how results and topics refer to the window, e.g. "30s"
+     * @param slideMillis how often a result is emitted; equal to the length for tumbling windows
+     */
+    public record Window(String name, long lengthMillis, long slideMillis) {
+        
+        public Window {
+            if (slideMillis <= 0 || lengthMillis < slideMillis || lengthMillis % slideMillis != 0) {
+                throw new IllegalArgumentException("Window " + name + " must be a positive multiple of its slide");
+            }
+        }
+        
+        /**
+         * "30s" for a tumbling window, "30s/5s" for one sliding every 5 seconds; durations as
+         * in application.yml ("500ms", "5m", ...)
+         */
+        public static Window parse(String spec) {
+            String[] parts = spec.trim().split("/", 2);
+            String name = parts[0].trim();
+            long length = DurationStyle.detectAndParse(name).toMillis();
+            long slide = parts.length > 1 ? DurationStyle.detectAndParse(parts[1].trim()).toMillis() : length;
+            return new Window(name, length, slide);
+        }
+    }
+    
+    private static final String[] TYPES = {"car", "truck", "bus", "motorcycle", "bicycle", "other"};
+    
+    // Sums kept per pane and per window, at these offsets
+    private static final int FRAMES = 0;
+    private static final int VEHICLES = 1;
+    private static final int QUEUE = 2;
+    private static final int SPEED_SUM = 3;
+    private static final int SPEED_COUNT = 4;
+    private static final int FLOW_SUM = 5;
+    private static final int FLOW_FRAMES = 6;
+    private static final int TYPE_COUNT = 7; // one per TYPES entry
+    private static final int FIELDS = TYPE_COUNT + TYPES.length;
+    
+    private final String roadName;
+    private final List<Window> windows;
+    private final Ring[] rings;
+    private final double[] frame = new double[FIELDS];
+    
+    public WindowAggregator(String roadName, List<Window> windows) {
+        this.roadName = roadName;
+        this.windows = List.copyOf(windows);
+        this.rings = new Ring[windows.size()];
+        for (int w = 0; w < rings.length; w++) {
+            rings[w] = new Ring(windows.get(w));
+        }
+    }
+    
+    /**
+     * Add a frame (timestamp defaults to now); windows whose slide ended before it are passed
+     * to {@code closed} first
+     */
+    public void add(VideoAnalyticsDTO analytics, Consumer<DetectionWindowDTO> closed) {
+        add(analytics, analytics.getTimestamp() != null ? analytics.getTimestamp() : System.currentTimeMillis(), closed);
+    }
+    
+    /**
+     * Add a frame detected at {@code timestamp}, whatever the frame's own timestamp says
+     */
+    public void add(VideoAnalyticsDTO analytics, long timestamp, Consumer<DetectionWindowDTO> closed) {
+        summarize(analytics);
+        for (Ring ring : rings) {
+            ring.advance(timestamp, closed);
+            ring.add(frame);
+        }
+    }
+    
+    /**
+     * Average vehicles per frame in the open window (up to one slide short of its length), 0 if empty
+     */
+    public double averageVehicles(int window) {
+        return rings[window].average(VEHICLES, FRAMES);
+    }
+    
+    public double averageQueue(int window) {
+        return rings[window].average(QUEUE, FRAMES);
+    }
+    
+    /**
+     * The open windows, each up to one slide short of its length
+     */
+    public List<DetectionWindowDTO> current() {
+        List<DetectionWindowDTO> current = new ArrayList<>(rings.length);
+        for (Ring ring : rings) {
+            if (ring.pane != Long.MIN_VALUE) current.add(ring.result());
+        }
+        return current;
+    }
+    
+    public List<Window> getWindows() {
+        return windows;
+    }
+    
+    private void summarize(VideoAnalyticsDTO analytics) {
+        Arrays.fill(frame, 0.0);
+        List<DetectedVehicleDTO> detected = analytics.getDetectedVehicles();
+        frame[FRAMES] = 1;
+        frame[VEHICLES] = analytics.getVehicleCount() != null ? analytics.getVehicleCount()
+            : detected != null ? detected.size() : 0;
+        frame[QUEUE] = analytics.getQueueLength() != null ? analytics.getQueueLength() : 0;
+        if (analytics.getFlowRate() != null) {
+            frame[FLOW_SUM] = analytics.getFlowRate();
+            frame[FLOW_FRAMES] = 1;
+        }
+        
+        if (detected != null) {
+            for (DetectedVehicleDTO vehicle : detected) {
+                frame[TYPE_COUNT + typeIndex(vehicle.getType())]++;
+                if (vehicle.getSpeed() != null) {
+                    frame[SPEED_SUM] += vehicle.getSpeed();
+                    frame[SPEED_COUNT]++;
+                }
+            }
+        } else if (analytics.getAverageSpeed() != null && frame[VEHICLES] > 0) {
+            frame[SPEED_SUM] = analytics.getAverageSpeed() * frame[VEHICLES];
+            frame[SPEED_COUNT] = frame[VEHICLES];
+        }
+    }
+    
+    private static int typeIndex(String type) {
+        if (type == null) return TYPES.length - 1;
+        return switch (type) {
+            case "car" -> 0;
+            case "truck" -> 1;
+            case "bus" -> 2;
+            case "motorcycle" -> 3;
+            case "bicycle" -> 4;
+            default -> TYPES.length - 1;
+        };
+    }
+    
+    private static double round(double value, double scale) {
+        return Math.round(value * scale) / scale;
+    }
+    
+    /**
+     * One window's panes, oldest overwritten first
+     */
+    private final class Ring {
+        private final Window window;
+        private final int panes;
+        private final double[] paneSums; // FIELDS per pane
+        private final double[] sums = new double[FIELDS];
+        private int head; // the current pane's slot
+        private long pane = Long.MIN_VALUE; // current pane number: timestamp / slide
+        
+        Ring(Window window) {
+            this.window = window;
+            this.panes = (int) (window.lengthMillis() / window.slideMillis());
+            this.paneSums = new double[panes * FIELDS];
+        }
+        
+        /**
+         * Close panes up to the one holding {@code timestamp}. After a gap longer than the
+         * window every pane is empty, so at most {@code panes} are closed one by one.
+         */
+        void advance(long timestamp, Consumer<DetectionWindowDTO> closed) {
+            long target = Math.floorDiv(timestamp, window.slideMillis());
+            if (pane == Long.MIN_VALUE || target <= pane - panes) {
+                Arrays.fill(paneSums, 0.0);
+                Arrays.fill(sums, 0.0);
+                head = 0;
+                pane = target;
+                return;
+            }
+            long steps = Math.min(target - pane, panes);
+            for (long i = 0; i < steps; i++) {
+                if (sums[FRAMES] > 0) closed.accept(result());
+                head = (head + 1) % panes;
+                int base = head * FIELDS;
+                for (int f = 0; f < FIELDS; f++) {
+                    sums[f] -= paneSums[base + f];
+                    paneSums[base + f] = 0.0;
+                }
+                if (sums[FRAMES] == 0) Arrays.fill(sums, 0.0); // no rounding drift left behind
+                pane++;
+            }
+            pane = Math.max(pane, target);
+        }
+        
+        void add(double[] frame) {
+            int base = head * FIELDS;
+            for (int f = 0; f < FIELDS; f++) {
+                paneSums[base + f] += frame[f];
+                sums[f] += frame[f];
+            }
+        }
+        
+        double average(int sum, int count) {
+            return sums[count] > 0 ? sums[sum] / sums[count] : 0.0;
+        }
+        
+        DetectionWindowDTO result() {
+            long to = (pane + 1) * window.slideMillis();
+            Map<String, Double> mix = new LinkedHashMap<>();
+            double detections = 0;
+            for (int t = 0; t < TYPES.length; t++) detections += sums[TYPE_COUNT + t];
+            for (int t = 0; t < TYPES.length; t++) {
+                if (sums[TYPE_COUNT + t] > 0) mix.put(TYPES[t], round(sums[TYPE_COUNT + t] / detections, 1000.0));
+            }
+            return DetectionWindowDTO.builder()
+                .roadName(roadName)
+                .window(window.name())
+                .from(to - window.lengthMillis())
+                .to(to)
+                .frames((int) sums[FRAMES])
+                .detections((long) detections)
+                .averageVehicles(round(average(VEHICLES, FRAMES), 100.0))
+                .averageQueue(round(average(QUEUE, FRAMES), 100.0))
+                .averageSpeed(round(average(SPEED_SUM, SPEED_COUNT), 100.0))
+                .averageFlowRate(round(average(FLOW_SUM, FLOW_FRAMES), 100.0))
+                .vehicleMix(mix)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,570 @@
+package com.smarttraffic.simulation;
+
+import com.smarttraffic.dto.RoadDTO;
+import com.smarttraffic.dto.RoadWaitDistributionDTO;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Event-driven intersection model, an alternative to fixed 1-second ticks.
+ *
+ * Instead of re-evaluating every road each step, the engine keeps a priority queue of
+ * timed events and jumps from one to the next:
+ * - PHASE: the next signal boundary of the cycle plan (same plan as tick mode:
+ *   each approach gets a quarter of the cycle, the last 3 seconds of it yellow)
+ * - ARRIVAL: the next vehicle on an approach, Poisson arrivals (exponential inter-arrival)
+ * - DEPARTURE: a queued vehicle crosses on green, one per saturation headway
+ * - EMERGENCY_END: an emergency override expires
+ * Emergency start is applied immediately through {@link #startEmergency}.
+ *
+ * Between events nothing changes, so the cost of a run is proportional to the number
+ * of vehicles and phase changes, not to its duration. Waiting time is measured exactly
+ * from the queue-length integral (Little's law: total wait = area under the queue curve).
+ *
+ * In microscopic mode every approach holds its individual vehicles (arrival time, class,
+ * length) in a {@link VehicleQueue}. Departures pop the head vehicle and record its exact
+ * wait; the head vehicle's class scales the departure headway (passenger car equivalents).
+ *
+ * {@link #fork} copies an engine for what-if runs. Events are immutable and shared, vehicle
+ * buffers are copy-on-write; only the per-road counters are copied.
+ *
+ * Not thread-safe; callers hold the simulation's state lock.
+ */
+public class DiscreteEventEngine {
+    
+    private static final int PHASE = 0;
+    private static final int ARRIVAL = 1;
+    private static final int DEPARTURE = 2;
+    private static final int EMERGENCY_END = 3;
+    
+    private static final double YELLOW_SECONDS = 3.0;
+    private static final double EPSILON = 1e-6; // absorbs rounding when landing exactly on a boundary
+    private static final double STANDSTILL_GAP = 2.5; // metres between queued vehicles
+    private static final int WAIT_BUCKETS = 1800; // 1-second wait histogram, last bucket open-ended
+    
+    /**
+     * Callbacks for state changes that happen between two calls to {@link #advance}
+     */
+    public interface Listener {
+        Listener NONE = new Listener() { };
+        
+        default void signalChanged(int road, String previous, String light) { }
+        
+        default void emergencyExpired(int road) { }
+    }
+    
+    private record Event(double time, long seq, int type, int road, long token) implements Comparable<Event> {
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Double.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(seq, other.seq);
+        }
+    }
+    
+    private final PriorityQueue<Event> events;
+    private final SplittableRandom random;
+    private final double arrivalRate;
+    private final double saturationHeadway;
+    
+    private final int roads;
+    private final String[] lights;
+    private final int[] queue;
+    private final boolean[] departureScheduled;
+    private final double[] queueArea; // vehicle-seconds spent waiting
+    private final double[] lastQueueChange;
+    private final long[] served;
+    
+    // Microscopic mode only (null otherwise)
+    private final VehicleQueue[] vehicles;
+    private final double[] waitSum;
+    private final double[] waitMax;
+    private final long[][] waitHistogram;
+    private final long[][] servedByClass;
+    private final double[][] waitByClass;
+    
+    private double now;
+    private double cycleLength;
+    private double[] greenExtension; // seconds added to each road's phase; null = equal split
+    private long seq;
+    private long eventsProcessed;
+    private int emergencyRoad = -1;
+    private long emergencyToken;
+    
+    /**
+     * @param roads initial road state (lights and queues are taken from it)
+     * @param arrivalRate mean arrivals per second on each approach
+     * @param saturationHeadway seconds between departures of a discharging queue (per passenger car)
+     * @param microscopic track individual vehicles and their exact waits
+     */
+    public DiscreteEventEngine(List<RoadDTO> roads, double cycleLength, double arrivalRate,
+                               double saturationHeadway, long seed, boolean microscopic) {
+        this.roads = roads.size();
+        this.events = new PriorityQueue<>();
+        this.cycleLength = cycleLength;
+        this.arrivalRate = arrivalRate;
+        this.saturationHeadway = saturationHeadway;
+        this.random = new SplittableRandom(seed);
+        
+        this.lights = new String[this.roads];
+        this.queue = new int[this.roads];
+        this.departureScheduled = new boolean[this.roads];
+        this.queueArea = new double[this.roads];
+        this.lastQueueChange = new double[this.roads];
+        this.served = new long[this.roads];
+        
+        if (microscopic) {
+            int classes = VehicleClass.values().length;
+            this.vehicles = new VehicleQueue[this.roads];
+            this.waitSum = new double[this.roads];
+            this.waitMax = new double[this.roads];
+            this.waitHistogram = new long[this.roads][WAIT_BUCKETS];
+            this.servedByClass = new long[this.roads][classes];
+            this.waitByClass = new double[this.roads][classes];
+            for (int i = 0; i < this.roads; i++) {
+                vehicles[i] = new VehicleQueue();
+            }
+        } else {
+            this.vehicles = null;
+            this.waitSum = null;
+            this.waitMax = null;
+            this.waitHistogram = null;
+            this.servedByClass = null;
+            this.waitByClass = null;
+        }
+        
+        for (int i = 0; i < this.roads; i++) {
+            queue[i] = roads.get(i).getQueue();
+            if (microscopic) {
+                for (int v = 0; v < queue[i]; v++) {
+                    pushVehicle(i, VehicleClass.CAR);
+                }
+            }
+            lights[i] = planLight(i, cyclePosition());
+            if (arrivalRate > 0) {
+                schedule(nextArrival(), ARRIVAL, i, 0);
+            }
+        }
+        schedule(nextPhaseBoundary(), PHASE, -1, 0);
+        for (int i = 0; i < this.roads; i++) {
+            startDischarge(i);
+        }
+    }
+    
+    /**
+     * Copy of {@code source} that continues with its own random stream
+     */
+    private DiscreteEventEngine(DiscreteEventEngine source, long seed) {
+        this.roads = source.roads;
+        this.events = new PriorityQueue<>(source.events);
+        this.random = new SplittableRandom(seed);
+        this.arrivalRate = source.arrivalRate;
+        this.saturationHeadway = source.saturationHeadway;
+        
+        this.lights = source.lights.clone();
+        this.queue = source.queue.clone();
+        this.departureScheduled = source.departureScheduled.clone();
+        this.queueArea = source.queueArea.clone();
+        this.lastQueueChange = source.lastQueueChange.clone();
+        this.served = source.served.clone();
+        
+        if (source.vehicles != null) {
+            this.vehicles = new VehicleQueue[roads];
+            this.waitHistogram = new long[roads][];
+            this.servedByClass = new long[roads][];
+            this.waitByClass = new double[roads][];
+            for (int i = 0; i < roads; i++) {
+                vehicles[i] = source.vehicles[i].fork();
+                waitHistogram[i] = source.waitHistogram[i].clone();
+                servedByClass[i] = source.servedByClass[i].clone();
+                waitByClass[i] = source.waitByClass[i].clone();
+            }
+            this.waitSum = source.waitSum.clone();
+            this.waitMax = source.waitMax.clone();
+        } else {
+            this.vehicles = null;
+            this.waitSum = null;
+            this.waitMax = null;
+            this.waitHistogram = null;
+            this.servedByClass = null;
+            this.waitByClass = null;
+        }
+        
+        this.now = source.now;
+        this.cycleLength = source.cycleLength;
+        this.greenExtension = source.greenExtension != null ? source.greenExtension.clone() : null;
+        this.seq = source.seq;
+        this.eventsProcessed = source.eventsProcessed;
+        this.emergencyRoad = source.emergencyRoad;
+        this.emergencyToken = source.emergencyToken;
+    }
+    
+    /**
+     * Independent copy of the current state for what-if runs; forks with the same seed
+     * draw the same arrivals, so their differences come from the changed parameters
+     */
+    public DiscreteEventEngine fork(long seed) {
+        return new DiscreteEventEngine(this, seed);
+    }
+    
+    /**
+     * Process every event up to {@code now + seconds}
+     */
+    public void advance(double seconds, Listener listener) {
+        double until = now + seconds;
+        
+        while (!events.isEmpty() && events.peek().time() <= until) {
+            Event event = events.poll();
+            now = event.time();
+            eventsProcessed++;
+            
+            switch (event.type()) {
+                case PHASE -> {
+                    if (emergencyRoad < 0) {
+                        applyPlan(listener);
+                    }
+                    schedule(nextPhaseBoundary(), PHASE, -1, 0);
+                }
+                case ARRIVAL -> {
+                    if (vehicles != null) {
+                        pushVehicle(event.road(), VehicleClass.sample(random.nextDouble()));
+                    }
+                    setQueue(event.road(), queue[event.road()] + 1);
+                    startDischarge(event.road());
+                    schedule(nextArrival(), ARRIVAL, event.road(), 0);
+                }
+                case DEPARTURE -> depart(event.road());
+                case EMERGENCY_END -> {
+                    if (event.token() == emergencyToken && emergencyRoad >= 0) {
+                        int road = emergencyRoad;
+                        endEmergency(listener);
+                        listener.emergencyExpired(road);
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown event type " + event.type());
+            }
+        }
+        now = until;
+    }
+    
+    /**
+     * Give {@code road} green (all others red) now; it expires after {@code duration} seconds (0 = until cleared)
+     */
+    public void startEmergency(int road, double duration, Listener listener) {
+        emergencyRoad = road;
+        emergencyToken++;
+        for (int i = 0; i < roads; i++) {
+            setLight(i, i == road ? "green" : "red", listener);
+        }
+        if (duration > 0) {
+            schedule(now + duration, EMERGENCY_END, road, emergencyToken);
+        }
+    }
+    
+    /**
+     * Return to the cycle plan now
+     */
+    public void endEmergency(Listener listener) {
+        emergencyRoad = -1;
+        emergencyToken++;
+        applyPlan(listener);
+    }
+    
+    /**
+     * Takes effect from the next phase boundary
+     */
+    public void setCycleLength(double cycleLength) {
+        this.cycleLength = cycleLength;
+    }
+    
+    /**
+     * Lengthen (or shorten, if negative) a road's green by {@code seconds}; the cycle grows
+     * by the same amount. Takes effect from the next phase boundary.
+     */
+    public void setGreenExtension(int road, double seconds) {
+        if (cycleLength / roads + seconds - YELLOW_SECONDS < 1.0) {
+            throw new IllegalArgumentException("Green of road " + road + " would be shorter than 1 second");
+        }
+        if (greenExtension == null) greenExtension = new double[roads];
+        greenExtension[road] = seconds;
+    }
+    
+    /**
+     * Replace a road's queue with an observed value (e.g. from video analytics)
+     */
+    public void observeQueue(int road, int observed) {
+        observed = Math.max(0, observed);
+        if (vehicles != null) {
+            // Unseen vehicles join as cars; vehicles no longer seen are assumed to have left from the front
+            while (vehicles[road].size() < observed) pushVehicle(road, VehicleClass.CAR);
+            while (vehicles[road].size() > observed) vehicles[road].pop();
+        }
+        setQueue(road, observed);
+        startDischarge(road);
+    }
+    
+    /**
+     * Copy lights, queues and measured waits into the road DTOs
+     */
+    public void publish(List<RoadDTO> target) {
+        for (int i = 0; i < roads; i++) {
+            RoadDTO road = target.get(i);
+            road.setLight(lights[i]);
+            road.setQueue(queue[i]);
+            road.setVehicles(queue[i]);
+            road.setWaitTime(Math.round(averageWait(i) * 100.0) / 100.0);
+            
+            double queuePenalty = Math.min(queue[i] * 2.0, 30.0);
+            double waitPenalty = Math.min((road.getWaitTime() - 30.0) / 2.0, 20.0);
+            road.setPerformance(Math.max(50.0, Math.min(98.0, 100.0 - queuePenalty - waitPenalty)));
+        }
+    }
+    
+    /**
+     * Mean wait in seconds per vehicle on a road so far: exact over served vehicles in
+     * microscopic mode, otherwise from the queue integral (vehicles still queued included)
+     */
+    public double averageWait(int road) {
+        if (vehicles != null && served[road] > 0) {
+            return waitSum[road] / served[road];
+        }
+        double area = queueArea[road] + queue[road] * (now - lastQueueChange[road]);
+        long vehicles = served[road] + queue[road];
+        return vehicles > 0 ? area / vehicles : 0.0;
+    }
+    
+    public boolean isMicroscopic() {
+        return vehicles != null;
+    }
+    
+    /**
+     * Measured wait distribution of a road; microscopic mode only
+     */
+    public RoadWaitDistributionDTO waitDistribution(int road, RoadDTO roadInfo) {
+        if (vehicles == null) {
+            throw new IllegalStateException("Wait distributions are only measured in microscopic mode");
+        }
+        
+        Map<String, RoadWaitDistributionDTO.TypeStats> byType = new LinkedHashMap<>();
+        for (VehicleClass vehicleClass : VehicleClass.values()) {
+            long count = servedByClass[road][vehicleClass.ordinal()];
+            byType.put(vehicleClass.label(), RoadWaitDistributionDTO.TypeStats.builder()
+                .served(count)
+                .meanWait(count > 0 ? round(waitByClass[road][vehicleClass.ordinal()] / count) : 0.0)
+                .build());
+        }
+        
+        VehicleQueue queued = vehicles[road];
+        return RoadWaitDistributionDTO.builder()
+            .roadName(roadInfo.getName())
+            .direction(roadInfo.getDirection())
+            .served(served[road])
+            .queued(queued.size())
+            .queueMeters(round(queued.totalLength() + queued.size() * STANDSTILL_GAP))
+            .meanWait(round(served[road] > 0 ? waitSum[road] / served[road] : 0.0))
+            .p50Wait(waitPercentile(road, 0.50))
+            .p90Wait(waitPercentile(road, 0.90))
+            .p99Wait(waitPercentile(road, 0.99))
+            .maxWait(round(waitMax[road]))
+            .throughputPerHour(now > 0 ? round(served[road] * 3600.0 / now) : 0.0)
+            .byType(byType)
+            .build();
+    }
+    
+    /**
+     * Waits of all roads in 1-second buckets (microscopic mode): every served vehicle, and if
+     * {@code includeQueued} the vehicles still queued with their wait so far, so a plan that
+     * starves a road cannot hide its waits
+     */
+    public long[] waitCounts(boolean includeQueued) {
+        if (vehicles == null) {
+            throw new IllegalStateException("Wait distributions are only measured in microscopic mode");
+        }
+        
+        long[] counts = new long[WAIT_BUCKETS];
+        for (int i = 0; i < roads; i++) {
+            for (int b = 0; b < WAIT_BUCKETS; b++) counts[b] += waitHistogram[i][b];
+            if (includeQueued) {
+                for (int v = 0; v < vehicles[i].size(); v++) {
+                    counts[(int) Math.min(WAIT_BUCKETS - 1, now - vehicles[i].arrivalAt(v))]++;
+                }
+            }
+        }
+        return counts;
+    }
+    
+    public int roadCount() {
+        return roads;
+    }
+    
+    public double getCycleLength() {
+        return cycleLength;
+    }
+    
+    public int totalProcessed() {
+        long total = 0;
+        for (long s : served) total += s;
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+    
+    /**
+     * Vehicle-seconds spent queued on all roads so far
+     */
+    public double totalQueueArea() {
+        double total = 0.0;
+        for (int i = 0; i < roads; i++) {
+            total += queueArea[i] + queue[i] * (now - lastQueueChange[i]);
+        }
+        return total;
+    }
+    
+    public double now() {
+        return now;
+    }
+    
+    public long eventsProcessed() {
+        return eventsProcessed;
+    }
+    
+    private void depart(int road) {
+        departureScheduled[road] = false;
+        if (!"green".equals(lights[road]) || queue[road] == 0) return;
+        
+        if (vehicles != null) {
+            recordWait(road, vehicles[road].headClass(), now - vehicles[road].headArrival());
+            vehicles[road].pop();
+        }
+        setQueue(road, queue[road] - 1);
+        served[road]++;
+        startDischarge(road);
+    }
+    
+    private void startDischarge(int road) {
+        if (!departureScheduled[road] && queue[road] > 0 && "green".equals(lights[road])) {
+            departureScheduled[road] = true;
+            double headway = vehicles != null
+                ? saturationHeadway * vehicles[road].headClass().passengerCarEquivalent()
+                : saturationHeadway;
+            schedule(now + headway, DEPARTURE, road, 0);
+        }
+    }
+    
+    private void pushVehicle(int road, VehicleClass vehicleClass) {
+        // +/-10% around the nominal length of the class
+        float length = (float) (vehicleClass.length() * (0.9 + 0.2 * random.nextDouble()));
+        vehicles[road].push(now, vehicleClass, length);
+    }
+    
+    private void recordWait(int road, VehicleClass vehicleClass, double wait) {
+        waitSum[road] += wait;
+        waitMax[road] = Math.max(waitMax[road], wait);
+        waitHistogram[road][(int) Math.min(WAIT_BUCKETS - 1, wait)]++;
+        servedByClass[road][vehicleClass.ordinal()]++;
+        waitByClass[road][vehicleClass.ordinal()] += wait;
+    }
+    
+    /**
+     * Upper edge of the 1-second bucket holding the quantile, capped at the observed maximum
+     */
+    private double waitPercentile(int road, double quantile) {
+        if (served[road] == 0) return 0.0;
+        
+        long rank = Math.max(1L, (long) Math.ceil(quantile * served[road]));
+        long seen = 0;
+        for (int i = 0; i < WAIT_BUCKETS; i++) {
+            seen += waitHistogram[road][i];
+            if (seen >= rank) return round(Math.min(i + 1, waitMax[road]));
+        }
+        return round(waitMax[road]);
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+    
+    private void applyPlan(Listener listener) {
+        for (int i = 0; i < roads; i++) {
+            setLight(i, planLight(i, cyclePosition()), listener);
+        }
+    }
+    
+    private void setLight(int road, String light, Listener listener) {
+        String previous = lights[road];
+        if (previous.equals(light)) return;
+        
+        lights[road] = light;
+        listener.signalChanged(road, previous, light);
+        startDischarge(road);
+    }
+    
+    private void setQueue(int road, int value) {
+        queueArea[road] += queue[road] * (now - lastQueueChange[road]);
+        lastQueueChange[road] = now;
+        queue[road] = value;
+    }
+    
+    /**
+     * Light of a road at a position in the cycle, identical to tick mode
+     */
+    private String planLight(int road, double cyclePosition) {
+        double quarter = cycleLength / roads;
+        double start = road * quarter + extensionBefore(road);
+        double end = start + quarter + extension(road);
+        
+        if (cyclePosition >= start && cyclePosition < end - YELLOW_SECONDS) return "green";
+        if (cyclePosition >= end - YELLOW_SECONDS && cyclePosition < end) return "yellow";
+        return "red";
+    }
+    
+    /**
+     * Time of the next boundary, EPSILON / 2 early: still within a tick ending on the boundary,
+     * yet {@link #cyclePosition()} is then past it by far more than rounding, so each boundary
+     * is handled once (otherwise a position a hair short of an uneven boundary would
+     * schedule it again at the same time, forever)
+     */
+    private double nextPhaseBoundary() {
+        double position = cyclePosition();
+        double quarter = cycleLength / roads;
+        
+        for (int i = 0; i < roads; i++) {
+            double yellow = i * quarter + extensionBefore(i) + quarter + extension(i) - YELLOW_SECONDS;
+            double end = (i + 1) * quarter + extensionBefore(i + 1);
+            if (yellow > position) return now + (yellow - position) + EPSILON / 2;
+            if (end > position) return now + (end - position) + EPSILON / 2;
+        }
+        return now + (planCycleLength() - position) + EPSILON / 2;
+    }
+    
+    private double cyclePosition() {
+        return (now + EPSILON) % planCycleLength();
+    }
+    
+    private double planCycleLength() {
+        return cycleLength + extensionBefore(roads);
+    }
+    
+    private double extension(int road) {
+        return greenExtension != null ? greenExtension[road] : 0.0;
+    }
+    
+    /**
+     * Extensions of the phases before {@code road}'s
+     */
+    private double extensionBefore(int road) {
+        if (greenExtension == null) return 0.0;
+        double total = 0.0;
+        for (int i = 0; i < road; i++) total += greenExtension[i];
+        return total;
+    }
+    
+    private double nextArrival() {
+        return now - Math.log(1.0 - random.nextDouble()) / arrivalRate;
+    }
+    
+    private void schedule(double time, int type, int road, long token) {
+        events.add(new Event(time, seq++, type, road, token));
+    }
+}
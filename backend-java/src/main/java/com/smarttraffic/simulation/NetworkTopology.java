@@ -0,0 +1,167 @@
+package com.smarttraffic.simulation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Road network definition as read from a topology file (JSON or YAML).
+ *
+ * A network is a set of intersections, each with its signalized approaches, and links
+ * that route vehicles discharged from one approach to a downstream approach after a
+ * travel time. Instead of listing everything, a file may declare a {@link Grid}, which
+ * is expanded into intersections and links by {@link #expand()}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NetworkTopology {
+    private String name;
+    @Builder.Default
+    private Double cycleLength = 60.0; // default for intersections without their own
+    @Builder.Default
+    private List<Intersection> intersections = new ArrayList<>();
+    @Builder.Default
+    private List<Link> links = new ArrayList<>();
+    private Grid grid;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Intersection {
+        private String id;
+        private Double cycleLength;
+        private Double offset; // seconds the cycle starts later than at time 0 (green waves)
+        private List<Approach> approaches;
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Approach {
+        private String name; // unique in the network
+        private String direction; // side vehicles arrive from: North, East, South, West
+        private Double arrivalRate; // vehicles/s entering the network here (0 for interior approaches)
+    }
+    
+    /**
+     * Vehicles discharged from {@code from} continue to {@code to}; shares of all links leaving
+     * an approach add up to at most 1, the remainder leaves the network
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Link {
+        private String from;
+        private String to;
+        private Double travelTime; // seconds
+        private Double share;
+    }
+    
+    /**
+     * rows x cols grid of 4-approach intersections; vehicles enter on the boundary approaches,
+     * go straight with {@code straightShare} and otherwise turn left or right
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Grid {
+        private Integer rows;
+        private Integer cols;
+        @Builder.Default
+        private Double travelTime = 30.0;
+        @Builder.Default
+        private Double arrivalRate = 0.1;
+        @Builder.Default
+        private Double straightShare = 0.7;
+        @Builder.Default
+        private Double offsetStep = 0.0; // offset added per column, e.g. the travel time for a west-east green wave
+    }
+    
+    private static final String[] DIRECTIONS = {"North", "East", "South", "West"};
+    private static final String[] SUFFIXES = {"N", "E", "S", "W"};
+    // Row/column step of a vehicle that arrived from each direction and goes straight
+    private static final int[] ROW_STEP = {1, 0, -1, 0};
+    private static final int[] COL_STEP = {0, -1, 0, 1};
+    
+    /**
+     * This topology with the grid (if any) expanded into explicit intersections and links
+     */
+    public NetworkTopology expand() {
+        if (grid == null) return this;
+        
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("Grid needs at least one row and one column");
+        }
+        
+        List<Intersection> expanded = new ArrayList<>(intersections);
+        List<Link> expandedLinks = new ArrayList<>(links);
+        double turnShare = (1.0 - grid.getStraightShare()) / 2.0;
+        
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                List<Approach> approaches = new ArrayList<>(4);
+                for (int d = 0; d < 4; d++) {
+                    // Boundary approaches are the ones whose upstream neighbour is outside the grid
+                    boolean boundary = !inside(r - ROW_STEP[d], c - COL_STEP[d], rows, cols);
+                    approaches.add(Approach.builder()
+                        .name(approachName(r, c, d))
+                        .direction(DIRECTIONS[d])
+                        .arrivalRate(boundary ? grid.getArrivalRate() : 0.0)
+                        .build());
+                    
+                    // Straight on, then right and left turns (arriving at the neighbour from the turned direction)
+                    addGridLink(expandedLinks, r, c, d, d, grid.getStraightShare(), rows, cols);
+                    addGridLink(expandedLinks, r, c, d, (d + 1) % 4, turnShare, rows, cols);
+                    addGridLink(expandedLinks, r, c, d, (d + 3) % 4, turnShare, rows, cols);
+                }
+                expanded.add(Intersection.builder()
+                    .id("r" + r + "c" + c)
+                    .cycleLength(cycleLength)
+                    .offset(c * grid.getOffsetStep())
+                    .approaches(approaches)
+                    .build());
+            }
+        }
+        
+        return NetworkTopology.builder()
+            .name(name)
+            .cycleLength(cycleLength)
+            .intersections(expanded)
+            .links(expandedLinks)
+            .build();
+    }
+    
+    private void addGridLink(List<Link> out, int r, int c, int from, int heading, double share, int rows, int cols) {
+        // A vehicle that leaves heading like one arriving from 'heading' enters the next intersection from that side
+        int nr = r + ROW_STEP[heading];
+        int nc = c + COL_STEP[heading];
+        if (share <= 0 || !inside(nr, nc, rows, cols)) return;
+        
+        out.add(Link.builder()
+            .from(approachName(r, c, from))
+            .to(approachName(nr, nc, heading))
+            .travelTime(grid.getTravelTime())
+            .share(share)
+            .build());
+    }
+    
+    private static boolean inside(int r, int c, int rows, int cols) {
+        return r >= 0 && r < rows && c >= 0 && c < cols;
+    }
+    
+    private static String approachName(int r, int c, int direction) {
+        return "r" + r + "c" + c + "-" + SUFFIXES[direction];
+    }
+}
@@ -0,0 +1,611 @@
+package com.smarttraffic.simulation;
+
+import com.smarttraffic.dto.RoadDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runtime model of a multi-intersection network, compiled from a {@link NetworkTopology}.
+ *
+ * Everything the step touches is an index-based array: approaches are numbered
+ * 0..n-1 grouped by intersection, and the links leaving each approach are stored in
+ * CSR form ({@code linkStart[a] .. linkStart[a + 1]}). Names are only used when the
+ * network is built and when results are published.
+ *
+ * The network advances in fixed 1-second steps. Each step, every approach:
+ * - takes its light from its intersection's cycle plan (one phase per approach,
+ *   the last 3 seconds yellow, shifted by the intersection offset)
+ * - receives Poisson arrivals at the boundary plus the vehicles due from upstream links
+ * - on green discharges up to its saturation flow; discharged vehicles pick a link by
+ *   share and are delivered downstream after the link's travel time, or leave the network
+ * In-flight vehicles sit in a per-approach time wheel, so delivery is O(1) per vehicle.
+ *
+ * Large networks can be split into regions of consecutive intersections ({@link #partition})
+ * that step concurrently on a fork/join pool. A step only reads the current wheel slot
+ * and only writes future ones (links take at least one step), and every approach draws
+ * from its own random stream, so regions never depend on each other within a step.
+ * Vehicles routed into another region go to the region's outbox and are added to the
+ * wheel after all regions finished; counts add up the same in any order, so a
+ * partitioned network produces exactly the results of a sequential one with the same seed.
+ *
+ * {@link #fork} copies the network for what-if runs: the compiled topology is shared,
+ * only the per-approach state is copied.
+ *
+ * Not thread-safe; callers hold the simulation's state lock.
+ */
+public class RoadNetwork {
+    
+    static final double STEP_SECONDS = 1.0;
+    private static final double YELLOW_SECONDS = 3.0;
+    
+    static final byte RED = 0;
+    static final byte YELLOW = 1;
+    static final byte GREEN = 2;
+    private static final String[] LIGHT_NAMES = {"red", "yellow", "green"};
+    
+    private final String name;
+    
+    // Intersections
+    final int intersectionCount;
+    final String[] intersectionIds;
+    final double[] cycleLength; // base cycle, split equally between the approaches
+    final double[] offset;
+    final int[] approachStart; // approaches of intersection i: approachStart[i] .. approachStart[i + 1]
+    final int[] emergencyApproach; // -1 when the intersection follows its plan
+    double[] greenExtension; // seconds added to each approach's phase; null = equal split
+    
+    // Approaches
+    final int approachCount;
+    final String[] approachNames;
+    final String[] directions;
+    final int[] intersectionOf;
+    final double[] externalRate;
+    
+    // Links (CSR)
+    final int[] linkStart;
+    final int[] linkTarget;
+    final int[] linkDelay; // steps
+    final double[] linkCumulativeShare;
+    
+    // State
+    final byte[] light;
+    final int[] queue;
+    final double[] dischargeCredit; // fractional saturation-flow capacity carried between steps
+    final long[] served;
+    final double[] waitArea; // vehicle-seconds
+    final int wheelSize;
+    final int[] incoming; // time wheel: incoming[a * wheelSize + step % wheelSize]
+    final SplittableRandom[] random; // one stream per approach
+    final double dischargePerStep;
+    
+    long step;
+    long exited;
+    private double pendingSeconds;
+    
+    private Region[] regions;
+    private ForkJoinPool pool;
+    
+    private RoadNetwork(NetworkTopology topology, double saturationHeadway, long seed) {
+        this.name = topology.getName();
+        List<NetworkTopology.Intersection> intersections = topology.getIntersections();
+        if (intersections == null || intersections.isEmpty()) {
+            throw new IllegalArgumentException("Topology " + name + " has no intersections");
+        }
+        
+        intersectionCount = intersections.size();
+        intersectionIds = new String[intersectionCount];
+        cycleLength = new double[intersectionCount];
+        offset = new double[intersectionCount];
+        approachStart = new int[intersectionCount + 1];
+        emergencyApproach = new int[intersectionCount];
+        Arrays.fill(emergencyApproach, -1);
+        
+        int total = 0;
+        for (int i = 0; i < intersectionCount; i++) {
+            NetworkTopology.Intersection intersection = intersections.get(i);
+            if (intersection.getApproaches() == null || intersection.getApproaches().isEmpty()) {
+                throw new IllegalArgumentException("Intersection " + intersection.getId() + " has no approaches");
+            }
+            intersectionIds[i] = intersection.getId();
+            cycleLength[i] = intersection.getCycleLength() != null ? intersection.getCycleLength() : topology.getCycleLength();
+            offset[i] = intersection.getOffset() != null ? intersection.getOffset() : 0.0;
+            approachStart[i] = total;
+            total += intersection.getApproaches().size();
+        }
+        approachStart[intersectionCount] = total;
+        
+        approachCount = total;
+        approachNames = new String[total];
+        directions = new String[total];
+        intersectionOf = new int[total];
+        externalRate = new double[total];
+        Map<String, Integer> index = new HashMap<>(total * 2);
+        
+        for (int i = 0; i < intersectionCount; i++) {
+            List<NetworkTopology.Approach> approaches = intersections.get(i).getApproaches();
+            for (int k = 0; k < approaches.size(); k++) {
+                int a = approachStart[i] + k;
+                NetworkTopology.Approach approach = approaches.get(k);
+                approachNames[a] = approach.getName();
+                directions[a] = approach.getDirection();
+                intersectionOf[a] = i;
+                externalRate[a] = approach.getArrivalRate() != null ? approach.getArrivalRate() : 0.0;
+                if (index.put(approach.getName(), a) != null) {
+                    throw new IllegalArgumentException("Duplicate approach name " + approach.getName());
+                }
+            }
+        }
+        
+        // Group links by source approach (CSR)
+        List<List<NetworkTopology.Link>> bySource = new ArrayList<>(total);
+        for (int a = 0; a < total; a++) bySource.add(new ArrayList<>(3));
+        int maxDelay = 1;
+        for (NetworkTopology.Link link : topology.getLinks()) {
+            Integer from = index.get(link.getFrom());
+            Integer to = index.get(link.getTo());
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("Link " + link.getFrom() + " -> " + link.getTo() + " references an unknown approach");
+            }
+            bySource.get(from).add(link);
+            maxDelay = Math.max(maxDelay, delaySteps(link));
+        }
+        
+        int linkCount = topology.getLinks().size();
+        linkStart = new int[total + 1];
+        linkTarget = new int[linkCount];
+        linkDelay = new int[linkCount];
+        linkCumulativeShare = new double[linkCount];
+        int l = 0;
+        for (int a = 0; a < total; a++) {
+            linkStart[a] = l;
+            double cumulative = 0.0;
+            for (NetworkTopology.Link link : bySource.get(a)) {
+                cumulative += link.getShare() != null ? link.getShare() : 1.0;
+                linkTarget[l] = index.get(link.getTo());
+                linkDelay[l] = delaySteps(link);
+                linkCumulativeShare[l] = cumulative;
+                l++;
+            }
+            if (cumulative > 1.0 + 1e-9) {
+                throw new IllegalArgumentException("Link shares leaving " + approachNames[a] + " add up to " + cumulative);
+            }
+        }
+        linkStart[total] = l;
+        
+        light = new byte[total];
+        queue = new int[total];
+        dischargeCredit = new double[total];
+        served = new long[total];
+        waitArea = new double[total];
+        wheelSize = maxDelay + 1;
+        incoming = new int[total * wheelSize];
+        dischargePerStep = STEP_SECONDS / saturationHeadway;
+        
+        SplittableRandom root = new SplittableRandom(seed);
+        random = new SplittableRandom[total];
+        for (int a = 0; a < total; a++) {
+            random[a] = root.split();
+        }
+        for (int i = 0; i < intersectionCount; i++) {
+            updateLights(i);
+        }
+        regions = new Region[]{new Region(0, intersectionCount)};
+    }
+    
+    /**
+     * Copy of {@code source} sharing its topology, with fresh random streams
+     */
+    private RoadNetwork(RoadNetwork source, long seed) {
+        this.name = source.name;
+        this.intersectionCount = source.intersectionCount;
+        this.intersectionIds = source.intersectionIds;
+        this.cycleLength = source.cycleLength.clone();
+        this.offset = source.offset;
+        this.approachStart = source.approachStart;
+        this.emergencyApproach = source.emergencyApproach.clone();
+        this.greenExtension = source.greenExtension != null ? source.greenExtension.clone() : null;
+        
+        this.approachCount = source.approachCount;
+        this.approachNames = source.approachNames;
+        this.directions = source.directions;
+        this.intersectionOf = source.intersectionOf;
+        this.externalRate = source.externalRate;
+        
+        this.linkStart = source.linkStart;
+        this.linkTarget = source.linkTarget;
+        this.linkDelay = source.linkDelay;
+        this.linkCumulativeShare = source.linkCumulativeShare;
+        
+        this.light = source.light.clone();
+        this.queue = source.queue.clone();
+        this.dischargeCredit = source.dischargeCredit.clone();
+        this.served = source.served.clone();
+        this.waitArea = source.waitArea.clone();
+        this.wheelSize = source.wheelSize;
+        this.incoming = source.incoming.clone();
+        this.dischargePerStep = source.dischargePerStep;
+        
+        SplittableRandom root = new SplittableRandom(seed);
+        this.random = new SplittableRandom[approachCount];
+        for (int a = 0; a < approachCount; a++) {
+            random[a] = root.split();
+        }
+        
+        this.step = source.step;
+        this.exited = source.exited;
+        this.pendingSeconds = source.pendingSeconds;
+        this.regions = new Region[]{new Region(0, intersectionCount)};
+    }
+    
+    /**
+     * @param saturationHeadway seconds between departures of a discharging queue
+     */
+    public static RoadNetwork build(NetworkTopology topology, double saturationHeadway, long seed) {
+        return new RoadNetwork(topology.expand(), saturationHeadway, seed);
+    }
+    
+    /**
+     * Advance by {@code seconds}, in whole steps (a fractional remainder is carried over)
+     */
+    public void advance(double seconds) {
+        pendingSeconds += seconds;
+        while (pendingSeconds >= STEP_SECONDS - 1e-9) {
+            pendingSeconds -= STEP_SECONDS;
+            step();
+        }
+    }
+    
+    /**
+     * Split the network into up to {@code regionCount} regions of consecutive intersections
+     * with about the same number of approaches, stepped in parallel on {@code pool}.
+     * One region (the default) steps sequentially on the caller's thread.
+     */
+    public void partition(int regionCount, ForkJoinPool pool) {
+        int count = Math.max(1, Math.min(regionCount, intersectionCount));
+        List<Region> split = new ArrayList<>(count);
+        int first = 0;
+        for (int r = 1; r <= count && first < intersectionCount; r++) {
+            // Cut at the first intersection boundary past r/count of the approaches
+            long target = (long) approachCount * r / count;
+            int end = first + 1;
+            while (end < intersectionCount && approachStart[end] < target) end++;
+            if (r == count) end = intersectionCount;
+            split.add(new Region(first, end));
+            first = end;
+        }
+        this.regions = split.toArray(new Region[0]);
+        this.pool = pool;
+    }
+    
+    /**
+     * Independent copy of the current state for what-if runs, stepped sequentially;
+     * forks with the same seed draw the same arrivals and routes
+     */
+    public RoadNetwork fork(long seed) {
+        return new RoadNetwork(this, seed);
+    }
+    
+    public int getRegionCount() {
+        return regions.length;
+    }
+    
+    /**
+     * One step of the whole network
+     */
+    void step() {
+        if (regions.length == 1) {
+            regions[0].step();
+        } else {
+            // The calling thread (a request thread, not a pool worker) steps the first region itself
+            ForkJoinTask<?> rest = pool.submit(new StepTask(1, regions.length));
+            regions[0].step();
+            rest.join();
+        }
+        
+        // Merge in region order; only happens-after all regions finished this step
+        for (Region region : regions) {
+            for (int k = 0; k < region.outboxSize; k++) {
+                incoming[region.outbox[k]]++;
+            }
+            region.outboxSize = 0;
+            exited += region.exited;
+            region.exited = 0;
+        }
+        step++;
+    }
+    
+    /**
+     * Arrivals, discharge and routing of one approach
+     */
+    void stepApproach(int a, Region region) {
+        int slot = a * wheelSize + (int) (step % wheelSize);
+        int arrivals = incoming[slot] + poisson(random[a], externalRate[a] * STEP_SECONDS);
+        incoming[slot] = 0;
+        queue[a] += arrivals;
+        
+        if (light[a] == GREEN && queue[a] > 0) {
+            dischargeCredit[a] = Math.min(dischargeCredit[a] + dischargePerStep, Math.max(1.0, dischargePerStep));
+            int discharged = Math.min(queue[a], (int) dischargeCredit[a]);
+            dischargeCredit[a] -= discharged;
+            queue[a] -= discharged;
+            served[a] += discharged;
+            for (int v = 0; v < discharged; v++) {
+                route(a, random[a].nextDouble(), region);
+            }
+        } else {
+            dischargeCredit[a] = 0.0;
+        }
+        waitArea[a] += queue[a] * STEP_SECONDS;
+    }
+    
+    /**
+     * Send one discharged vehicle down the link picked by {@code u}, or out of the network
+     */
+    void route(int a, double u, Region region) {
+        for (int l = linkStart[a]; l < linkStart[a + 1]; l++) {
+            if (u < linkCumulativeShare[l]) {
+                int target = linkTarget[l];
+                int slot = target * wheelSize + (int) ((step + linkDelay[l]) % wheelSize);
+                if (target >= region.firstApproach && target < region.endApproach) {
+                    incoming[slot]++;
+                } else {
+                    region.send(slot);
+                }
+                return;
+            }
+        }
+        region.exited++;
+    }
+    
+    /**
+     * Consecutive intersections (and so consecutive approaches) stepped by one task
+     */
+    final class Region {
+        final int firstIntersection;
+        final int endIntersection;
+        final int firstApproach;
+        final int endApproach;
+        int[] outbox = new int[64]; // wheel slots in other regions, one entry per vehicle
+        int outboxSize;
+        long exited;
+        
+        Region(int firstIntersection, int endIntersection) {
+            this.firstIntersection = firstIntersection;
+            this.endIntersection = endIntersection;
+            this.firstApproach = approachStart[firstIntersection];
+            this.endApproach = approachStart[endIntersection];
+        }
+        
+        void step() {
+            for (int i = firstIntersection; i < endIntersection; i++) {
+                updateLights(i);
+            }
+            for (int a = firstApproach; a < endApproach; a++) {
+                stepApproach(a, this);
+            }
+        }
+        
+        void send(int slot) {
+            if (outboxSize == outbox.length) {
+                outbox = Arrays.copyOf(outbox, outbox.length * 2);
+            }
+            outbox[outboxSize++] = slot;
+        }
+    }
+    
+    /**
+     * Steps regions [from, to), splitting the range in halves
+     */
+    private final class StepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        
+        StepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                regions[from].step();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new StepTask(from, middle), new StepTask(middle, to));
+        }
+    }
+    
+    void updateLights(int i) {
+        int first = approachStart[i];
+        int phases = approachStart[i + 1] - first;
+        if (emergencyApproach[i] >= 0) {
+            for (int a = first; a < first + phases; a++) {
+                light[a] = a == emergencyApproach[i] ? GREEN : RED;
+            }
+            return;
+        }
+        
+        double cycle = cycleLength[i];
+        if (greenExtension != null) {
+            for (int a = first; a < first + phases; a++) cycle += greenExtension[a];
+        }
+        double position = ((step * STEP_SECONDS - offset[i]) % cycle + cycle) % cycle;
+        double phaseLength = cycleLength[i] / phases;
+        double extended = 0.0; // extensions of the phases so far
+        for (int k = 0; k < phases; k++) {
+            double extension = greenExtension != null ? greenExtension[first + k] : 0.0;
+            double start = k * phaseLength + extended;
+            double end = start + phaseLength + extension;
+            extended += extension;
+            light[first + k] = position >= start && position < end - YELLOW_SECONDS ? GREEN
+                : position >= end - YELLOW_SECONDS && position < end ? YELLOW
+                : RED;
+        }
+    }
+    
+    /**
+     * Give approach {@code a} green and the rest of its intersection red until {@link #endEmergency}
+     */
+    public void startEmergency(int a) {
+        emergencyApproach[intersectionOf[a]] = a;
+        updateLights(intersectionOf[a]);
+    }
+    
+    public void endEmergency(int a) {
+        emergencyApproach[intersectionOf[a]] = -1;
+        updateLights(intersectionOf[a]);
+    }
+    
+    /**
+     * Lengthen (or shorten, if negative) an approach's green by {@code seconds}; its
+     * intersection's cycle grows by the same amount
+     */
+    public void setGreenExtension(int a, double seconds) {
+        int i = intersectionOf[a];
+        double phaseLength = cycleLength[i] / (approachStart[i + 1] - approachStart[i]);
+        if (phaseLength + seconds - YELLOW_SECONDS < 1.0) {
+            throw new IllegalArgumentException("Green of " + approachNames[a] + " would be shorter than 1 second");
+        }
+        if (greenExtension == null) greenExtension = new double[approachCount];
+        greenExtension[a] = seconds;
+    }
+    
+    /**
+     * Base cycle length of every intersection
+     */
+    public void setCycleLength(double seconds) {
+        Arrays.fill(cycleLength, seconds);
+    }
+    
+    /**
+     * Replace an approach's queue with an observed value (e.g. from video analytics)
+     */
+    public void observeQueue(int a, int observed) {
+        queue[a] = Math.max(0, observed);
+    }
+    
+    /**
+     * Index of an approach by name, or -1
+     */
+    public int approachIndex(String approachName) {
+        for (int a = 0; a < approachCount; a++) {
+            if (approachNames[a].equals(approachName)) return a;
+        }
+        return -1;
+    }
+    
+    /**
+     * One road per approach, in approach order
+     */
+    public List<RoadDTO> createRoads() {
+        List<RoadDTO> roads = new ArrayList<>(approachCount);
+        for (int a = 0; a < approachCount; a++) {
+            roads.add(RoadDTO.builder()
+                .name(approachNames[a])
+                .direction(directions[a])
+                .build());
+        }
+        publish(roads);
+        return roads;
+    }
+    
+    /**
+     * Copy lights, queues and measured waits (Little's law) into the road DTOs
+     */
+    public void publish(List<RoadDTO> roads) {
+        for (int a = 0; a < approachCount; a++) {
+            RoadDTO road = roads.get(a);
+            long vehicles = served[a] + queue[a];
+            double wait = vehicles > 0 ? waitArea[a] / vehicles : 0.0;
+            
+            road.setLight(LIGHT_NAMES[light[a]]);
+            road.setQueue(queue[a]);
+            road.setVehicles(queue[a]);
+            road.setWaitTime(Math.round(wait * 100.0) / 100.0);
+            
+            double queuePenalty = Math.min(queue[a] * 2.0, 30.0);
+            double waitPenalty = Math.min((wait - 30.0) / 2.0, 20.0);
+            road.setPerformance(Math.max(50.0, Math.min(98.0, 100.0 - queuePenalty - waitPenalty)));
+        }
+    }
+    
+    /**
+     * Vehicles discharged at any stop line so far
+     */
+    public int totalProcessed() {
+        long total = 0;
+        for (long s : served) total += s;
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+    
+    /**
+     * Vehicle-seconds spent queued on all approaches so far
+     */
+    public double totalQueueArea() {
+        double total = 0.0;
+        for (double area : waitArea) total += area;
+        return total;
+    }
+    
+    public long exited() {
+        return exited;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getIntersectionCount() {
+        return intersectionCount;
+    }
+    
+    public int getApproachCount() {
+        return approachCount;
+    }
+    
+    /**
+     * Id of the intersection approach {@code a} belongs to
+     */
+    public String getIntersectionId(int a) {
+        return intersectionIds[intersectionOf[a]];
+    }
+    
+    public double getCycleLength(int intersection) {
+        return cycleLength[intersection];
+    }
+    
+    private static int delaySteps(NetworkTopology.Link link) {
+        double travelTime = link.getTravelTime() != null ? link.getTravelTime() : STEP_SECONDS;
+        return Math.max(1, (int) Math.round(travelTime / STEP_SECONDS));
+    }
+    
+    /**
+     * Poisson sample; Knuth's method for the small per-step means used here, normal approximation above 30
+     */
+    static int poisson(SplittableRandom random, double mean) {
+        if (mean <= 0) return 0;
+        if (mean > 30) {
+            double gaussian = Math.sqrt(-2.0 * Math.log(1.0 - random.nextDouble())) * Math.cos(2.0 * Math.PI * random.nextDouble());
+            return Math.max(0, (int) Math.round(mean + Math.sqrt(mean) * gaussian));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+}
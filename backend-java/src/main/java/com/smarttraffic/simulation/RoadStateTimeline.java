@@ -0,0 +1,222 @@
+package com.smarttraffic.simulation;
+
+import com.smarttraffic.dto.RoadDTO;
+import com.smarttraffic.dto.TimelineFrameDTO;
+import com.smarttraffic.dto.TimelineInfoDTO;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ring buffer of the last ticks of a simulation's road state, for replay and incident review
+ * without touching the database.
+ *
+ * Frames are stored column-wise in primitive arrays allocated once at the full capacity
+ * (17 bytes per road plus 20 per frame), so a simulation's memory is fixed when it is
+ * created: the capacity is the largest number of frames that fits the byte budget, capped
+ * at {@code maxFrames}. Recording overwrites the oldest frame.
+ *
+ * Thread-safe: ticks record while readers copy frames out.
+ */
+public class RoadStateTimeline {
+    
+    static final int FRAME_BYTES = Double.BYTES + Long.BYTES + Integer.BYTES;
+    static final int ROAD_BYTES = 1 + Integer.BYTES * 2 + Float.BYTES * 2;
+    private static final String[] LIGHT_NAMES = {"red", "yellow", "green"};
+    
+    private final int roads;
+    private final int capacity;
+    private final String[] names;
+    private final String[] directions;
+    private final Map<String, Integer> index;
+    
+    // Per frame
+    private final double[] time; // simulated seconds
+    private final long[] recordedAt; // epoch millis
+    private final int[] totalProcessed;
+    
+    // Per frame and road, at slot * roads + road
+    private final byte[] light;
+    private final int[] vehicles;
+    private final int[] queue;
+    private final float[] waitTime;
+    private final float[] performance;
+    
+    private long recorded; // frames ever recorded; the newest is at (recorded - 1) % capacity
+    
+    /**
+     * @param roads the simulation's roads; names and directions are fixed from here on
+     */
+    public RoadStateTimeline(List<RoadDTO> roads, long maxBytes, int maxFrames) {
+        this.roads = roads.size();
+        long frameBytes = FRAME_BYTES + (long) ROAD_BYTES * this.roads;
+        this.capacity = (int) Math.max(1, Math.min(maxFrames, maxBytes / frameBytes));
+        
+        this.names = new String[this.roads];
+        this.directions = new String[this.roads];
+        this.index = new HashMap<>(this.roads * 2);
+        for (int r = 0; r < this.roads; r++) {
+            names[r] = roads.get(r).getName();
+            directions[r] = roads.get(r).getDirection();
+            index.put(names[r], r);
+        }
+        
+        this.time = new double[capacity];
+        this.recordedAt = new long[capacity];
+        this.totalProcessed = new int[capacity];
+        this.light = new byte[capacity * this.roads];
+        this.vehicles = new int[capacity * this.roads];
+        this.queue = new int[capacity * this.roads];
+        this.waitTime = new float[capacity * this.roads];
+        this.performance = new float[capacity * this.roads];
+    }
+    
+    /**
+     * Append the state after a tick, overwriting the oldest frame once full
+     */
+    public synchronized void record(double simulationTime, int processed, List<RoadDTO> state) {
+        int slot = (int) (recorded % capacity);
+        time[slot] = simulationTime;
+        recordedAt[slot] = System.currentTimeMillis();
+        totalProcessed[slot] = processed;
+        
+        int base = slot * roads;
+        for (int r = 0; r < roads; r++) {
+            RoadDTO road = state.get(r);
+            light[base + r] = lightCode(road.getLight());
+            vehicles[base + r] = road.getVehicles();
+            queue[base + r] = road.getQueue();
+            waitTime[base + r] = road.getWaitTime().floatValue();
+            performance[base + r] = road.getPerformance().floatValue();
+        }
+        recorded++;
+    }
+    
+    /**
+     * Frames with {@code from <= time <= to} (null bounds are open), oldest first. Ranges
+     * holding more than {@code limit} frames are sampled evenly, always keeping the last one.
+     *
+     * @param roadNames roads to include, or null for all
+     * @throws IllegalArgumentException for unknown road names
+     */
+    public synchronized List<TimelineFrameDTO> read(Double from, Double to, List<String> roadNames, int limit) {
+        int[] selected = select(roadNames);
+        long oldest = Math.max(0, recorded - capacity);
+        long first = from != null ? firstAtOrAfter(oldest, from) : oldest;
+        long end = recorded;
+        if (to != null) {
+            end = firstAtOrAfter(first, Math.nextUp(to));
+        }
+        
+        List<TimelineFrameDTO> frames = new ArrayList<>();
+        long count = end - first;
+        if (count <= 0 || limit <= 0) return frames;
+        
+        double stride = Math.max(1.0, (double) count / limit);
+        long previous = -1;
+        for (int i = 0; i < Math.min(count, limit); i++) {
+            // Sample from the end backwards so the newest frame is always included
+            long frame = end - 1 - (long) Math.floor(i * stride);
+            if (frame == previous) continue;
+            previous = frame;
+            frames.add(frame(frame, selected));
+        }
+        Collections.reverse(frames);
+        return frames;
+    }
+    
+    public synchronized TimelineInfoDTO info() {
+        long oldest = Math.max(0, recorded - capacity);
+        int frames = (int) (recorded - oldest);
+        TimelineInfoDTO.TimelineInfoDTOBuilder info = TimelineInfoDTO.builder()
+            .frames(frames)
+            .capacity(capacity)
+            .roads(roads)
+            .bytes(bytes())
+            .recorded(recorded);
+        
+        if (frames > 0) {
+            int oldestSlot = (int) (oldest % capacity);
+            int newestSlot = (int) ((recorded - 1) % capacity);
+            info.fromTime(time[oldestSlot])
+                .toTime(time[newestSlot])
+                .fromTimestamp(timestamp(recordedAt[oldestSlot]))
+                .toTimestamp(timestamp(recordedAt[newestSlot]));
+        }
+        return info.build();
+    }
+    
+    /**
+     * Memory held by the frame arrays
+     */
+    public long bytes() {
+        return (long) capacity * (FRAME_BYTES + (long) ROAD_BYTES * roads);
+    }
+    
+    private TimelineFrameDTO frame(long frame, int[] selected) {
+        int slot = (int) (frame % capacity);
+        int base = slot * roads;
+        List<RoadDTO> state = new ArrayList<>(selected.length);
+        for (int r : selected) {
+            state.add(new RoadDTO(names[r], directions[r], LIGHT_NAMES[light[base + r]], vehicles[base + r],
+                queue[base + r], (double) waitTime[base + r], (double) performance[base + r]));
+        }
+        return TimelineFrameDTO.builder()
+            .tick(frame)
+            .time(time[slot])
+            .timestamp(timestamp(recordedAt[slot]))
+            .totalProcessed(totalProcessed[slot])
+            .roads(state)
+            .build();
+    }
+    
+    /**
+     * First frame in [from, recorded) with time >= t (simulation time only grows, so binary search)
+     */
+    private long firstAtOrAfter(long from, double t) {
+        long low = from;
+        long high = recorded;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (time[(int) (middle % capacity)] < t) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private int[] select(List<String> roadNames) {
+        if (roadNames == null || roadNames.isEmpty()) {
+            int[] all = new int[roads];
+            for (int r = 0; r < roads; r++) all[r] = r;
+            return all;
+        }
+        int[] selected = new int[roadNames.size()];
+        for (int i = 0; i < selected.length; i++) {
+            Integer road = index.get(roadNames.get(i));
+            if (road == null) throw new IllegalArgumentException("Unknown road " + roadNames.get(i));
+            selected[i] = road;
+        }
+        return selected;
+    }
+    
+    private static byte lightCode(String light) {
+        return switch (light) {
+            case "green" -> 2;
+            case "yellow" -> 1;
+            default -> 0;
+        };
+    }
+    
+    private static LocalDateTime timestamp(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
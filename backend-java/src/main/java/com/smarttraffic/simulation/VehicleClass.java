@@ -0,0 +1,55 @@
+package com.smarttraffic.simulation;
+
+/**
+ * Vehicle categories of the microscopic mode, the same labels the detector reports
+ * ({@link com.smarttraffic.dto.DetectedVehicleDTO#getType()})
+ */
+public enum VehicleClass {
+    CAR("car", 0.75, 4.5, 1.0),
+    TRUCK("truck", 0.08, 12.0, 2.0),
+    BUS("bus", 0.04, 12.0, 2.0),
+    MOTORCYCLE("motorcycle", 0.08, 2.2, 0.5),
+    BICYCLE("bicycle", 0.05, 1.8, 0.5);
+    
+    private static final VehicleClass[] VALUES = values();
+    
+    private final String label;
+    private final double share; // of arrivals
+    private final double length; // metres
+    private final double passengerCarEquivalent; // multiplies the saturation headway
+    
+    VehicleClass(String label, double share, double length, double passengerCarEquivalent) {
+        this.label = label;
+        this.share = share;
+        this.length = length;
+        this.passengerCarEquivalent = passengerCarEquivalent;
+    }
+    
+    public String label() {
+        return label;
+    }
+    
+    public double length() {
+        return length;
+    }
+    
+    public double passengerCarEquivalent() {
+        return passengerCarEquivalent;
+    }
+    
+    static VehicleClass of(int ordinal) {
+        return VALUES[ordinal];
+    }
+    
+    /**
+     * Class for a uniform sample in [0, 1)
+     */
+    static VehicleClass sample(double u) {
+        double cumulative = 0.0;
+        for (VehicleClass vehicleClass : VALUES) {
+            cumulative += vehicleClass.share;
+            if (u < cumulative) return vehicleClass;
+        }
+        return CAR;
+    }
+}
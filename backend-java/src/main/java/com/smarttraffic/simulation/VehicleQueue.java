@@ -0,0 +1,113 @@
+package com.smarttraffic.simulation;
+
+/**
+ * FIFO of individual vehicles on one approach, stored column-wise in growable primitive
+ * ring buffers (13 bytes per vehicle, no per-vehicle objects), so a node can hold
+ * millions of queued vehicles without GC pressure.
+ *
+ * {@link #fork()} shares the buffers with the copy; whichever side pushes first copies
+ * them (pops only move the head, so they never need a copy).
+ */
+final class VehicleQueue {
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private double[] arrival = new double[INITIAL_CAPACITY]; // engine clock, seconds
+    private byte[] type = new byte[INITIAL_CAPACITY]; // VehicleClass ordinal
+    private float[] length = new float[INITIAL_CAPACITY]; // metres
+    private int head;
+    private int size;
+    private double totalLength;
+    private boolean shared; // buffers may be referenced by a fork
+    
+    /**
+     * Copy-on-write copy: O(1) until either queue pushes
+     */
+    VehicleQueue fork() {
+        VehicleQueue copy = new VehicleQueue();
+        copy.arrival = arrival;
+        copy.type = type;
+        copy.length = length;
+        copy.head = head;
+        copy.size = size;
+        copy.totalLength = totalLength;
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+    
+    void push(double arrivalTime, VehicleClass vehicleClass, float vehicleLength) {
+        if (size == arrival.length) {
+            grow();
+        } else if (shared) {
+            arrival = arrival.clone();
+            type = type.clone();
+            length = length.clone();
+            shared = false;
+        }
+        
+        int tail = (head + size) & (arrival.length - 1);
+        arrival[tail] = arrivalTime;
+        type[tail] = (byte) vehicleClass.ordinal();
+        length[tail] = vehicleLength;
+        size++;
+        totalLength += vehicleLength;
+    }
+    
+    /**
+     * Remove the vehicle at the head; read it first with {@link #headArrival()} / {@link #headClass()}
+     */
+    void pop() {
+        totalLength -= length[head];
+        head = (head + 1) & (arrival.length - 1);
+        size--;
+        if (size == 0) totalLength = 0.0;
+    }
+    
+    double headArrival() {
+        return arrival[head];
+    }
+    
+    VehicleClass headClass() {
+        return VehicleClass.of(type[head]);
+    }
+    
+    /**
+     * Arrival time of the {@code index}-th queued vehicle, 0 being the head
+     */
+    double arrivalAt(int index) {
+        return arrival[(head + index) & (arrival.length - 1)];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Sum of vehicle lengths, without gaps
+     */
+    double totalLength() {
+        return totalLength;
+    }
+    
+    private void grow() {
+        int capacity = arrival.length;
+        int first = capacity - head; // elements from head to the end of the arrays
+        
+        double[] newArrival = new double[capacity * 2];
+        System.arraycopy(arrival, head, newArrival, 0, first);
+        System.arraycopy(arrival, 0, newArrival, first, head);
+        byte[] newType = new byte[capacity * 2];
+        System.arraycopy(type, head, newType, 0, first);
+        System.arraycopy(type, 0, newType, first, head);
+        float[] newLength = new float[capacity * 2];
+        System.arraycopy(length, head, newLength, 0, first);
+        System.arraycopy(length, 0, newLength, first, head);
+        
+        arrival = newArrival;
+        type = newType;
+        length = newLength;
+        head = 0;
+        shared = false;
+    }
+}
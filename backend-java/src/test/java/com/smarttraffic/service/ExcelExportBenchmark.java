@@ -0,0 +1,209 @@
+package com.smarttraffic.service;
+
+import com.smarttraffic.service.ExportService.AnalyticsData;
+import com.smarttraffic.service.ExportService.RecommendationData;
+import com.smarttraffic.service.ExportService.RoadPerformanceData;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark of the Excel report: the streaming (SXSSF) {@link ExportService#writeExcelReport}
+ * against the XSSF workbook with autoSizeColumn it replaced.
+ *
+ * Not a unit test; run one path per JVM so the peak heap belongs to that path alone:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -Xmx4g -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *     com.smarttraffic.service.ExcelExportBenchmark sxssf 1000000
+ * </pre>
+ * The first argument is {@code sxssf} or {@code xssf}, the second the number of road rows.
+ * Rows are generated on access, so the input data takes no heap. Both paths write to a
+ * stream that only counts bytes.
+ *
+ * Peak memory is the most heap still in use after any garbage collection during the
+ * export, i.e. what the export holds live, not what the collector has yet to reclaim.
+ */
+public class ExcelExportBenchmark {
+    
+    private static final String[] ROADS = {"Road A", "Road B", "Road C", "Road D"};
+    private static final String[] PEAKS = {"07:30-08:30", "12:00-13:00", "17:00-18:00"};
+    
+    public static void main(String[] args) throws Exception {
+        String path = args.length > 0 ? args[0] : "sxssf";
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        AnalyticsData data = data(rows);
+        CountingOutputStream out = new CountingOutputStream();
+        
+        System.gc();
+        long baseline = usedHeap();
+        AtomicLong peak = watchHeapAfterCollections();
+        
+        long start = System.nanoTime();
+        try {
+            switch (path) {
+                case "sxssf" -> new ExportService(null).writeExcelReport(data, out);
+                case "xssf" -> writeXssfReport(data, out);
+                default -> throw new IllegalArgumentException("Unknown path " + path + ", expected sxssf or xssf");
+            }
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%s rows=%d out of memory after %.1fs (max heap %d MB)%n", path, rows,
+                (System.nanoTime() - start) / 1e9, Runtime.getRuntime().maxMemory() >> 20);
+            return;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.gc();
+        
+        System.out.printf("%s rows=%d time=%.1fs peakHeap=%d MB (baseline %d MB) output=%.1f MB%n",
+            path, rows, millis / 1000.0, (peak.get() - baseline) >> 20, baseline >> 20, out.count / 1048576.0);
+    }
+    
+    /**
+     * The Excel report as it was written before streaming: everything in an XSSF workbook,
+     * then autoSizeColumn on every column
+     */
+    static void writeXssfReport(AnalyticsData data, OutputStream out) throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet summarySheet = workbook.createSheet("Summary");
+            Sheet roadSheet = workbook.createSheet("Road Performance");
+            Sheet recommendationsSheet = workbook.createSheet("Recommendations");
+            
+            int summaryRow = 0;
+            Row row = summarySheet.createRow(summaryRow++);
+            row.createCell(0).setCellValue("Traffic Analytics Report");
+            row = summarySheet.createRow(summaryRow++);
+            row.createCell(0).setCellValue("System Efficiency");
+            row.createCell(1).setCellValue(data.getSystemEfficiency() + "%");
+            row = summarySheet.createRow(summaryRow++);
+            row.createCell(0).setCellValue("Average Wait Time");
+            row.createCell(1).setCellValue(data.getAvgWaitTime() + "s");
+            row = summarySheet.createRow(summaryRow++);
+            row.createCell(0).setCellValue("Total Throughput");
+            row.createCell(1).setCellValue(data.getTotalThroughput());
+            row = summarySheet.createRow(summaryRow);
+            row.createCell(0).setCellValue("Emergency Events");
+            row.createCell(1).setCellValue(data.getEmergencyEvents());
+            
+            int roadRow = 0;
+            Row headerRow = roadSheet.createRow(roadRow++);
+            headerRow.createCell(0).setCellValue("Road");
+            headerRow.createCell(1).setCellValue("Vehicles");
+            headerRow.createCell(2).setCellValue("Wait Time (s)");
+            headerRow.createCell(3).setCellValue("Efficiency (%)");
+            headerRow.createCell(4).setCellValue("Queue Length");
+            headerRow.createCell(5).setCellValue("Peak Traffic");
+            
+            for (RoadPerformanceData road : data.getRoadPerformance()) {
+                Row dataRow = roadSheet.createRow(roadRow++);
+                dataRow.createCell(0).setCellValue(road.getRoadName());
+                dataRow.createCell(1).setCellValue(road.getVehicles());
+                dataRow.createCell(2).setCellValue(road.getWaitTime());
+                dataRow.createCell(3).setCellValue(road.getEfficiency());
+                dataRow.createCell(4).setCellValue(road.getQueueLength());
+                dataRow.createCell(5).setCellValue(road.getPeakTraffic());
+            }
+            
+            int recRow = 0;
+            for (RecommendationData rec : data.getRecommendations()) {
+                Row recDataRow = recommendationsSheet.createRow(recRow++);
+                recDataRow.createCell(0).setCellValue(rec.getRoadName());
+                recDataRow.createCell(1).setCellValue(rec.getSeverity());
+                recDataRow.createCell(2).setCellValue(rec.getRecommendation());
+                recDataRow.createCell(3).setCellValue(rec.getEstimatedImpact());
+            }
+            
+            for (int i = 0; i < 6; i++) {
+                summarySheet.autoSizeColumn(i);
+                roadSheet.autoSizeColumn(i);
+                recommendationsSheet.autoSizeColumn(i);
+            }
+            workbook.write(out);
+        }
+    }
+    
+    private static AnalyticsData data(int rows) {
+        AnalyticsData data = new AnalyticsData();
+        data.setSystemEfficiency(87.5);
+        data.setAvgWaitTime(23.4);
+        data.setTotalThroughput(rows);
+        data.setEmergencyEvents(12);
+        data.setRoadPerformance(new AbstractList<>() {
+            @Override
+            public RoadPerformanceData get(int index) {
+                RoadPerformanceData road = new RoadPerformanceData();
+                road.setRoadName(ROADS[index % ROADS.length]);
+                road.setVehicles(index % 120);
+                road.setWaitTime((index % 900) / 10.0);
+                road.setEfficiency(50.0 + (index % 500) / 10.0);
+                road.setQueueLength(index % 40);
+                road.setPeakTraffic(PEAKS[index % PEAKS.length]);
+                return road;
+            }
+            
+            @Override
+            public int size() {
+                return rows;
+            }
+        });
+        
+        RecommendationData recommendation = new RecommendationData();
+        recommendation.setRoadName("Road A");
+        recommendation.setSeverity("high");
+        recommendation.setRecommendation("Extend the green split of Road A by 10s during the evening peak.");
+        recommendation.setEstimatedImpact("12%");
+        data.setRecommendations(List.of(recommendation));
+        return data;
+    }
+    
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    /**
+     * Track the largest heap in use after a garbage collection, from now on
+     */
+    private static AtomicLong watchHeapAfterCollections() {
+        AtomicLong peak = new AtomicLong(usedHeap());
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                long used = info.getGcInfo().getMemoryUsageAfterGc().values().stream()
+                    .mapToLong(MemoryUsage::getUsed)
+                    .sum();
+                peak.accumulateAndGet(used, Math::max);
+            }, null, null);
+        }
+        return peak;
+    }
+    
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+        
+        @Override
+        public void write(int b) {
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.smarttraffic.simulation;
+
+import com.smarttraffic.dto.RoadDTO;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scaling and parity check of {@link RoadNetwork#partition}: the same grid and seed stepped
+ * with 1, 2, 4 and 8 regions must end in the same state, and the step time shows the speedup.
+ *
+ * Not a unit test; run it after changing how regions step or exchange vehicles:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *     com.smarttraffic.simulation.RegionScalingBenchmark 100 300
+ * </pre>
+ * Arguments: grid size (100 for 100x100), simulated seconds measured after a 300 s warm-up,
+ * and optionally the region counts ("1,2,4,8"). Exits with status 1 if any region count
+ * ends in a different state than the first.
+ */
+public class RegionScalingBenchmark {
+    
+    private static final long SEED = 42;
+    private static final double WARM_UP_SECONDS = 300;
+    
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int[] regionCounts = args.length > 2
+            ? Arrays.stream(args[2].split(",")).mapToInt(Integer::parseInt).toArray()
+            : new int[]{1, 2, 4, 8};
+        
+        String reference = null;
+        double referenceMicros = 0;
+        boolean same = true;
+        for (int regions : regionCounts) {
+            ForkJoinPool pool = new ForkJoinPool(regions);
+            try {
+                RoadNetwork network = RoadNetwork.build(grid(size), 1.0, SEED);
+                network.partition(regions, pool);
+                network.advance(WARM_UP_SECONDS);
+                
+                long start = System.nanoTime();
+                network.advance(seconds);
+                double micros = (System.nanoTime() - start) / 1e3 / seconds;
+                
+                String hash = stateHash(network);
+                if (reference == null) {
+                    reference = hash;
+                    referenceMicros = micros;
+                }
+                boolean matches = hash.equals(reference);
+                same &= matches;
+                System.out.printf("%dx%d regions=%d step=%.1f us speedup=%.2f state=%s %s%n", size, size,
+                    network.getRegionCount(), micros, referenceMicros / micros, hash, matches ? "same" : "DIFFERENT");
+            } finally {
+                pool.shutdown();
+            }
+        }
+        System.out.printf("%d cores available%n", Runtime.getRuntime().availableProcessors());
+        if (!same) System.exit(1);
+    }
+    
+    static NetworkTopology grid(int size) {
+        return NetworkTopology.builder()
+            .name("grid-" + size + "x" + size)
+            .cycleLength(60.0)
+            .grid(NetworkTopology.Grid.builder()
+                .rows(size)
+                .cols(size)
+                .travelTime(30.0)
+                .arrivalRate(0.1)
+                .straightShare(0.7)
+                .offsetStep(30.0)
+                .build())
+            .build();
+    }
+    
+    /**
+     * Vehicles served and exited, and every approach's light, queue and wait time
+     */
+    static String stateHash(RoadNetwork network) {
+        List<RoadDTO> roads = network.createRoads();
+        long hash = 17;
+        for (RoadDTO road : roads) {
+            hash = hash * 31 + Objects.hash(road.getLight(), road.getQueue(), road.getWaitTime());
+        }
+        return network.totalProcessed() + "/" + network.exited() + "/" + Long.toHexString(hash);
+    }
+}